@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2017 Ron de Jong (ronuitzaandam@gmail.com).
+ *
+ * This is free software; you can redistribute it
+ * under the terms of the Creative Commons License
+ * Creative Commons License: (CC BY-NC-ND 4.0) as published by
+ * https://creativecommons.org/licenses/by-nc-nd/4.0/ ; either
+ * version 4.0 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Creative Commons Attribution-NonCommercial-NoDerivatives 4.0
+ * International Public License for more details.
+ *
+ * You should have received a copy of the Creative Commons
+ * Public License License along with this software;
+ */
+
+package rdj;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+    Shared pool of direct ByteBuffers for the I/O engines and the key generators.
+
+    lease(size)	    Returns a cleared direct buffer with capacity size (pooled or newly allocated).
+    release(buffer) Returns a leased buffer, so the next lease(..) of the same size reuses it.
+
+    Buffers are pooled per capacity (the capacity is part of the engines' end of file logic) and at most MAX_IDLE_BUFFERS idle buffers
+    are kept per capacity, the rest is left to the garbage collector. Direct buffers are page aligned by the JVM when it runs with
+    -Dsun.nio.PageAlignDirectMemory=true (Java 8 has no ByteBuffer.alignedSlice(..)).
+*/
+
+public class BufferPool
+{
+    public static final    int	    MAX_IDLE_BUFFERS =	32; // Per capacity (enough for the pipeline ring & chunk workers)
+
+    private static final ConcurrentHashMap<Integer, ConcurrentLinkedQueue<ByteBuffer>> idleBuffersMap = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Integer, AtomicInteger> idleCountMap = new ConcurrentHashMap<>();
+    private static final AtomicInteger allocated = new AtomicInteger(0);
+
+    public static int getAllocated()				{ return allocated.get(); }
+
+    public static ByteBuffer lease(int size)
+    {
+	ByteBuffer buffer = getIdleBuffers(size).poll();
+	if ( buffer == null )	{ buffer = ByteBuffer.allocateDirect(size); allocated.incrementAndGet(); }
+	else			{ getIdleCount(size).decrementAndGet(); }
+	buffer.clear();
+	return buffer;
+    }
+
+    public static void release(ByteBuffer buffer)
+    {
+	if (( buffer == null ) || ( ! buffer.isDirect() )) { return; } // Not from this pool
+	int size = buffer.capacity();
+	if ( getIdleCount(size).incrementAndGet() <= MAX_IDLE_BUFFERS ) { getIdleBuffers(size).offer(buffer); }
+	else								 { getIdleCount(size).decrementAndGet(); }
+    }
+
+    private static ConcurrentLinkedQueue<ByteBuffer> getIdleBuffers(int size)  { return idleBuffersMap.computeIfAbsent(size, key -> new ConcurrentLinkedQueue<>()); }
+    private static AtomicInteger getIdleCount(int size)			    { return idleCountMap.computeIfAbsent(size, key -> new AtomicInteger(0)); }
+}
@@ -63,21 +63,22 @@ public class CLUI implements UI
     private boolean key_checksum = false;
     private boolean printgpt = false;
     private boolean deletegpt = false;
+    private boolean streamscan = false;
     
-    private FCPathList encryptableList;
-    private FCPathList decryptableList;
-    private FCPathList createKeyList;
-    private FCPathList cloneKeyList;
+    private FCPathList<FCPath> encryptableList;
+    private FCPathList<FCPath> decryptableList;
+    private FCPathList<FCPath> createKeyList;
+    private FCPathList<FCPath> cloneKeyList;
     
     private boolean encryptablesFound = false;
     private boolean decryptablesFound = false;
     private boolean createKeyDeviceFound = false;
     private boolean cloneKeyDeviceFound = false;
-    private FCPathList printGPTTargetList;
+    private FCPathList<FCPath> printGPTTargetList;
     private boolean printGPTDeviceFound;
     private boolean deleteGPTDeviceFound;
-    private FCPathList deleteGPTTargetList;
-    private  FCPathList targetFCPathList;
+    private FCPathList<FCPath> deleteGPTTargetList;
+    private  FCPathList<FCPath> targetFCPathList;
     private boolean keySourceChecksumReadEnded = false;
     private int bufferSize;
     private Long totalTranfered;
@@ -105,6 +106,7 @@ public class CLUI implements UI
 	boolean kfsetneeded = true;
         boolean validInvocation = true;
         boolean negatePattern = false;
+        boolean patternset = false;
 
         ArrayList<Path> targetPathList = new ArrayList<>();
         ArrayList<Path> extendedTargetPathList = new ArrayList<>();
@@ -120,11 +122,15 @@ public class CLUI implements UI
         version.checkCurrentlyInstalledVersion(this);
 
         String pattern = "glob:*";
+        FCPathFilter fcPathFilter = new FCPathFilter(); // --include, --exclude, --exclude-dir & bounds (-w / -W / -r pattern added after parsing when given)
         
         // Load the FinalCrypt Objext
         finalCrypt = new FinalCrypt(this);
         finalCrypt.start();
         finalCrypt.setBufferSize(finalCrypt.getBufferSizeDefault());
+        finalCrypt.setResumeJournalDirPath(configuration.getDataDirPath()); // Every run can be resumed (one journal per key & mode)
+        ScanCache.setCachePath(configuration.getDataDirPath().resolve(ScanCache.CACHE_NAME)); // Unchanged files are not probed again
+        InPlaceJournal.setJournalDirPath(configuration.getDataDirPath().resolve(InPlaceJournal.JOURNAL_DIR_NAME)); // Interrupted in-place conversions
         
 ////      SwingWorker version of FinalCrype
 //        finalCrypt.execute();
@@ -159,13 +165,31 @@ public class CLUI implements UI
             else if (  args[paramCnt].equals("--license"))                                                          { log(version.getProduct() + " " + Version.getLicense() + "\r\n", false, true, true, false, false); System.exit(0); }
             else if (  args[paramCnt].equals("--check-update"))                                                           { version.checkLatestOnlineVersion(this); 	    String[] lines = version.getUpdateStatus().split("\r\n"); for (String line: lines) { log(line + "\r\n", false, true, true, false, false); } System.exit(0); }
             else if (( args[paramCnt].equals("-s")) && (!args[paramCnt+1].isEmpty()) )				    { if ( validateIntegerString(args[paramCnt + 1]) ) { finalCrypt.setBufferSize(Integer.valueOf( args[paramCnt + 1] ) * 1024 ); paramCnt++; } else { log("\r\nError: Invalid Option Value [-b size]" + "\r\n", false, true, true, true, false); usagePrompt(true); }}
+            else if (( args[paramCnt].equals("--engine")) && (paramCnt+1 < args.length) )			    { if ( FinalCrypt.getEngine(args[paramCnt + 1]) != -1 ) { finalCrypt.setEngine(FinalCrypt.getEngine(args[paramCnt + 1])); paramCnt++; } else { log("\r\nError: Invalid Option Value [--engine legacy|stream|mmap|pipeline]" + "\r\n", false, true, true, true, false); usagePrompt(true); }}
+            else if (( args[paramCnt].equals("--workers")) && (paramCnt+1 < args.length) )			    { if (( validateIntegerString(args[paramCnt + 1]) ) && ( Integer.valueOf(args[paramCnt + 1]) > 0 )) { finalCrypt.setWorkers(Integer.valueOf( args[paramCnt + 1] )); paramCnt++; } else { log("\r\nError: Invalid Option Value [--workers number]" + "\r\n", false, true, true, true, false); usagePrompt(true); }}
+            else if (( args[paramCnt].equals("--chunk-threshold")) && (paramCnt+1 < args.length) )		    { if (( validateIntegerString(args[paramCnt + 1]) ) && ( Integer.valueOf(args[paramCnt + 1]) >= 0 )) { finalCrypt.setChunkThreshold(Long.valueOf( args[paramCnt + 1] ) * 1024L * 1024L); paramCnt++; } else { log("\r\nError: Invalid Option Value [--chunk-threshold size]" + "\r\n", false, true, true, true, false); usagePrompt(true); }}
+            else if (( args[paramCnt].equals("--key-cache")) && (paramCnt+1 < args.length) )			    { if (( validateIntegerString(args[paramCnt + 1]) ) && ( Integer.valueOf(args[paramCnt + 1]) >= 0 )) { finalCrypt.setKeyCacheSize(Long.valueOf( args[paramCnt + 1] ) * 1024L * 1024L); paramCnt++; } else { log("\r\nError: Invalid Option Value [--key-cache size]" + "\r\n", false, true, true, true, false); usagePrompt(true); }}
+            else if (( args[paramCnt].equals("--key-prefetch")) && (paramCnt+1 < args.length) )		    { if (( validateIntegerString(args[paramCnt + 1]) ) && ( Integer.valueOf(args[paramCnt + 1]) >= 0 )) { finalCrypt.setKeyPrefetchWindow(Long.valueOf( args[paramCnt + 1] ) * 1024L * 1024L); paramCnt++; } else { log("\r\nError: Invalid Option Value [--key-prefetch size]" + "\r\n", false, true, true, true, false); usagePrompt(true); }}
+            else if (( args[paramCnt].equals("--pipeline-depth")) && (paramCnt+1 < args.length) )		    { if (( validateIntegerString(args[paramCnt + 1]) ) && ( Integer.valueOf(args[paramCnt + 1]) > 1 )) { finalCrypt.setPipelineDepth(Integer.valueOf( args[paramCnt + 1] )); paramCnt++; } else { log("\r\nError: Invalid Option Value [--pipeline-depth number (2 and up)]" + "\r\n", false, true, true, true, false); usagePrompt(true); }}
+            else if (( args[paramCnt].equals("--durability")) && (paramCnt+1 < args.length) )			    { if ( Durability.getLevel(args[paramCnt + 1]) != -1 ) { Durability.setLevel(Durability.getLevel(args[paramCnt + 1])); paramCnt++; } else { log("\r\nError: Invalid Option Value [--durability write|file|batch|atomic]" + "\r\n", false, true, true, true, false); usagePrompt(true); }}
             else if (( args[paramCnt].equals("-S")) && (!args[paramCnt+1].isEmpty()) )				    { if ( validateIntegerString(args[paramCnt + 1]) ) { filesizeInBytes = Long.valueOf( args[paramCnt + 1] ); paramCnt++; } else { log("\r\nError: Invalid Option Value [-S size]" + "\r\n", false, true, true, true, false); usagePrompt(true); }}
 
 //          Filtering Options
+            else if ( args[paramCnt].equals("--in-place"))                                                          { finalCrypt.setInPlace(true); }
+            else if ( args[paramCnt].equals("--resume"))                                                            { finalCrypt.setResume(true); }
+            else if ( args[paramCnt].equals("--stream-scan"))                                                       { streamscan = true; }
+            else if ( args[paramCnt].equals("--no-scan-cache"))                                                     { ScanCache.setCachePath(null); }
             else if ( args[paramCnt].equals("--dry"))                                                               { finalCrypt.setDry(true); }
-            else if ( ( args[paramCnt].equals("-w")) && (!args[paramCnt+1].isEmpty()) )				    { negatePattern = false; pattern = "glob:" + args[paramCnt+1]; paramCnt++; }
-            else if ( ( args[paramCnt].equals("-W")) && (!args[paramCnt+1].isEmpty()) )				    { negatePattern = true; pattern = "glob:" + args[paramCnt+1]; paramCnt++; }
-            else if ( ( args[paramCnt].equals("-r")) && (!args[paramCnt+1].isEmpty()) )				    { pattern = "regex:" + args[paramCnt+1]; paramCnt++; }
+            else if ( ( args[paramCnt].equals("-w")) && (!args[paramCnt+1].isEmpty()) )				    { negatePattern = false; pattern = "glob:" + args[paramCnt+1]; patternset = true; paramCnt++; }
+            else if ( ( args[paramCnt].equals("-W")) && (!args[paramCnt+1].isEmpty()) )				    { negatePattern = true; pattern = "glob:" + args[paramCnt+1]; patternset = true; paramCnt++; }
+            else if ( ( args[paramCnt].equals("-r")) && (!args[paramCnt+1].isEmpty()) )				    { pattern = "regex:" + args[paramCnt+1]; patternset = true; paramCnt++; }
+            else if ( ( args[paramCnt].equals("--include")) && (paramCnt+1 < args.length) )			    { try { fcPathFilter.addInclude(args[paramCnt+1]); paramCnt++; } catch (IllegalArgumentException ex) { log("\r\nError: Invalid Option Value [--include pattern] " + ex.getMessage() + "\r\n", false, true, true, true, false); usagePrompt(true); }}
+            else if ( ( args[paramCnt].equals("--exclude")) && (paramCnt+1 < args.length) )			    { try { fcPathFilter.addExclude(args[paramCnt+1]); paramCnt++; } catch (IllegalArgumentException ex) { log("\r\nError: Invalid Option Value [--exclude pattern] " + ex.getMessage() + "\r\n", false, true, true, true, false); usagePrompt(true); }}
+            else if ( ( args[paramCnt].equals("--exclude-dir")) && (paramCnt+1 < args.length) )			    { try { fcPathFilter.addExcludeDir(args[paramCnt+1]); paramCnt++; } catch (IllegalArgumentException ex) { log("\r\nError: Invalid Option Value [--exclude-dir pattern] " + ex.getMessage() + "\r\n", false, true, true, true, false); usagePrompt(true); }}
+            else if ( ( args[paramCnt].equals("--min-size")) && (paramCnt+1 < args.length) )			    { try { fcPathFilter.setMinSize(FCPathFilter.getSize(args[paramCnt+1])); paramCnt++; } catch (IllegalArgumentException ex) { log("\r\nError: Invalid Option Value [--min-size size] " + ex.getMessage() + "\r\n", false, true, true, true, false); usagePrompt(true); }}
+            else if ( ( args[paramCnt].equals("--max-size")) && (paramCnt+1 < args.length) )			    { try { fcPathFilter.setMaxSize(FCPathFilter.getSize(args[paramCnt+1])); paramCnt++; } catch (IllegalArgumentException ex) { log("\r\nError: Invalid Option Value [--max-size size] " + ex.getMessage() + "\r\n", false, true, true, true, false); usagePrompt(true); }}
+            else if ( ( args[paramCnt].equals("--newer-than")) && (paramCnt+1 < args.length) )			    { try { fcPathFilter.setNewerThan(FCPathFilter.getTime(args[paramCnt+1])); paramCnt++; } catch (IllegalArgumentException ex) { log("\r\nError: Invalid Option Value [--newer-than date] " + ex.getMessage() + "\r\n", false, true, true, true, false); usagePrompt(true); }}
+            else if ( ( args[paramCnt].equals("--older-than")) && (paramCnt+1 < args.length) )			    { try { fcPathFilter.setOlderThan(FCPathFilter.getTime(args[paramCnt+1])); paramCnt++; } catch (IllegalArgumentException ex) { log("\r\nError: Invalid Option Value [--older-than date] " + ex.getMessage() + "\r\n", false, true, true, true, false); usagePrompt(true); }}
 
 //          File Parameters
             else if ( ( args[paramCnt].equals("-k")) && (paramCnt+1 < args.length) )				    { keyFCPath = Validate.getFCPath( ui, "", Paths.get(args[paramCnt+1]), true, Paths.get(args[paramCnt+1]), true); kfset = true; paramCnt++; }
@@ -176,6 +200,9 @@ public class CLUI implements UI
             else { log("\r\nError: Invalid Parameter: " + args[paramCnt] + "\r\n", false, true, true, true, false); usagePrompt(true); }
         }
 
+        if ( patternset ) { try { if ( negatePattern ) { fcPathFilter.addExclude(pattern); } else { fcPathFilter.addInclude(pattern); } }
+        catch (IllegalArgumentException ex) { log("\r\nError: Invalid Option Value [-w / -W / -r pattern] " + ex.getMessage() + "\r\n", false, true, true, true, false); usagePrompt(true); } }
+
         if (( encryptModeNeeded )   && ( decrypt ))								    { log("\r\nError: MAC Mode Disabled! Use --encrypt if you know what you are doing!!!\r\n",  false, true, true, true, false); usagePrompt(true); }
         if (( encryptModeNeeded )   && ( ! encrypt ))								    { log("\r\nError: Missing valid parameter <--encrypt>" + "\r\n",			    false, true, true, true, false); usagePrompt(true); }
         if (( kfsetneeded )	    && ( ! kfset ))								    { log("\r\nError: Missing valid parameter <-k \"keyfile\">" + "\r\n",			    false, true, true, true, false); usagePrompt(true); }
@@ -244,6 +271,8 @@ public class CLUI implements UI
 	    if ( filesizeInBytes < bufferSize) { bufferSize = filesizeInBytes.intValue(); }
 
 	    boolean inputEnded = false;
+	    boolean keyWritten = true;
+	    Path keyWritePath = Durability.getWritePath(keyPath); // Temporary key file on Durability.LEVEL_ATOMIC
 	    long writeKeyFileChannelPosition = 0L;
 	    long writeKeyFileChannelTransfered = 0L;
 	    totalTranfered = 0L;
@@ -253,10 +282,9 @@ public class CLUI implements UI
 
 	    byte[]      randomBytes1 =	    new byte[bufferSize];
 	    byte[]      randomBytes2 =	    new byte[bufferSize];
-	    byte[]      randomBytes3 =	    new byte[bufferSize];
-	    ByteBuffer  randomBuffer1 =	    ByteBuffer.allocate(bufferSize); randomBuffer1.clear();
-	    ByteBuffer  randomBuffer2 =	    ByteBuffer.allocate(bufferSize); randomBuffer2.clear();
-	    ByteBuffer  randomBuffer3 =	    ByteBuffer.allocate(bufferSize); randomBuffer3.clear();
+	    ByteBuffer  randomBuffer1 =	    BufferPool.lease(bufferSize); // Leased once, the last (smaller) block only lowers the limit
+	    ByteBuffer  randomBuffer2 =	    BufferPool.lease(bufferSize);
+	    ByteBuffer  randomBuffer3 =	    BufferPool.lease(bufferSize);
 
 
 	    SecureRandom random = new SecureRandom();
@@ -265,33 +293,18 @@ public class CLUI implements UI
 	    {
 		remainder = (filesizeInBytes - totalTranfered);
 
-		if	    ( remainder >= bufferSize )				
-		{
-		    randomBytes1 =	    new byte[bufferSize];
-		    randomBytes2 =	    new byte[bufferSize];
-		    randomBytes3 =	    new byte[bufferSize];
-		    randomBuffer1 =	    ByteBuffer.allocate(bufferSize); randomBuffer1.clear();
-		    randomBuffer2 =	    ByteBuffer.allocate(bufferSize); randomBuffer2.clear();
-		    randomBuffer3 =	    ByteBuffer.allocate(bufferSize); randomBuffer3.clear();
-		}
-		else if (( remainder > 0 ) && ( remainder < bufferSize ))
-		{
-		    randomBytes1 =	    new byte[remainder.intValue()];
-		    randomBytes2 =	    new byte[remainder.intValue()];
-		    randomBytes3 =	    new byte[remainder.intValue()];
-		    randomBuffer1 =	    ByteBuffer.allocate(remainder.intValue()); randomBuffer1.clear();
-		    randomBuffer2 =	    ByteBuffer.allocate(remainder.intValue()); randomBuffer2.clear();
-		    randomBuffer3 =	    ByteBuffer.allocate(remainder.intValue()); randomBuffer3.clear();
-		}
+		int blockSize = bufferSize;
+		if	    ( remainder >= bufferSize )				{ blockSize = bufferSize; }
+		else if (( remainder > 0 ) && ( remainder < bufferSize ))	{ blockSize = remainder.intValue(); }
 		else							{ inputEnded = true; }
 //              Randomize raw key or write raw key straight to partition
-		random.nextBytes(randomBytes1); randomBuffer1.put(randomBytes1); randomBuffer1.flip();
-		random.nextBytes(randomBytes2); randomBuffer2.put(randomBytes2); randomBuffer2.flip();
+		random.nextBytes(randomBytes1); randomBuffer1.put(randomBytes1, 0, blockSize); randomBuffer1.flip();
+		random.nextBytes(randomBytes2); randomBuffer2.put(randomBytes2, 0, blockSize); randomBuffer2.flip();
 
-		randomBuffer3 = FinalCrypt.encryptBuffer(randomBuffer1, randomBuffer2, false); // Encrypt
+		FinalCrypt.encryptBuffer(randomBuffer1, randomBuffer2, randomBuffer3, false); // Encrypt
 
 //              Write Device
-		try (final SeekableByteChannel writeKeyFileChannel = Files.newByteChannel(keyPath, EnumSet.of(StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.SYNC)))
+		try (final SeekableByteChannel writeKeyFileChannel = Files.newByteChannel(keyWritePath, Durability.getWriteOptions(StandardOpenOption.CREATE, StandardOpenOption.WRITE)))
 		{
 		    writeKeyFileChannel.position(writeKeyFileChannelPosition);
 		    writeKeyFileChannelTransfered = writeKeyFileChannel.write(randomBuffer3); randomBuffer3.rewind();
@@ -301,12 +314,14 @@ public class CLUI implements UI
 		    writeKeyFileChannelPosition += writeKeyFileChannelTransfered;
 
 		    writeKeyFileChannel.close();
-		} catch (IOException ex) { log("\r\nError: " + ex.getMessage() + "\r\n", false, true, true, true, false); inputEnded = true; break; }
+		} catch (IOException ex) { log("\r\nError: " + ex.getMessage() + "\r\n", false, true, true, true, false); inputEnded = true; keyWritten = false; break; }
 		randomBuffer1.clear(); randomBuffer2.clear(); randomBuffer3.clear();
 	    }
+	    BufferPool.release(randomBuffer1); BufferPool.release(randomBuffer2); BufferPool.release(randomBuffer3);
 	    writeKeyFileChannelPosition = 0;                
 	    writeKeyFileChannelTransfered = 0;                
 	    inputEnded = false;
+	    if ( keyWritten ) { try { Durability.commit(keyWritePath, keyPath); } catch (IOException ex) { log("\r\nError: Durability.commit(..): " + ex.getMessage() + "\r\n", false, true, true, true, false); System.exit(1); } }
 
 
 	    log("finished\r\n", false, true, false, false, false);
@@ -358,15 +373,24 @@ public class CLUI implements UI
 	
 //////////////////////////////////////////////////// BUILD SELECTION /////////////////////////////////////////////////
         
-	targetFCPathList = new FCPathList();
+	targetFCPathList = new FCPathList<>();
 //	if (!cfsetneeded) { keyFCPath = (FCPath) targetPathList.get(0); }
 	if (!kfsetneeded) 
 	{
 //    					  getFCPath(UI ui, String caller,	      Path path, boolean isKey,          Path keyPath, boolean report)
 		     keyFCPath = Validate.getFCPath(   ui,            "", targetPathList.get(0),         false, targetPathList.get(0),           true);
 	}
+//	Complete interrupted in-place conversions first (a half decrypted file has lost its token and would not be selected)
+	if (( encrypt || decrypt ) && ( keyFCPath != null ) && ( keyFCPath.isValidKey )) { finalCrypt.recoverInPlace(keyFCPath); }
+
+//	Streaming scan: encrypting / decrypting starts with the first target found instead of after the whole scan
+	if (( streamscan ) && (( encrypt ) || (( decrypt ) && ( ! finalCrypt.disableMAC ))) && ( keyFCPath != null ) && ( keyFCPath.isValidKey ))
+	{
+	    streamSelection(targetPathList, keyFCPath, symlink, fcPathFilter); return;
+	}
+
 //		 buildTargetSelection(UI ui, ArrayList<Path> userSelectedItemsPathList, Path keyPath, ArrayList<FCPath> targetFCPathList, boolean symlink, String pattern, boolean negatePattern, boolean status)
-	Validate.buildSelection(       this,			        targetPathList,  keyFCPath,		    targetFCPathList,	      symlink,	      pattern,	       negatePattern,	       false);
+	Validate.buildSelection(       this,			        targetPathList,  keyFCPath,		    targetFCPathList,	      symlink,	      fcPathFilter,			       false, null, false);
 	
 /////////////////////////////////////////////// SET BUILD MODES ////////////////////////////////////////////////////
 
@@ -376,14 +400,14 @@ public class CLUI implements UI
 	    // Encryptables
 	    if (targetFCPathList.encryptableFiles > 0)
 	    {
-		encryptableList = filter(targetFCPathList,(FCPath fcPath) -> fcPath.isEncryptable); // log("Encryptable List:\r\n" + encryptableList.getStats());
+		encryptableList = targetFCPathList.getView(FCPathList.ENCRYPTABLE_VIEW); // log("Encryptable List:\r\n" + encryptableList.getStats());
 		encryptablesFound = true;
 	    }
 
 	    // Encryptables
 	    if (targetFCPathList.decryptableFiles > 0)
 	    {
-		decryptableList = filter(targetFCPathList,(FCPath fcPath) -> fcPath.isDecryptable); // log("Decryptable List:\r\n" + decryptableList.getStats());
+		decryptableList = targetFCPathList.getView(FCPathList.DECRYPTABLE_VIEW); // log("Decryptable List:\r\n" + decryptableList.getStats());
 		decryptablesFound = true;
 	    }
 
@@ -392,7 +416,7 @@ public class CLUI implements UI
 	    {
 		if (targetFCPathList.validDevices > 0)
 		{
-		    createKeyList = filter(targetFCPathList,(FCPath fcPath) -> fcPath.type == FCPath.DEVICE); // log("Create Key List:\r\n" + createKeyList.getStats());
+		    createKeyList = targetFCPathList.getView(FCPathList.DEVICE_VIEW); // log("Create Key List:\r\n" + createKeyList.getStats());
 		    createKeyDeviceFound = true;
 		} else { createKeyDeviceFound = false; }
 	    }		
@@ -402,7 +426,7 @@ public class CLUI implements UI
 		if ((targetFCPathList.validDevices > 0) && (targetFCPathList.matchingKey == 0))
 		{
 		    final FCPath keyFCPath2 = keyFCPath; // for Lambda expression
-		    cloneKeyList = filter(targetFCPathList,(FCPath fcPath) -> fcPath.type == FCPath.DEVICE && fcPath.path.compareTo(keyFCPath2.path) != 0); // log("Clone Key List:\r\n" + cloneKeyList.getStats());
+		    cloneKeyList = filter(targetFCPathList.getView(FCPathList.DEVICE_VIEW),(FCPath fcPath) -> fcPath.path.compareTo(keyFCPath2.path) != 0); // log("Clone Key List:\r\n" + cloneKeyList.getStats());
 		    cloneKeyDeviceFound = true;
 		} else { cloneKeyDeviceFound = false; }
 	    } else { cloneKeyDeviceFound = false; }
@@ -416,14 +440,14 @@ public class CLUI implements UI
 	
 	if ((deletegpt) && (targetFCPathList.validDevices > 0))
 	{
-	    deleteGPTTargetList = filter(targetFCPathList,(FCPath fcPath) -> fcPath.type == FCPath.DEVICE); // log("Create Key List:\r\n" + createKeyList.getStats());
+	    deleteGPTTargetList = targetFCPathList.getView(FCPathList.DEVICE_VIEW); // log("Create Key List:\r\n" + createKeyList.getStats());
 	    if ( deleteGPTTargetList.size() > 0 ) { deleteGPTDeviceFound = true; }
 	    else { deleteGPTDeviceFound = false; }
 	}
 	else if ((deletegpt) && (targetFCPathList.validDevicesProtected > 0))
 	{
-	    deleteGPTTargetList = filter(targetFCPathList,(FCPath fcPath) -> fcPath.type == FCPath.DEVICE_PROTECTED); // log("Create Key List:\r\n" + createKeyList.getStats());
-	    FCPath fcPath = (FCPath) deleteGPTTargetList.get(0); log("WARNING: Device: " + fcPath.path + " is protected!!!\r\n", false, true, true, true, false); deleteGPTDeviceFound = false; 
+	    deleteGPTTargetList = targetFCPathList.getView(FCPathList.DEVICE_PROTECTED_VIEW); // log("Create Key List:\r\n" + createKeyList.getStats());
+	    FCPath fcPath = deleteGPTTargetList.get(0); log("WARNING: Device: " + fcPath.path + " is protected!!!\r\n", false, true, true, true, false); deleteGPTDeviceFound = false; 
 	}
 	else { deleteGPTDeviceFound = false; }
 
@@ -460,22 +484,22 @@ public class CLUI implements UI
 	}
 	else if (createkeydev)
 	{
-	    if (createKeyDeviceFound)	{ processStarted(); deviceManager = new DeviceManager(ui); deviceManager.start(); deviceManager.createKeyDevice(keyFCPath, (FCPath) createKeyList.get(0)); processFinished(); }
+	    if (createKeyDeviceFound)	{ processStarted(); deviceManager = new DeviceManager(ui); deviceManager.start(); deviceManager.createKeyDevice(keyFCPath, createKeyList.get(0)); processFinished(); }
 	    else			{ log("No valid target device found:\r\n", false, true, true, true, false); log(targetFCPathList.getStats(), false, true, false, false, false); }
 	}
 	else if ((clonekeydev) && (cloneKeyDeviceFound))
 	{
-	    if (cloneKeyDeviceFound)	{ processStarted(); deviceManager = new DeviceManager(ui); deviceManager.start(); deviceManager.cloneKeyDevice(keyFCPath, (FCPath) cloneKeyList.get(0));  processFinished(); }
+	    if (cloneKeyDeviceFound)	{ processStarted(); deviceManager = new DeviceManager(ui); deviceManager.start(); deviceManager.cloneKeyDevice(keyFCPath, cloneKeyList.get(0));  processFinished(); }
 	    else			{ log("No valid target device found:\r\n", false, true, true, true, false); log(targetFCPathList.getStats(), false, true, false, false, false); }
 	}
 	else if ((printgpt) && (printGPTDeviceFound))
 	{
-	    if (printGPTDeviceFound)	{ deviceManager = new DeviceManager(ui); deviceManager.start(); deviceManager.printGPT( (FCPath) printGPTTargetList.get(0)); }
+	    if (printGPTDeviceFound)	{ deviceManager = new DeviceManager(ui); deviceManager.start(); deviceManager.printGPT( printGPTTargetList.get(0)); }
 	    else			{ log("No valid target device found:\r\n", false, true, true, true, false); log(targetFCPathList.getStats(), false, true, false, false, false); }
 	}
 	else if ((deletegpt) && (deleteGPTDeviceFound))
 	{
-	    if (deleteGPTDeviceFound)	{ deviceManager = new DeviceManager(ui); deviceManager.start(); deviceManager.deleteGPT( (FCPath) deleteGPTTargetList.get(0)); }
+	    if (deleteGPTDeviceFound)	{ deviceManager = new DeviceManager(ui); deviceManager.start(); deviceManager.deleteGPT( deleteGPTTargetList.get(0)); }
 	    else			{ log("No valid target device found:\r\n", false, true, true, true, false); log(targetFCPathList.getStats(), false, true, false, false, false); }
 	}
     } // End of default constructor
@@ -485,6 +509,23 @@ public class CLUI implements UI
 //  =======================================================================================================================================================================
 
 
+    private void streamSelection(ArrayList<Path> targetPathList, FCPath keyFCPath, boolean symlink, FCPathFilter fcPathFilter)
+    {
+	final FCPathQueue fcPathQueue = new FCPathQueue(( encrypt ) ? FCPathList.ENCRYPTABLE_VIEW : FCPathList.DECRYPTABLE_VIEW, FCPathQueue.CAPACITY_DEFAULT);
+	final FCPathList<FCPath> streamFCPathList = new FCPathList<>(); targetFCPathList = streamFCPathList; // Stats only
+	Thread scanThread = new Thread(() -> Validate.buildSelection(ui, targetPathList, keyFCPath, streamFCPathList, symlink, fcPathFilter, false, fcPathQueue, false), "FCPathWalker");
+	scanThread.start();
+	processStarted(); finalCrypt.encryptSelection(streamFCPathList, fcPathQueue, keyFCPath, encrypt);
+	try { scanThread.join(); } catch (InterruptedException ex) { Thread.currentThread().interrupt(); }
+
+	if ( fcPathQueue.getFilesTotal() == 0 )
+	{
+	    if ( encrypt )  { log("No encryptable targets found:\r\n", false, true, true, true, false); }
+	    else	    { log("No decryptable targets found\r\n\r\n", false, true, true, true, false); if ( streamFCPathList.encryptedFiles > 0 ) { log("Wrong key? \"" + keyFCPath.path.toString() + "\"\r\n\r\n", false, true, false, false, false); } }
+	    log(streamFCPathList.getStats(), false, true, false, false, false);
+	}
+    }
+
     private boolean addBatchTargetFiles(String batchFilePathString, ArrayList<Path> targetFilesPathList)
     {
         boolean ifset = false;
@@ -519,16 +560,16 @@ public class CLUI implements UI
         return ifset;
     }
 
-    public static FCPathList filter(ArrayList<FCPath> fcPathList, Predicate<FCPath> fcPath)
+    public static FCPathList<FCPath> filter(List<FCPath> fcPathList, Predicate<FCPath> fcPath)
     {
-	FCPathList result = new FCPathList();
+	FCPathList<FCPath> result = new FCPathList<>();
 	for (FCPath fcPathItem : fcPathList) { if (fcPath.test(fcPathItem)) { result.add(fcPathItem); } }
 	return result;
     }
     
     public static Predicate<FCPath> isHidden() { return (FCPath fcPath) -> fcPath.isHidden; }
     
-    public List<FCPath> filter(Predicate<FCPath> criteria, ArrayList<FCPath> list)
+    public List<FCPath> filter(Predicate<FCPath> criteria, List<FCPath> list)
     {
 	return list.stream().filter(criteria).collect(Collectors.<FCPath>toList());
     }
@@ -589,6 +630,24 @@ public class CLUI implements UI
 //        log("            [--chr]               Print character calculations.\r\n", false, true, false, false, false);
         log("                                  Warning: The above Print options slows encryption severely.\r\n", false, true, false, false, false);
         log("            [-s size]             Changes default I/O buffer size (size = KiB) (default 1024 KiB).\r\n", false, true, false, false, false);
+        log("            [--engine name]       I/O engine: legacy (reopens files every buffer), stream (opens files once)\r\n", false, true, false, false, false);
+        log("                                  mmap (memory mapped, falls back to stream per file) or pipeline (read, XOR & write\r\n", false, true, false, false, false);
+        log("                                  overlap in separate threads) (default legacy).\r\n", false, true, false, false, false);
+        log("            [--pipeline-depth n]  Number of reusable buffer sets between the pipeline stages (default 4).\r\n", false, true, false, false, false);
+        log("            [--key-cache size]    Keep keys up to this size (size = MiB, max 2047) in memory for all files (default 256, 0 = disabled).\r\n", false, true, false, false, false);
+        log("            [--key-prefetch size] Read larger keys this far ahead (size = MiB) in a background thread (default 64, 0 = disabled).\r\n", false, true, false, false, false);
+        log("            [--workers number]    Encrypt / decrypt this number of files at the same time (default 1).\r\n", false, true, false, false, false);
+        log("            [--chunk-threshold size] Encrypt files from this size (size = MiB) in concurrent chunks (default 0 = disabled).\r\n", false, true, false, false, false);
+        log("            [--durability level]  When written data is forced to disk: write (every write, default), file (once per file),\r\n", false, true, false, false, false);
+        log("                                  batch (once per directory) or atomic (temporary file, forced once & renamed).\r\n", false, true, false, false, false);
+        log("                                  Originals are never deleted before their encrypted / decrypted version is on disk.\r\n", false, true, false, false, false);
+        log("            [--in-place]          Encrypt / decrypt files where they are and rename them (no copy, no shredding pass).\r\n", false, true, false, false, false);
+        log("                                  Every block is journaled in the data directory (" + configuration.getDataDirPath().resolve(InPlaceJournal.JOURNAL_DIR_NAME) + ")\r\n", false, true, false, false, false);
+        log("                                  first, interrupted files are completed on the next run with the same key.\r\n", false, true, false, false, false);
+        log("            [--resume]            Continue a stopped run (same key, mode & buffer size): finished files are skipped, the\r\n", false, true, false, false, false);
+        log("                                  interrupted file continues where it stopped (stream & pipeline engine).\r\n", false, true, false, false, false);
+        log("            [--stream-scan]       Encrypt / decrypt targets while the selection is still being scanned (large trees).\r\n", false, true, false, false, false);
+        log("            [--no-scan-cache]     Probe every target again (the scan cache keeps the classification of unchanged files).\r\n", false, true, false, false, false);
         log("            [-S size]             OTP Key File Size (size = bytes). See --create-keyfile \r\n", false, true, false, false, false);
         log("\r\n", false, true, false, false, false);
         log("Filtering Options:\r\n", false, true, false, false, false);
@@ -597,6 +656,13 @@ public class CLUI implements UI
         log("            [-w \'wildcard\']       File wildcard INCLUDE filter. Uses: \"Globbing Patterns Syntax\".\r\n", false, true, false, false, false);
         log("            [-W \'wildcard\']       File wildcard EXCLUDE filter. Uses: \"Globbing Patterns Syntax\".\r\n", false, true, false, false, false);
         log("            [-r \'regex\']          File regular expression filter. Advanced filename filter!\r\n", false, true, false, false, false);
+        log("            [--include \'pattern\'] File name INCLUDE filter (repeatable). Pattern: wildcard or regex:expression.\r\n", false, true, false, false, false);
+        log("            [--exclude \'pattern\'] File name EXCLUDE filter (repeatable). Pattern: wildcard or regex:expression.\r\n", false, true, false, false, false);
+        log("            [--exclude-dir \'pattern\'] Directory name EXCLUDE filter (repeatable). Its subtree is not scanned.\r\n", false, true, false, false, false);
+        log("            [--min-size size]     Only files of at least size (bytes or K, M, G, T suffix).\r\n", false, true, false, false, false);
+        log("            [--max-size size]     Only files of at most size (bytes or K, M, G, T suffix).\r\n", false, true, false, false, false);
+        log("            [--newer-than date]   Only files modified since date (yyyy-MM-dd or yyyy-MM-ddTHH:mm[:ss]).\r\n", false, true, false, false, false);
+        log("            [--older-than date]   Only files modified before date (yyyy-MM-dd or yyyy-MM-ddTHH:mm[:ss]).\r\n", false, true, false, false, false);
         log("\r\n", false, true, false, false, false);
         log("Parameters:\r\n", false, true, false, false, false);
         log("\r\n", false, true, false, false, false);
@@ -644,6 +710,9 @@ public class CLUI implements UI
         log("            java -cp FinalCrypt.jar rdj/CLUI --encrypt -r '(?!.*\\.bit$)^.*$' -k mykeyfile -t mydir\r\n", false, true, false, false, false);
         log("            java -cp FinalCrypt.jar rdj/CLUI --decrypt -r '(?!.*\\.bit$)^.*$' -k mykeyfile -t mydir\r\n", false, true, false, false, false);
         log("\r\n", false, true, false, false, false);
+        log("            # Encrypt all documents in mydir smaller than 100 MiB, skipping .git and node_modules directories\r\n", false, true, false, false, false);
+        log("            java -cp FinalCrypt.jar rdj/CLUI --encrypt --include '*.{doc,docx,pdf}' --include '*.txt' --exclude-dir .git --exclude-dir node_modules --max-size 100M -k mykeyfile -t mydir\r\n", false, true, false, false, false);
+        log("\r\n", false, true, false, false, false);
 	log("Create OTP Key file:\r\n", false, true, false, false, false);
         log("\r\n", false, true, false, false, false);
         log("            java -cp FinalCrypt.jar rdj.CLUI --create-keyfile -K mykeyfile -S 268435456 # (256 MiB) echo $((1024**2*256))\r\n", false, true, false, false, false);
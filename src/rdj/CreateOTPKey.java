@@ -324,6 +324,8 @@ public class CreateOTPKey extends Application implements Initializable
 	    if ( filesizeInBytes < bufferSize) { bufferSize =  filesizeInBytes.intValue(); }
 
 	    boolean inputEnded = false;
+	    boolean keyWritten = true;
+	    Path keyWritePath = Durability.getWritePath(keyPath); // Temporary key file on Durability.LEVEL_ATOMIC
 	    long writeKeyFileChannelPosition = 0L;
 	    long writeKeyFileChannelTransfered = 0L;
 	    totalTranfered = 0L;
@@ -332,10 +334,9 @@ public class CreateOTPKey extends Application implements Initializable
     //      Write the keyfile to 1st partition
 	    byte[]      randomBytes1 =	    new byte[bufferSize];
 	    byte[]      randomBytes2 =	    new byte[bufferSize];
-	    byte[]      randomBytes3 =	    new byte[bufferSize];
-	    ByteBuffer  randomBuffer1 =	    ByteBuffer.allocate(bufferSize); randomBuffer1.clear();
-	    ByteBuffer  randomBuffer2 =	    ByteBuffer.allocate(bufferSize); randomBuffer2.clear();
-	    ByteBuffer  randomBuffer3 =	    ByteBuffer.allocate(bufferSize); randomBuffer3.clear();
+	    ByteBuffer  randomBuffer1 =	    BufferPool.lease(bufferSize); // Leased once, the last (smaller) block only lowers the limit
+	    ByteBuffer  randomBuffer2 =	    BufferPool.lease(bufferSize);
+	    ByteBuffer  randomBuffer3 =	    BufferPool.lease(bufferSize);
 
 	    updateProgressTask = new TimerTask()
 	    {
@@ -354,33 +355,18 @@ public class CreateOTPKey extends Application implements Initializable
 	    {
 		remainder = (filesizeInBytes - totalTranfered);
 
-		if	    ( remainder >= bufferSize )				
-		{
-		    randomBytes1 =	    new byte[bufferSize];
-		    randomBytes2 =	    new byte[bufferSize];
-		    randomBytes3 =	    new byte[bufferSize];
-		    randomBuffer1 =	    ByteBuffer.allocate(bufferSize); randomBuffer1.clear();
-		    randomBuffer2 =	    ByteBuffer.allocate(bufferSize); randomBuffer2.clear();
-		    randomBuffer3 =	    ByteBuffer.allocate(bufferSize); randomBuffer3.clear();
-		}
-		else if (( remainder > 0 ) && ( remainder < bufferSize ))
-		{
-		    randomBytes1 =	    new byte[remainder.intValue()];
-		    randomBytes2 =	    new byte[remainder.intValue()];
-		    randomBytes3 =	    new byte[remainder.intValue()];
-		    randomBuffer1 =	    ByteBuffer.allocate(remainder.intValue()); randomBuffer1.clear();
-		    randomBuffer2 =	    ByteBuffer.allocate(remainder.intValue()); randomBuffer2.clear();
-		    randomBuffer3 =	    ByteBuffer.allocate(remainder.intValue()); randomBuffer3.clear();
-		}
+		int blockSize = bufferSize;
+		if	    ( remainder >= bufferSize )				{ blockSize = bufferSize; }
+		else if (( remainder > 0 ) && ( remainder < bufferSize ))	{ blockSize = remainder.intValue(); }
 		else							{ inputEnded = true; }
     //          Randomize raw key or write raw key straight to partition
-		random.nextBytes(randomBytes1); randomBuffer1.put(randomBytes1); randomBuffer1.flip();
-		random.nextBytes(randomBytes2); randomBuffer2.put(randomBytes2); randomBuffer2.flip();
+		random.nextBytes(randomBytes1); randomBuffer1.put(randomBytes1, 0, blockSize); randomBuffer1.flip();
+		random.nextBytes(randomBytes2); randomBuffer2.put(randomBytes2, 0, blockSize); randomBuffer2.flip();
 
-		randomBuffer3 = FinalCrypt.encryptBuffer(randomBuffer1, randomBuffer2, false); // Encrypt
+		FinalCrypt.encryptBuffer(randomBuffer1, randomBuffer2, randomBuffer3, false); // Encrypt
 
     //          Write Device
-		try (final SeekableByteChannel writeKeyFileChannel = Files.newByteChannel(keyPath, EnumSet.of(StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.SYNC)))
+		try (final SeekableByteChannel writeKeyFileChannel = Files.newByteChannel(keyWritePath, Durability.getWriteOptions(StandardOpenOption.CREATE, StandardOpenOption.WRITE)))
 		{
 		    writeKeyFileChannel.position(writeKeyFileChannelPosition);
 		    writeKeyFileChannelTransfered = writeKeyFileChannel.write(randomBuffer3); randomBuffer3.rewind();
@@ -390,12 +376,14 @@ public class CreateOTPKey extends Application implements Initializable
 		    writeKeyFileChannelPosition += writeKeyFileChannelTransfered;
 
 		    writeKeyFileChannel.close();
-		} catch (IOException ex) { statusLabel1.setText("Error: " + ex.getMessage()); inputEnded = true; break; }
+		} catch (IOException ex) { statusLabel1.setText("Error: " + ex.getMessage()); inputEnded = true; keyWritten = false; break; }
 		randomBuffer1.clear(); randomBuffer2.clear(); randomBuffer3.clear();
 	    }
+	    BufferPool.release(randomBuffer1); BufferPool.release(randomBuffer2); BufferPool.release(randomBuffer3);
 	    writeKeyFileChannelPosition = 0;                
 	    writeKeyFileChannelTransfered = 0;                
 	    inputEnded = false;
+	    if ( keyWritten ) { try { Durability.commit(keyWritePath, keyPath); } catch (IOException ex) { statusLabel1.setText("Error: " + ex.getMessage()); } }
 
 	    updateProgressTaskTimer.cancel(); updateProgressTaskTimer.purge();
 	    progressBar.setProgress( (double)totalTranfered / filesizeInBytes); // percent needs to become factor in this gui
@@ -35,7 +35,6 @@ import java.util.TimerTask;
 public class DeviceController
 {
     int bufferSize = 1024 * 1024 * 1;
-    static long deviceSize = 0;
     long keySize = 0;
     static long bytesPerSector = 512;
     static UI ui;
@@ -44,14 +43,6 @@ public class DeviceController
     private TimerTask updateProgressTask;
     private Timer updateProgressTaskTimer;
     
-//  DoubleTest vars
-    private static long lastpos = 0;
-    private static long currpos = 1;
-    private static long step = 1;
-    private static long above = 0;
-    private static long below = 1024;
-    private static long cycles = 0;
-    private static boolean finished = false;
     private Calendar	startCalendar;
     private long bytesTotal;
     private long bytesProcessed;
@@ -99,13 +90,14 @@ public class DeviceController
         long writeOutputDeviceChannelTransfered = 0;
         ByteBuffer outputDeviceBuffer = null;
         ui.log("Write " + desc + " Pos (" + getLBAOffSet(bytesPerSector, fcPath.size, lba) + ") ", true, true, true, false, false);
-        try (final SeekableByteChannel writeOutputDeviceChannel = Files.newByteChannel(fcPath.path, EnumSet.of(StandardOpenOption.WRITE, StandardOpenOption.SYNC)))
+        try (final SeekableByteChannel writeOutputDeviceChannel = Files.newByteChannel(fcPath.path, Durability.getWriteOptions(StandardOpenOption.WRITE)))
         {
             outputDeviceBuffer = ByteBuffer.allocate(bytes.length); outputDeviceBuffer.put(bytes); outputDeviceBuffer.flip(); // logBytes(outputDeviceBuffer.array());
 //            guifx.log("Buffer: " + outputDeviceBuffer.capacity());
             writeOutputDeviceChannel.position(getLBAOffSet(bytesPerSector, fcPath.size, lba));
             writeOutputDeviceChannelTransfered = writeOutputDeviceChannel.write(outputDeviceBuffer);
             ui.log("Transfered: " + writeOutputDeviceChannelTransfered + "\r\n", true, true, true, false, false);
+            Durability.force(writeOutputDeviceChannel);
             writeOutputDeviceChannel.close();
         } catch (IOException ex) { ui.log("Error: Device.writeLBA(..): " + ex.getMessage() + "", true, true, true, true, false); }
     }
@@ -117,13 +109,14 @@ public class DeviceController
         long writeOutputDeviceChannelTransfered = 0;
         ByteBuffer outputDeviceBuffer = null;
         ui.log("Wrote " + desc + " Pos(" + pos + ") ", true, true, true, false, false);
-        try (final SeekableByteChannel writeOutputDeviceChannel = Files.newByteChannel(device.path, EnumSet.of(StandardOpenOption.WRITE, StandardOpenOption.SYNC)))
+        try (final SeekableByteChannel writeOutputDeviceChannel = Files.newByteChannel(device.path, Durability.getWriteOptions(StandardOpenOption.WRITE)))
         {
             outputDeviceBuffer = ByteBuffer.allocate(bytes.length); outputDeviceBuffer.put(bytes); outputDeviceBuffer.flip(); // logBytes(outputDeviceBuffer.array());
 //            guifx.log("Buffer: " + outputDeviceBuffer.capacity());
             writeOutputDeviceChannel.position(pos);
             writeOutputDeviceChannelTransfered = writeOutputDeviceChannel.write(outputDeviceBuffer);
             ui.log("Transfered: " + writeOutputDeviceChannelTransfered + "", true, true, true, false, false);
+            Durability.force(writeOutputDeviceChannel);
             writeOutputDeviceChannel.close();
         } catch (IOException ex) { ui.log("Error: Device.writePos(..): " + ex.getMessage() + "\r\n", true, true, true, true, false); }
     }
@@ -133,7 +126,7 @@ public class DeviceController
     {
 	startCalendar = Calendar.getInstance(Locale.ROOT);
 	boolean encryptkey = true;
-        if ( keyFCPath.size < bufferSize)   { bufferSize = (int)keyFCPath.size; if (FinalCrypt.verbose) ui.log("BufferSize is limited to keyfile size: " + GPT.getHumanSize(bufferSize, 1) + " \r\n", true, true, true, false, false); }
+//	The key is copied once (not repeated), so a key smaller than the buffer is just a short last read (the buffer keeps its size)
 //        else                            { log("BufferSize is set to: " + getHumanSize(bufferSize, 1) + " \r\n"); }
         Stats allDataStats = new Stats(); allDataStats.reset();        
         Stat readKeyFileStat1 = new Stat(); readKeyFileStat1.reset();
@@ -158,6 +151,7 @@ public class DeviceController
         byte[]      randomizedBytes =       new byte[bufferSize];
         ByteBuffer  randomizedBuffer =      ByteBuffer.allocate(bufferSize); keyFileBuffer.clear();
         ByteBuffer  outputDeviceBuffer =    ByteBuffer.allocate(bufferSize); outputDeviceBuffer.clear();
+	SecureRandom random = new SecureRandom(); // Seeded once, not per block
 
 //      Setup the Progress TIMER & TASK
 
@@ -203,14 +197,13 @@ public class DeviceController
             } catch (IOException ex) { ui.log("Files.newByteChannel(keyFilePath, EnumSet.of(StandardOpenOption.READ)) " + ex.getMessage() + "\r\n", true, true, true, true, false); }
             
 //          Randomize raw key or write raw key straight to partition
-	    SecureRandom random = new SecureRandom();
 //	    if (encryptkey)	{ random.nextBytes(randomizedBytes); randomizedBuffer.put(randomizedBytes); randomizedBuffer.flip();outputDeviceBuffer = encryptBuffer(keyFileBuffer, randomizedBuffer); }
-	    if (encryptkey)	{ random.nextBytes(randomizedBytes); randomizedBuffer.put(randomizedBytes); randomizedBuffer.flip();outputDeviceBuffer = FinalCrypt.encryptBuffer(keyFileBuffer, randomizedBuffer, false); }
+	    if (encryptkey)	{ random.nextBytes(randomizedBytes); randomizedBuffer.put(randomizedBytes); randomizedBuffer.flip(); FinalCrypt.encryptBuffer(keyFileBuffer, randomizedBuffer, outputDeviceBuffer, false); } // Into the existing buffer
 	    else		{ outputDeviceBuffer.put(keyFileBuffer); outputDeviceBuffer.flip(); }
             
 //          Write Device
             writeKeyFileStat1.setFileStartEpoch();
-            try (final SeekableByteChannel writeOutputDeviceChannel = Files.newByteChannel(targetFCPath.path, EnumSet.of(StandardOpenOption.WRITE, StandardOpenOption.SYNC)))
+            try (final SeekableByteChannel writeOutputDeviceChannel = Files.newByteChannel(targetFCPath.path, Durability.getWriteOptions(StandardOpenOption.WRITE)))
             {
 //              Write keyfile to partition 1
                 writeOutputDeviceChannel.position((getLBAOffSet(bytesPerSector, targetFCPath.size, firstLBA) + writeOutputDeviceChannelPosition));
@@ -257,6 +250,7 @@ public class DeviceController
         writeOutputDeviceChannelPosition = 0;                
         writeOutputDeviceChannelTransfered = 0;                
         inputEnded = false;
+        try { Durability.force(targetFCPath.path); } catch (IOException ex) { ui.log("Error: Durability.force(" + targetFCPath.path.toString() + "): " + ex.getMessage() + "\r\n", true, true, true, true, false); }
 
 //      FILE STATUS        
         ui.log(" - Write: rd(" +  readKeyFileStat1.getFileBytesThroughPut() + ") -> ", true, true, true, false, false);
@@ -375,7 +369,7 @@ public class DeviceController
 
     //          Write Device
 		writeKeyFileStat1.setFileStartEpoch();
-		try (final SeekableByteChannel writeOutputDeviceChannel = Files.newByteChannel(targetFCPath.path, EnumSet.of(StandardOpenOption.WRITE, StandardOpenOption.SYNC)))
+		try (final SeekableByteChannel writeOutputDeviceChannel = Files.newByteChannel(targetFCPath.path, Durability.getWriteOptions(StandardOpenOption.WRITE)))
 		{
     //              Write keyfile to partition 1
 		    writeOutputDeviceChannel.position((getLBAOffSet(bytesPerSector, targetFCPath.size, firstLBA) + writeOutputDeviceChannelPosition));
@@ -392,6 +386,7 @@ public class DeviceController
 	    writeOutputDeviceChannelPosition = 0;                
 	    writeOutputDeviceChannelTransfered = 0;                
 	    inputEnded = false;
+	    try { Durability.force(targetFCPath.path); } catch (IOException ex) { ui.log("Error: Durability.force(" + targetFCPath.path.toString() + "): " + ex.getMessage() + "\r\n", true, true, true, true, false); }
 
     //      FILE STATUS        
 	    ui.log(" - Write: rd(" +  readKeyFileStat1.getFileBytesThroughPut() + ") -> ", true, true, true, false, false);
@@ -428,93 +423,92 @@ public class DeviceController
     }
 
 //  Wrapper method
-    synchronized public static long getDeviceSize(UI ui, Path path, boolean isKey)
+    public static long getDeviceSize(UI ui, Path path, boolean isKey)
     {
-	long size = getDeviceSize2(ui, path, isKey, true); return size; // Customized method (platform independent)
+	long size = getDeviceSize2(ui, path, isKey); return size; // Customized method (platform independent)
     }
 
 //  Get size of device NOT USED!
-    synchronized public static long getDeviceSize1(UI ui, Path path)
+    public static long getDeviceSize1(UI ui, Path path)
     {
         long deviceSize = 0;
         try (final SeekableByteChannel deviceChannel = Files.newByteChannel(path, EnumSet.of(StandardOpenOption.READ))) { deviceSize = deviceChannel.size(); deviceChannel.close(); } catch (IOException ex) { ui.log(ex.getMessage(), true, true, false, false, false); }
         return deviceSize;
     }
 
-    synchronized public static long getDeviceSize2(UI ui, Path path, boolean isKey, boolean firstcall) // OS Independent half or dubbel guess size test (Files.size(..) doesn't work on Apple OSX)
+    public static long getDeviceSize2(UI ui, Path path, boolean isKey) // OS Independent half or dubbel guess size test (Files.size(..) doesn't work on Apple OSX)
     {
 	boolean verbose = false;
-//	deviceSize = 0;
+	long deviceSize = 0;
 	
-	if (firstcall)
-	{
-			lastpos = 0;
-			currpos = 1;
-			step = 1;
-			above = 0;
-			below = 1024;
-			cycles = 0;
-			finished = false;
-	}
 //	    isValidFile(UI ui, Path path, boolean readSize, boolean isKey, boolean symlink, boolean report)
 	if (isValidFile(   ui,      path,            false,         isKey,           false,           true ))
 	{
-	    while (! finished)
+	    SizeGuess sizeGuess = new SizeGuess(); // Search state of this call (concurrent calls for other devices don't share it)
+	    while (! sizeGuess.finished)
 	    {
 		try
 		{
-		    deviceSize = guessDeviceSize(ui, path, verbose);
+		    deviceSize = guessDeviceSize(ui, path, sizeGuess, verbose);
 		}
 		catch (IOException ex)
 		{
 		}
 		finally
 		{
-		    lastpos = Math.abs(lastpos);
-		    currpos = Math.abs(currpos);
-		    step = Math.abs(step);
-
-		    below = currpos;
-		    if (step < 0) {step = 1;}
-		    currpos = above; step = 1;
-		    lastpos = currpos;
-//		    getDeviceSize2(ui, path, isKey, true)
-		    getDeviceSize2(ui,path, isKey, false);
+		    sizeGuess.lastpos = Math.abs(sizeGuess.lastpos);
+		    sizeGuess.currpos = Math.abs(sizeGuess.currpos);
+		    sizeGuess.step = Math.abs(sizeGuess.step);
+
+		    sizeGuess.below = sizeGuess.currpos;
+		    if (sizeGuess.step < 0) {sizeGuess.step = 1;}
+		    sizeGuess.currpos = sizeGuess.above; sizeGuess.step = 1;
+		    sizeGuess.lastpos = sizeGuess.currpos;
 		}
 	    }
 	}
-	else
-	{
-	    return deviceSize; 
-	}
 	return deviceSize;
     }
     
-    synchronized private static long guessDeviceSize(UI ui, Path path, boolean verbose) throws IOException
+    private static long guessDeviceSize(UI ui, Path path, SizeGuess sizeGuess, boolean verbose) throws IOException
     {
         if (verbose) ui.log(String.format("%-20s %-20s %-20s %-20s %-20s %-20s \r\n", "LastPoss     ", "CurrPoss     ", "Step    ", "Above     ", "Below    ", "Cycles     "), true, true, true, false, false);
         
-        label: while (! finished)
+        label: while (! sizeGuess.finished)
         {
-            if (verbose) ui.log(String.format("%-20d %-20d %-20d %-20d %-20d %-20d \r\n", lastpos, currpos, step, above, below, cycles), true, true, true, false, false);
+            if (verbose) ui.log(String.format("%-20d %-20d %-20d %-20d %-20d %-20d \r\n", sizeGuess.lastpos, sizeGuess.currpos, sizeGuess.step, sizeGuess.above, sizeGuess.below, sizeGuess.cycles), true, true, true, false, false);
             
-            final SeekableByteChannel deviceChannel = Files.newByteChannel(path, EnumSet.of(StandardOpenOption.READ));
-            deviceChannel.position(currpos);
-            ByteBuffer bb = ByteBuffer.allocate(1); bb.clear();
-            int transfered = 0; transfered = deviceChannel.read(bb);
+            int transfered = 0;
+            try (final SeekableByteChannel deviceChannel = Files.newByteChannel(path, EnumSet.of(StandardOpenOption.READ)))
+            {
+                deviceChannel.position(sizeGuess.currpos);
+                ByteBuffer bb = ByteBuffer.allocate(1); bb.clear();
+                transfered = deviceChannel.read(bb);
+            }
             if ( transfered < 1)
             {
-                if ( (lastpos == below ) && (currpos == below ) && (above == (below - 1) ) ) { finished = true; }
-                below = currpos; currpos -= (step / 2); step = 1;
+                if ( (sizeGuess.lastpos == sizeGuess.below ) && (sizeGuess.currpos == sizeGuess.below ) && (sizeGuess.above == (sizeGuess.below - 1) ) ) { sizeGuess.finished = true; }
+                sizeGuess.below = sizeGuess.currpos; sizeGuess.currpos -= (sizeGuess.step / 2); sizeGuess.step = 1;
             }
-            else        { above = currpos; currpos += step; step += step;}
-            deviceChannel.close();
-            lastpos = currpos;
-            cycles++;
+            else        { sizeGuess.above = sizeGuess.currpos; sizeGuess.currpos += sizeGuess.step; sizeGuess.step += sizeGuess.step;}
+            sizeGuess.lastpos = sizeGuess.currpos;
+            sizeGuess.cycles++;
         } 
-        return below;
+        return sizeGuess.below;
     }    
 
+//  DoubleTest vars of one getDeviceSize2(..) call
+    private static class SizeGuess
+    {
+        long lastpos = 0;
+        long currpos = 1;
+        long step = 1;
+        long above = 0;
+        long below = 1024;
+        long cycles = 0;
+        boolean finished = false;
+    }
+
     private void halveTest(UI ui)
     {
         long deviceSize = 0;
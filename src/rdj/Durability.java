@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2017 Ron de Jong (ronuitzaandam@gmail.com).
+ *
+ * This is free software; you can redistribute it
+ * under the terms of the Creative Commons License
+ * Creative Commons License: (CC BY-NC-ND 4.0) as published by
+ * https://creativecommons.org/licenses/by-nc-nd/4.0/ ; either
+ * version 4.0 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Creative Commons Attribution-NonCommercial-NoDerivatives 4.0
+ * International Public License for more details.
+ *
+ * You should have received a copy of the Creative Commons
+ * Public License License along with this software;
+ */
+
+package rdj;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumSet;
+
+/*
+    Durability policy for everything FinalCrypt writes (encrypted / decrypted files, shredding, key files & key devices).
+
+    LEVEL_WRITE	    StandardOpenOption.SYNC on every write (original behaviour).
+    LEVEL_FILE	    No SYNC, one force() per file before the original is shredded.
+    LEVEL_BATCH	    No SYNC, one force() per batch (directory) before the originals of that batch are shredded.
+    LEVEL_ATOMIC    No SYNC, write to a temporary file, force() once and rename it atomically to its final name.
+
+    Whatever the level, an original is only shredded and deleted after its destination has been made durable.
+    Devices can't be renamed, so LEVEL_BATCH & LEVEL_ATOMIC force a device once like LEVEL_FILE.
+*/
+
+public class Durability
+{
+    public static final    int	    LEVEL_WRITE =	0;
+    public static final    int	    LEVEL_FILE =	1;
+    public static final    int	    LEVEL_BATCH =	2;
+    public static final    int	    LEVEL_ATOMIC =	3;
+    public static final String[]   LEVEL_NAME_ARRAY = new String[] { "write","file","batch","atomic" };
+
+    private static final   String   TEMP_EXTENSION =	".fctmp";
+    private static	    int	    level =		LEVEL_WRITE;
+
+    public static int getLevel()				{ return level; }
+    public static String getLevelString()			{ return LEVEL_NAME_ARRAY[level]; }
+    public static void setLevel(int val)			{ level = val; }
+    public static int getLevel(String name)			{ for (int x = 0; x < LEVEL_NAME_ARRAY.length; x++) { if (LEVEL_NAME_ARRAY[x].equals(name.toLowerCase())) { return x; } } return -1; }
+
+//  Open options for writing, SYNC is only added on LEVEL_WRITE
+    public static EnumSet<StandardOpenOption> getWriteOptions(StandardOpenOption first, StandardOpenOption... rest)
+    {
+	EnumSet<StandardOpenOption> options = EnumSet.of(first, rest);
+	if ( level == LEVEL_WRITE ) { options.add(StandardOpenOption.SYNC); }
+	return options;
+    }
+
+//  The path to write to before commit(..). LEVEL_ATOMIC writes next to the final path and renames on commit
+    public static Path getWritePath(Path path)
+    {
+	if ( level == LEVEL_ATOMIC )	{ return path.resolveSibling(path.getFileName().toString() + TEMP_EXTENSION); }
+	else				{ return path; }
+    }
+
+//  Makes the written file durable under its final name. Must succeed before the original may be shredded
+    public static void commit(Path writePath, Path path) throws IOException
+    {
+	if (( level == LEVEL_WRITE ) || ( ! Files.exists(writePath) )) { return; } // Nothing written (e.g. decrypting an empty file)
+
+	force(writePath);
+	if ( ! writePath.equals(path) ) { Files.move(writePath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING); }
+	forceDirectory(path.toAbsolutePath().getParent());
+    }
+
+//  One force() on an already open channel (LEVEL_WRITE channels are opened with SYNC)
+    public static void force(SeekableByteChannel channel) throws IOException
+    {
+	if (( level != LEVEL_WRITE ) && ( channel instanceof FileChannel )) { ((FileChannel)channel).force(true); }
+    }
+
+//  One force() on a file or device written by channels that are already closed
+    public static void force(Path path) throws IOException
+    {
+	if ( level == LEVEL_WRITE ) { return; }
+	try (final FileChannel channel = FileChannel.open(path, EnumSet.of(StandardOpenOption.WRITE))) { channel.force(true); }
+    }
+
+//  Makes new directory entries (created & renamed files) durable. Not supported on every platform (Windows), so best effort
+    public static void forceDirectory(Path dirPath)
+    {
+	if (( level == LEVEL_WRITE ) || ( dirPath == null )) { return; }
+	try (final FileChannel channel = FileChannel.open(dirPath, EnumSet.of(StandardOpenOption.READ))) { channel.force(true); } catch (IOException ex) { }
+    }
+}
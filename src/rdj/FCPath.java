@@ -34,7 +34,31 @@ public class FCPath
     public static final    int	    DEVICE_PROTECTED =	7;
     
     public static final String[]   TYPE_DESCRIPTION_ARRAY = new String[] { "Invalid","File","Directory","Symlink","Device","Partition","Device Invalid","Device Protected" };
-    
+
+//  Packed flag word (FCPathList columns): type in the low bits, one bit per state
+    public static final    int	    TYPE_MASK =		0xF;
+    public static final    int	    EXIST =		1 << 4;
+    public static final    int	    READABLE =		1 << 5;
+    public static final    int	    WRITABLE =		1 << 6;
+    public static final    int	    HIDDEN =		1 << 7;
+    public static final    int	    MATCH_KEY =		1 << 8;
+    public static final    int	    VALID_PATH =	1 << 9;
+    public static final    int	    VALID_FILE =	1 << 10;
+    public static final    int	    VALID_DEVICE_PROTECTED = 1 << 11;
+    public static final    int	    VALID_DEVICE =	1 << 12;
+    public static final    int	    VALID_PARTITION =	1 << 13;
+    public static final    int	    KEY =		1 << 14;
+    public static final    int	    VALID_KEY =		1 << 15;
+    public static final    int	    DECRYPTED =		1 << 16;
+    public static final    int	    ENCRYPTABLE =	1 << 17;
+    public static final    int	    NEW_ENCRYPTED =	1 << 18;
+    public static final    int	    UNENCRYPTABLE =	1 << 19;
+    public static final    int	    ENCRYPTED =		1 << 20;
+    public static final    int	    DECRYPTABLE =	1 << 21;
+    public static final    int	    NEW_DECRYPTED =	1 << 22;
+    public static final    int	    UNDECRYPTABLE =	1 << 23;
+    public static final    int	    PENDING =		1 << 24;
+
     public	    Path    path;
 
     public	    boolean exist =		    false;
@@ -69,8 +93,29 @@ public class FCPath
     public	    boolean isDecryptable =	    false;    
     public	    boolean isNewDecrypted =	    false;
     public	    boolean isUnDecryptable =	    false;    
+
+//  Lazy classification (FCPathWalker.setLazy(..)): stat facts only, the token probe & key authentication are pending
+
+    public	    boolean isPending =		    false;
+    public	    long    tokenHash =		    0; // Of the encrypted token (0 = no token or not probed, see KeyTokenCache.getTokenHash)
+
+//  Row of the FCPathList this FCPath is a view of (FCPathList.updateStat(..) writes the new state back to it)
+
+    public	    FCPathList<?> list =	    null;
+    public	    int	    index =		    -1;
     
     public FCPath(Path path)   { this.path = path; }
+
+//  FCPath of a packed flag word (FCPathList view)
+    public FCPath(Path path, long size, int flags)
+    {
+	this.path = path; this.size = size; this.type = flags & TYPE_MASK;
+	this.exist = has(flags, EXIST); this.isReadable = has(flags, READABLE); this.isWritable = has(flags, WRITABLE); this.isHidden = has(flags, HIDDEN); this.matchKey = has(flags, MATCH_KEY);
+	this.isValidPath = has(flags, VALID_PATH); this.isValidFile = has(flags, VALID_FILE); this.isValidDeviceProtected = has(flags, VALID_DEVICE_PROTECTED); this.isValidDevice = has(flags, VALID_DEVICE); this.isValidPartition = has(flags, VALID_PARTITION); this.isKey = has(flags, KEY); this.isValidKey = has(flags, VALID_KEY);
+	this.isDecrypted = has(flags, DECRYPTED); this.isEncryptable = has(flags, ENCRYPTABLE); this.isNewEncrypted = has(flags, NEW_ENCRYPTED); this.isUnEncryptable = has(flags, UNENCRYPTABLE);
+	this.isEncrypted = has(flags, ENCRYPTED); this.isDecryptable = has(flags, DECRYPTABLE); this.isNewDecrypted = has(flags, NEW_DECRYPTED); this.isUnDecryptable = has(flags, UNDECRYPTABLE);
+	this.isPending = has(flags, PENDING);
+    }
     
     public FCPath
     (
@@ -96,11 +141,29 @@ public class FCPath
 	newFCPath.isDecrypted = fcPath.isDecrypted; newFCPath.isEncryptable = fcPath.isEncryptable; newFCPath.isNewEncrypted = fcPath.isNewEncrypted; newFCPath.isUnEncryptable = fcPath.isUnEncryptable; 
 //	newFCPath.hasFCToken = fcPath.hasFCToken; newFCPath.isEncrypted = fcPath.isEncrypted; newFCPath.isAuthenticated = fcPath.isAuthenticated; newFCPath.isDecryptable = fcPath.isDecryptable; newFCPath.isNewDecrypted = fcPath.isNewDecrypted; newFCPath.isUnDecryptable = fcPath.isUnDecryptable; 
 	newFCPath.isEncrypted = fcPath.isEncrypted; newFCPath.isDecryptable = fcPath.isDecryptable; newFCPath.isNewDecrypted = fcPath.isNewDecrypted; newFCPath.isUnDecryptable = fcPath.isUnDecryptable; 
+	newFCPath.isPending = fcPath.isPending; newFCPath.tokenHash = fcPath.tokenHash;
+	newFCPath.list = fcPath.list; newFCPath.index = fcPath.index;
 	return newFCPath;
     }
     
 //    public static String getKeySelectedDescription()		{ return FCPath.ITEMSELECTDESCRIPTION[type]; }	
     public static String getTypeString(int type) { return FCPath.TYPE_DESCRIPTION_ARRAY[type]; }
+
+//  Packed flag word of this FCPath (see FCPath(Path path, long size, int flags))
+    public int getFlags()
+    {
+	int flags = type & TYPE_MASK;
+	if ( exist )			{ flags |= EXIST; }		if ( isReadable )	{ flags |= READABLE; }		if ( isWritable )	{ flags |= WRITABLE; }
+	if ( isHidden )			{ flags |= HIDDEN; }		if ( matchKey )		{ flags |= MATCH_KEY; }		if ( isValidPath )	{ flags |= VALID_PATH; }
+	if ( isValidFile )		{ flags |= VALID_FILE; }	if ( isValidDeviceProtected ) { flags |= VALID_DEVICE_PROTECTED; } if ( isValidDevice ) { flags |= VALID_DEVICE; }
+	if ( isValidPartition )		{ flags |= VALID_PARTITION; }	if ( isKey )		{ flags |= KEY; }		if ( isValidKey )	{ flags |= VALID_KEY; }
+	if ( isDecrypted )		{ flags |= DECRYPTED; }		if ( isEncryptable )	{ flags |= ENCRYPTABLE; }	if ( isNewEncrypted )	{ flags |= NEW_ENCRYPTED; }
+	if ( isUnEncryptable )		{ flags |= UNENCRYPTABLE; }	if ( isEncrypted )	{ flags |= ENCRYPTED; }		if ( isDecryptable )	{ flags |= DECRYPTABLE; }
+	if ( isNewDecrypted )		{ flags |= NEW_DECRYPTED; }	if ( isUnDecryptable )	{ flags |= UNDECRYPTABLE; }	if ( isPending )	{ flags |= PENDING; }
+	return flags;
+    }
+
+    public static boolean has(int flags, int flag) { return ( (flags & flag) != 0 ); }
     
     public String getString() {return Validate.getSting(this); }
 
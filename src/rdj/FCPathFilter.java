@@ -0,0 +1,181 @@
+/*
+ * Copyright © 2017 Ron de Jong (ronuitzaandam@gmail.com).
+ *
+ * This is free software; you can redistribute it
+ * under the terms of the Creative Commons License
+ * Creative Commons License: (CC BY-NC-ND 4.0) as published by
+ * https://creativecommons.org/licenses/by-nc-nd/4.0/ ; either
+ * version 4.0 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Creative Commons Attribution-NonCommercial-NoDerivatives 4.0
+ * International Public License for more details.
+ *
+ * You should have received a copy of the Creative Commons
+ * Public License License along with this software;
+ */
+
+package rdj;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/*
+    Target filter of a scan (FCPathWalker, MySimpleFCFileVisitor): file name include & exclude patterns, directory name excludes and
+    size & modification time bounds.
+
+    pattern	"glob:wildcard" (default without a prefix) or "regex:expression", matched on the file (or directory) name like
+		FileSystems.getDefault().getPathMatcher(..) (case insensitive on Windows)
+
+    The patterns of a kind are compiled into one regular expression (an alternation), so every name is matched once per kind
+    however many patterns were given. A file is a target when it matches an include (or there are none), no exclude and the
+    bounds. A directory matching a directory exclude is not walked (its subtree is pruned, nothing below it is listed or stat'ed).
+    A filter is built before the scan and only read while scanning (concurrently by the walk tasks).
+*/
+
+public class FCPathFilter
+{
+    public static final    String   GLOB =		"glob:";
+    public static final    String   REGEX =		"regex:";
+    private static final   int	    FLAGS =		( File.separatorChar == '\\' ) ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0; // Like the PathMatcher of the platform
+
+    private final ArrayList<String> includeList = new ArrayList<>();
+    private final ArrayList<String> excludeList = new ArrayList<>();
+    private final ArrayList<String> excludeDirList = new ArrayList<>();
+    private Pattern includePattern = null; // null = every name
+    private Pattern excludePattern = null; // null = no name
+    private Pattern excludeDirPattern = null;
+    private long minSize = -1; // -1 = no bound
+    private long maxSize = -1;
+    private long newerThan = -1; // ms since epoch
+    private long olderThan = -1;
+
+    public FCPathFilter() { }
+
+//  Filter of the single pattern of -w / -W / -r (CLUI) & the file chooser filter (GUIFX): negatePattern makes it an exclude
+    public FCPathFilter(String pattern, boolean negatePattern) { if ( negatePattern ) { addExclude(pattern); } else { addInclude(pattern); } }
+
+    public void addInclude(String pattern)	{ includePattern = add(includeList, pattern); if ( isEveryName(pattern) ) { includePattern = null; } } // "glob:*" (default) matches every name
+    public void addExclude(String pattern)	{ excludePattern = add(excludeList, pattern); }
+    public void addExcludeDir(String pattern)	{ excludeDirPattern = add(excludeDirList, pattern); }
+
+    public void setMinSize(long minSize)	{ this.minSize = minSize; }
+    public void setMaxSize(long maxSize)	{ this.maxSize = maxSize; }
+    public void setNewerThan(long newerThan)	{ this.newerThan = newerThan; }
+    public void setOlderThan(long olderThan)	{ this.olderThan = olderThan; }
+
+//  A file to classify: name patterns first, the bounds when the attributes are known (failed paths are always classified)
+    public boolean matches(Path path, BasicFileAttributes attributes)
+    {
+	if ( path.getFileName() == null ) { return false; }
+	String name = path.getFileName().toString();
+	if (( includePattern != null ) && ( ! includePattern.matcher(name).matches() )) { return false; }
+	if (( excludePattern != null ) && ( excludePattern.matcher(name).matches() ))	{ return false; }
+	if ( attributes == null ) { return true; }
+	if (( minSize != -1 ) && ( attributes.size() < minSize ))			{ return false; }
+	if (( maxSize != -1 ) && ( attributes.size() > maxSize ))			{ return false; }
+	long modifiedTime = attributes.lastModifiedTime().toMillis();
+	if (( newerThan != -1 ) && ( modifiedTime < newerThan ))			{ return false; }
+	if (( olderThan != -1 ) && ( modifiedTime >= olderThan ))			{ return false; }
+	return true;
+    }
+
+//  A directory not to walk (the name alone decides, so the subtree is skipped unseen)
+    public boolean isExcludedDir(Path path) { return ( excludeDirPattern != null ) && ( path.getFileName() != null ) && ( excludeDirPattern.matcher(path.getFileName().toString()).matches() ); }
+
+//  Rules of this filter (FCPathWalker only reuses subtrees scanned with the same ones)
+    @Override public String toString()
+    {
+	return "include " + includeList + " exclude " + excludeList + " exclude-dir " + excludeDirList + " size " + minSize + ".." + maxSize + " modified " + newerThan + ".." + olderThan;
+    }
+
+//  Size in bytes with an optional K, M, G or T (1024 based) suffix: 100K
+    public static long getSize(String size)
+    {
+	String number = size.trim().toUpperCase(); long factor = 1; int unit = "KMGT".indexOf(number.isEmpty() ? ' ' : number.charAt(number.length() - 1));
+	if ( unit != -1 ) { factor = 1L << (10 * (unit + 1)); number = number.substring(0, number.length() - 1); }
+	try { long value = Long.parseLong(number); if (( value < 0 ) || ( value > Long.MAX_VALUE / factor )) { throw new IllegalArgumentException("Invalid size: " + size); } return value * factor; }
+	catch (NumberFormatException ex) { throw new IllegalArgumentException("Invalid size: " + size); }
+    }
+
+//  Local date (yyyy-MM-dd) or date & time (yyyy-MM-ddTHH:mm[:ss]) in ms since epoch
+    public static long getTime(String time)
+    {
+	try
+	{
+	    if ( time.contains("T") )	{ return LocalDateTime.parse(time).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(); }
+	    else			{ return LocalDate.parse(time).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli(); }
+	}
+	catch (DateTimeParseException ex) { throw new IllegalArgumentException("Invalid date: " + time); }
+    }
+
+//  Adds the pattern to its kind and compiles the kind again (one alternation)
+    private static Pattern add(ArrayList<String> patternList, String pattern)
+    {
+	Pattern.compile(getRegex(pattern), FLAGS); // An invalid pattern is reported on its own
+	patternList.add(pattern);
+	StringBuilder regex = new StringBuilder();
+	for (String listPattern : patternList) { if ( regex.length() > 0 ) { regex.append('|'); } regex.append("(?:").append(getRegex(listPattern)).append(')'); }
+	return Pattern.compile(regex.toString(), FLAGS);
+    }
+
+    private static boolean isEveryName(String pattern) { String regex = getRegex(pattern); return ( regex.equals("[^/]*") ) || ( regex.equals(".*") ); }
+
+    private static String getRegex(String pattern)
+    {
+	if	( pattern.startsWith(REGEX) )	{ return pattern.substring(REGEX.length()); }
+	else if ( pattern.startsWith(GLOB) )	{ return getGlobRegex(pattern.substring(GLOB.length())); }
+	else					{ return getGlobRegex(pattern); }
+    }
+
+//  Regular expression of a glob (the syntax of FileSystem.getPathMatcher(..): * ** ? [a-z] [!a-z] {a,b} and \ escapes)
+    private static String getGlobRegex(String glob)
+    {
+	StringBuilder regex = new StringBuilder(); boolean inGroup = false;
+	for (int index = 0; index < glob.length(); index++)
+	{
+	    char character = glob.charAt(index);
+	    switch (character)
+	    {
+		case '\\':  if ( index + 1 == glob.length() ) { throw new PatternSyntaxException("No character to escape", glob, index); } appendLiteral(regex, glob.charAt(++index)); break;
+		case '*':   if (( index + 1 < glob.length() ) && ( glob.charAt(index + 1) == '*' )) { regex.append(".*"); index++; } else { regex.append("[^/]*"); } break;
+		case '?':   regex.append("[^/]"); break;
+		case '{':   if ( inGroup ) { throw new PatternSyntaxException("Cannot nest groups", glob, index); } regex.append("(?:"); inGroup = true; break;
+		case '}':   if ( inGroup ) { regex.append(')'); inGroup = false; } else { regex.append("\\}"); } break;
+		case ',':   if ( inGroup ) { regex.append('|'); } else { regex.append(','); } break;
+		case '[':   index = appendClass(regex, glob, index); break;
+		default:    appendLiteral(regex, character);
+	    }
+	}
+	if ( inGroup ) { throw new PatternSyntaxException("Missing '}'", glob, glob.length() - 1); }
+	return regex.toString();
+    }
+
+//  Bracket expression at index ([!..] negates), returns the index of its ']'
+    private static int appendClass(StringBuilder regex, String glob, int index)
+    {
+	regex.append('['); index++;
+	if (( index < glob.length() ) && ( glob.charAt(index) == '!' )) { regex.append('^'); index++; }
+	else if (( index < glob.length() ) && ( glob.charAt(index) == '^' )) { regex.append("\\^"); index++; }
+	for (; index < glob.length(); index++)
+	{
+	    char character = glob.charAt(index);
+	    if	    ( character == ']' )				    { regex.append(']'); return index; }
+	    else if (( character == '\\' ) || ( character == '[' ) || ( character == '&' )) { regex.append('\\').append(character); }
+	    else							    { regex.append(character); }
+	}
+	throw new PatternSyntaxException("Missing ']'", glob, glob.length() - 1);
+    }
+
+    private static void appendLiteral(StringBuilder regex, char character) { if ( "\\^$.|?*+()[]{}".indexOf(character) != -1 ) { regex.append('\\'); } regex.append(character); }
+}
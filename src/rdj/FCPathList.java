@@ -18,11 +18,70 @@
  */
 package rdj;
 
+import java.nio.file.Path;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.RandomAccess;
+
+/*
+    Target list stored in columns (struct of arrays) instead of one FCPath object (and one full Path) per target.
+
+    sizes	size per target
+    flags	type & states per target (FCPath packed flag word)
+    tokenHashes	token hash per target (FCPath.tokenHash: authentication against another key without a read)
+    parents	parent directory per target (index in parentList, every directory is stored once)
+    names	file name per target (null = the parent entry is the whole path)
+
+    get(..) and iteration hand out a new FCPath view per element: a copy, changing it doesn't change the list (set(..) does).
+
+    State views (getView(..)): a bitmap of the rows per common state (encryptable, decryptable, devices ..) with their count &
+    size, kept up to date when rows are added or changed (add, set, updateStat). A view shares the bitmap (copied on the next
+    change) instead of copying the targets like CLUI.filter(..) and is the same object until its state changes. Its stats are
+    total and the counters of its state.
+*/
 
 //public class FCPathList extends ArrayList<FCPath>
-public class FCPathList<E> extends ArrayList<E>
+public class FCPathList<E> extends AbstractList<E> implements RandomAccess
 {
+    private static final   int	    CAPACITY_MIN =	16;
+
+    private	    long[]	sizes =		    new long[CAPACITY_MIN];
+    private	    int[]	flags =		    new int[CAPACITY_MIN];
+    private	    long[]	tokenHashes =	    new long[CAPACITY_MIN];
+    private	    int[]	parents =	    new int[CAPACITY_MIN];
+    private	    String[]	names =		    new String[CAPACITY_MIN];
+    private	    int		elements =	    0;
+    private final   ArrayList<Path> parentList =	    new ArrayList<>();
+    private final   HashMap<Path, Integer> parentMap = new HashMap<>();
+
+//  State views: rows with (flags & VIEW_MASKS[view]) == VIEW_VALUES[view]
+    public static final    int	    DECRYPTED_VIEW =	    0;
+    public static final    int	    ENCRYPTABLE_VIEW =	    1;
+    public static final    int	    NEW_ENCRYPTED_VIEW =    2;
+    public static final    int	    ENCRYPTED_VIEW =	    3;
+    public static final    int	    DECRYPTABLE_VIEW =	    4;
+    public static final    int	    NEW_DECRYPTED_VIEW =    5;
+    public static final    int	    HIDDEN_VIEW =	    6;
+    public static final    int	    UNREADABLE_VIEW =	    7;
+    public static final    int	    UNWRITABLE_VIEW =	    8;
+    public static final    int	    SYMLINK_VIEW =	    9;
+    public static final    int	    DEVICE_VIEW =	    10;
+    public static final    int	    DEVICE_PROTECTED_VIEW = 11;
+    public static final    int	    INVALID_VIEW =	    12;
+    public static final    int	    PENDING_VIEW =	    13;
+
+    private static final   int[]    VIEW_MASKS =	    new int[] { FCPath.DECRYPTED, FCPath.ENCRYPTABLE, FCPath.NEW_ENCRYPTED, FCPath.ENCRYPTED, FCPath.DECRYPTABLE, FCPath.NEW_DECRYPTED, FCPath.HIDDEN, FCPath.TYPE_MASK | FCPath.READABLE, FCPath.TYPE_MASK | FCPath.WRITABLE, FCPath.TYPE_MASK, FCPath.TYPE_MASK, FCPath.TYPE_MASK, FCPath.TYPE_MASK, FCPath.PENDING };
+    private static final   int[]    VIEW_VALUES =	    new int[] { FCPath.DECRYPTED, FCPath.ENCRYPTABLE, FCPath.NEW_ENCRYPTED, FCPath.ENCRYPTED, FCPath.DECRYPTABLE, FCPath.NEW_DECRYPTED, FCPath.HIDDEN, FCPath.FILE, FCPath.FILE, FCPath.SYMLINK, FCPath.DEVICE, FCPath.DEVICE_PROTECTED, FCPath.INVALID, FCPath.PENDING };
+
+    private	    BitSet[]	viewRows =	    new BitSet[VIEW_MASKS.length];
+    private	    long[]	viewCounts =	    new long[VIEW_MASKS.length];
+    private	    long[]	viewSizes =	    new long[VIEW_MASKS.length];
+    private	    boolean[]	viewShared =	    new boolean[VIEW_MASKS.length]; // viewRows[view] belongs to a handed out view (copy before changing)
+    private	    View<E>[]	views;
+
     public	    long total =		    0;
     public	    long unexisting =		    0;
     public	    long existing =		    0;
@@ -73,19 +132,119 @@ public class FCPathList<E> extends ArrayList<E>
     public	    long newDecryptedFiles =	    0; public	    long newDecryptedFilesSize =	0;
     public	    long decryptRemainingFiles =    0; public	    long decryptRemainingFilesSize =	0;
     public	    long unDecryptableFiles =	    0; public	    long unDecryptableFilesSize =	0;
+
+// Pending Files (lazy classification)
+
+    public	    long pendingFiles =		    0; public	    long pendingFilesSize =		0;
     
     public FCPathList() { clear(); clearStats(); }
+
+    private FCPathList(boolean view) { } // View: no rows of its own
     
 //    @Override public void clear() { clearStats(); }
     
-    @Override public boolean add(E e)
+    @Override synchronized public boolean add(E e)
     {
-	boolean result = super.add(e);
-	if ( result ) { addStat((FCPath) e); }
-	return result;
+	addRow((FCPath) e); addStat((FCPath) e);
+	return true;
     }
     
-    public void addStat(FCPath fcPath)
+//  Adds an element whose stats were added already with addStat(..) (FCPathWalker: stats while scanning, elements in walk order)
+    synchronized public boolean addCounted(E e) { addRow((FCPath) e); return true; }
+
+    @Override public int size() { return elements; }
+
+    @SuppressWarnings("unchecked")
+    @Override synchronized public E get(int index) { checkIndex(index); FCPath fcPath = new FCPath(getPath(index), sizes[index], flags[index]); fcPath.tokenHash = tokenHashes[index]; fcPath.list = this; fcPath.index = index; return (E) fcPath; }
+
+    @Override synchronized public E set(int index, E e) { E oldE = get(index); setRow(index, (FCPath) e, false); return oldE; }
+
+    @Override synchronized public E remove(int index)
+    {
+	E oldE = get(index); int moved = elements - index - 1;
+	System.arraycopy(sizes, index + 1, sizes, index, moved); System.arraycopy(flags, index + 1, flags, index, moved); System.arraycopy(tokenHashes, index + 1, tokenHashes, index, moved);
+	System.arraycopy(parents, index + 1, parents, index, moved); System.arraycopy(names, index + 1, names, index, moved);
+	elements--; names[elements] = null; modCount++;
+	clearViews(); for (int row = 0; row < elements; row++) { addViewRow(row, flags[row], sizes[row]); } // Rows moved
+	return oldE;
+    }
+
+    @Override synchronized public void clear()
+    {
+	sizes = new long[CAPACITY_MIN]; flags = new int[CAPACITY_MIN]; tokenHashes = new long[CAPACITY_MIN]; parents = new int[CAPACITY_MIN]; names = new String[CAPACITY_MIN];
+	elements = 0; parentList.clear(); parentMap.clear(); modCount++;
+	clearViews();
+    }
+
+//  Columns of one element (no view)
+    synchronized public Path getPath(int index)	{ checkIndex(index); if ( parents[index] == -1 ) { return null; } else if ( names[index] == null ) { return parentList.get(parents[index]); } else { return parentList.get(parents[index]).resolve(names[index]); } }
+    synchronized public long getSize(int index)	{ checkIndex(index); return sizes[index]; }
+    synchronized public int getFlags(int index)	{ checkIndex(index); return flags[index]; }
+
+//  Targets in a state (DECRYPTED_VIEW ..): O(1), the same view until rows of that state are added or changed
+    synchronized public FCPathList<E> getView(int view)
+    {
+	if ( views[view] == null ) { views[view] = new View<>(this, view, viewRows[view], viewCounts[view], viewSizes[view]); viewShared[view] = true; }
+	return views[view];
+    }
+
+    @SuppressWarnings("unchecked")
+    private void clearViews()
+    {
+	views = (View<E>[]) new View<?>[VIEW_MASKS.length];
+	for (int view = 0; view < VIEW_MASKS.length; view++) { viewRows[view] = new BitSet(); viewCounts[view] = 0; viewSizes[view] = 0; viewShared[view] = false; }
+    }
+
+    public static boolean isInView(int view, int flags) { return ( (flags & VIEW_MASKS[view]) == VIEW_VALUES[view] ); }
+
+    private void addViewRow(int index, int flags, long size)
+    {
+	for (int view = 0; view < VIEW_MASKS.length; view++) { if ( isInView(view, flags) ) { setViewRow(view, index, true); viewCounts[view]++; viewSizes[view] += size; } }
+    }
+
+    private void removeViewRow(int index, int flags, long size)
+    {
+	for (int view = 0; view < VIEW_MASKS.length; view++) { if ( isInView(view, flags) ) { setViewRow(view, index, false); viewCounts[view]--; viewSizes[view] -= size; } }
+    }
+
+    private void setViewRow(int view, int index, boolean value)
+    {
+	if ( viewShared[view] ) { viewRows[view] = (BitSet) viewRows[view].clone(); viewShared[view] = false; } // Handed out views keep their rows
+	viewRows[view].set(index, value); views[view] = null;
+    }
+
+    private void addRow(FCPath fcPath)
+    {
+	if ( elements == sizes.length )
+	{
+	    int capacity = sizes.length * 2;
+	    sizes = Arrays.copyOf(sizes, capacity); flags = Arrays.copyOf(flags, capacity); tokenHashes = Arrays.copyOf(tokenHashes, capacity); parents = Arrays.copyOf(parents, capacity); names = Arrays.copyOf(names, capacity);
+	}
+	setRow(elements, fcPath, true); elements++; modCount++;
+    }
+
+    private void setRow(int index, FCPath fcPath, boolean newRow)
+    {
+	int newFlags = fcPath.getFlags();
+	if ( newRow )								    { addViewRow(index, newFlags, fcPath.size); }
+	else if (( newFlags != flags[index] ) || ( fcPath.size != sizes[index] ))   { removeViewRow(index, flags[index], sizes[index]); addViewRow(index, newFlags, fcPath.size); }
+	sizes[index] = fcPath.size; flags[index] = newFlags; tokenHashes[index] = fcPath.tokenHash;
+	Path parent = null; Path name = null; if ( fcPath.path != null ) { parent = fcPath.path.getParent(); name = fcPath.path.getFileName(); }
+	if	(( parent != null ) && ( name != null ))    { parents[index] = getParentIndex(parent); names[index] = name.toString(); }
+	else if ( fcPath.path != null )			    { parents[index] = getParentIndex(fcPath.path); names[index] = null; } // Root or single name path
+	else						    { parents[index] = -1; names[index] = null; }
+    }
+
+    private int getParentIndex(Path parent)
+    {
+	Integer parentIndex = parentMap.get(parent);
+	if ( parentIndex == null ) { parentIndex = parentList.size(); parentList.add(parent); parentMap.put(parent, parentIndex); }
+	return parentIndex;
+    }
+
+    private void checkIndex(int index) { if (( index < 0 ) || ( index >= elements )) { throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + elements); } }
+    
+    synchronized public void addStat(FCPath fcPath)
     {
 	total++;
 	if ( fcPath.exist )
@@ -108,6 +267,7 @@ public class FCPathList<E> extends ArrayList<E>
 		if ( fcPath.isHidden )								{ hiddenFiles++; hiddenFilesSize += fcPath.size; }
 		if ( fcPath.isValidPath )							{ validPaths++;		validPathsSize += fcPath.size; }
 		if ( fcPath.isValidFile )							{ validFiles++;		validFilesSize += fcPath.size; }
+		if ( fcPath.isPending )								{ pendingFiles++;	pendingFilesSize += fcPath.size; }
 
 //		Decrypted files
 
@@ -130,9 +290,13 @@ public class FCPathList<E> extends ArrayList<E>
     
 //    FCPathList FCPath[x] -> FinalCrypt(newFCPath) -> change -> newFCPath -> fcPathList.update(oldFCPath, oldFCPath);
 //						    -> clone  -> oldFCPath
-    public void updateStat(FCPath oldFCPath, FCPath newFCPath) { removeStat(oldFCPath); addStat(newFCPath); oldFCPath = newFCPath.clone(newFCPath); } // Makes sure FinalCrypt gets an updated object back
+    synchronized public void updateStat(FCPath oldFCPath, FCPath newFCPath)
+    {
+	removeStat(oldFCPath); addStat(newFCPath);
+	if (( oldFCPath.list == this ) && ( oldFCPath.index < elements )) { setRow(oldFCPath.index, newFCPath, false); } // Row of a view (from this list or one of its state views) gets the new state
+    }
 
-    public void removeStat(FCPath fcPath)
+    synchronized public void removeStat(FCPath fcPath)
     {
 	total--;
 	if ( fcPath.exist )
@@ -155,6 +319,7 @@ public class FCPathList<E> extends ArrayList<E>
 		if ( fcPath.isHidden )								{ hiddenFiles--; hiddenFilesSize -= fcPath.size; }
 		if ( fcPath.isValidPath )							{ validPaths--;		validPathsSize -= fcPath.size; }
 		if ( fcPath.isValidFile )							{ validFiles--;		validFilesSize -= fcPath.size; }
+		if ( fcPath.isPending )								{ pendingFiles--;	pendingFilesSize -= fcPath.size; }
 
 //		Decrypted files
 
@@ -208,6 +373,7 @@ public class FCPathList<E> extends ArrayList<E>
 	returnString += "Valid Devices		: " +	validDevices + " (" + Validate.getHumanSize(validDevicesSize,1) + ")\r\n";
 	returnString += "Valid Devices		: " +	validDevicesProtected + " (" + Validate.getHumanSize(validDevicesProtectedSize,1) + ")\r\n";
 	returnString += "Valid Partitions	: " +	validPartitions + " (" + Validate.getHumanSize(validPartitionsSize,1) + ")\r\n";
+	returnString += "Pending Files		: " +	pendingFiles + " (" + Validate.getHumanSize(pendingFilesSize,1) + ")\r\n";
 	returnString += "\r\n";
 	returnString += "Decrypted Files 	: " +	decryptedFiles + " (" + Validate.getHumanSize(decryptedFilesSize,1) + ")\r\n";
 	returnString += "Encryptable Files	: " +	encryptableFiles + " (" + Validate.getHumanSize(encryptableFilesSize,1) + ")\r\n";
@@ -274,5 +440,63 @@ public class FCPathList<E> extends ArrayList<E>
 	newDecryptedFiles =	    0; newDecryptedFilesSize =	    0;
 	decryptRemainingFiles = 0; decryptRemainingFilesSize =  0;
 	unDecryptableFiles =    0; unDecryptableFilesSize =	    0;
+
+    // Pending Files
+
+	pendingFiles =		    0; pendingFilesSize =	    0;
+    }
+
+//  Targets of one state of the parent list (read-only, rows of the state when the view was taken, the rows themselves are current)
+    private static class View<E> extends FCPathList<E>
+    {
+	private final FCPathList<E> targetList;
+	private final BitSet rows;
+	private final int count;
+	private int cursorIndex = -1; // Last get(..): sequential gets continue from there
+	private int cursorRow = -1;
+
+	View(FCPathList<E> targetList, int view, BitSet rows, long count, long size)
+	{
+	    super(true);
+	    this.targetList = targetList; this.rows = rows; this.count = (int) count;
+	    total = count;
+	    if	    ( view == DECRYPTED_VIEW )		{ decryptedFiles = count; decryptedFilesSize = size; }
+	    else if ( view == ENCRYPTABLE_VIEW )	{ encryptableFiles = count; encryptableFilesSize = size; encryptRemainingFiles = count; encryptRemainingFilesSize = size; }
+	    else if ( view == NEW_ENCRYPTED_VIEW )	{ newEncryptedFiles = count; newEncryptedFilesSize = size; }
+	    else if ( view == ENCRYPTED_VIEW )		{ encryptedFiles = count; encryptedFilesSize = size; }
+	    else if ( view == DECRYPTABLE_VIEW )	{ decryptableFiles = count; decryptableFilesSize = size; decryptRemainingFiles = count; decryptRemainingFilesSize = size; }
+	    else if ( view == NEW_DECRYPTED_VIEW )	{ newDecryptedFiles = count; newDecryptedFilesSize = size; }
+	    else if ( view == HIDDEN_VIEW )		{ hiddenFiles = count; hiddenFilesSize = size; }
+	    else if ( view == UNREADABLE_VIEW )		{ unreadableFiles = count; unreadableFilesSize = size; }
+	    else if ( view == UNWRITABLE_VIEW )		{ unwritableFiles = count; unwritableFilesSize = size; }
+	    else if ( view == SYMLINK_VIEW )		{ symlinkFiles = count; }
+	    else if ( view == DEVICE_VIEW )		{ devices = count; }
+	    else if ( view == DEVICE_PROTECTED_VIEW )	{ devicesProtected = count; }
+	    else if ( view == INVALID_VIEW )		{ unexisting = count; }
+	    else if ( view == PENDING_VIEW )		{ pendingFiles = count; pendingFilesSize = size; }
+	}
+
+	@Override public int size() { return count; }
+
+	@Override synchronized public E get(int index)			{ return targetList.get(getRow(index)); }
+	@Override synchronized public Path getPath(int index)		{ return targetList.getPath(getRow(index)); }
+	@Override synchronized public long getSize(int index)		{ return targetList.getSize(getRow(index)); }
+	@Override synchronized public int getFlags(int index)		{ return targetList.getFlags(getRow(index)); }
+
+	@Override public boolean add(E e)				{ throw new UnsupportedOperationException("FCPathList view"); }
+	@Override public boolean addCounted(E e)			{ throw new UnsupportedOperationException("FCPathList view"); }
+	@Override public E set(int index, E e)				{ throw new UnsupportedOperationException("FCPathList view"); }
+	@Override public E remove(int index)				{ throw new UnsupportedOperationException("FCPathList view"); }
+	@Override public void clear()					{ throw new UnsupportedOperationException("FCPathList view"); }
+	@Override public FCPathList<E> getView(int view)		{ throw new UnsupportedOperationException("FCPathList view"); }
+
+//	Row of the index-th target (the next set bit when reading in order)
+	private int getRow(int index)
+	{
+	    if (( index < 0 ) || ( index >= count )) { throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count); }
+	    if (( cursorIndex == -1 ) || ( index < cursorIndex )) { cursorIndex = 0; cursorRow = rows.nextSetBit(0); }
+	    while ( cursorIndex < index ) { cursorRow = rows.nextSetBit(cursorRow + 1); cursorIndex++; }
+	    return cursorRow;
+	}
     }
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2017 Ron de Jong (ronuitzaandam@gmail.com).
+ *
+ * This is free software; you can redistribute it
+ * under the terms of the Creative Commons License
+ * Creative Commons License: (CC BY-NC-ND 4.0) as published by
+ * https://creativecommons.org/licenses/by-nc-nd/4.0/ ; either
+ * version 4.0 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Creative Commons Attribution-NonCommercial-NoDerivatives 4.0
+ * International Public License for more details.
+ *
+ * You should have received a copy of the Creative Commons
+ * Public License License along with this software;
+ */
+
+package rdj;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Bounded queue between a running scan (FCPathWalker) and FinalCrypt.encryptSelection(..), so encryption starts with the first
+    classified target instead of after the whole walk.
+
+    The scan puts the targets of one state (FCPathList.ENCRYPTABLE_VIEW or DECRYPTABLE_VIEW) and waits while the queue is full,
+    encryptSelection iterates them in scan order until the scan has ended. The totals grow with the scan. close() (stop) makes
+    the scan stop.
+*/
+
+public class FCPathQueue implements Iterator<FCPath>
+{
+    public static final    int	    CAPACITY_DEFAULT =	4096; // Targets classified ahead of the engine
+
+    private final int view;
+    private final ArrayBlockingQueue<FCPath> queue;
+    private final FCPath endFCPath = new FCPath(null); // Scan ended
+    private volatile boolean closed = false;
+    private volatile long filesTotal = 0;
+    private volatile long bytesTotal = 0;
+    private FCPath nextFCPath = null;
+
+    public FCPathQueue(int view, int capacity) { this.view = view; this.queue = new ArrayBlockingQueue<>(capacity); }
+
+    public long getFilesTotal() { return filesTotal; }
+    public long getBytesTotal() { return bytesTotal; }
+    public boolean isClosed()	{ return closed; }
+
+//  Scan: queues the target when it is in the state of this queue (false when the queue was closed)
+    public boolean put(FCPath fcPath)
+    {
+	if ( ! FCPathList.isInView(view, fcPath.getFlags()) ) { return ( ! closed ); }
+	synchronized (this) { filesTotal++; bytesTotal += fcPath.size; }
+	return offer(fcPath);
+    }
+
+//  Scan: no more targets
+    public void end() { offer(endFCPath); }
+
+//  Engine: no more targets wanted (stopped), a waiting scan & engine are released
+    public void close() { closed = true; queue.clear(); }
+
+    @Override public boolean hasNext()
+    {
+	while ( nextFCPath == null ) // Waits for the scan (or close())
+	{
+	    if ( closed ) { return false; }
+	    try { nextFCPath = queue.poll(100, TimeUnit.MILLISECONDS); } catch (InterruptedException ex) { Thread.currentThread().interrupt(); nextFCPath = endFCPath; }
+	    if ( nextFCPath == endFCPath ) { queue.offer(endFCPath); } // Stays at the end
+	}
+	return ( nextFCPath != endFCPath );
+    }
+
+    @Override public FCPath next()
+    {
+	if ( ! hasNext() ) { throw new NoSuchElementException(); }
+	FCPath fcPath = nextFCPath; nextFCPath = null;
+	return fcPath;
+    }
+
+    private boolean offer(FCPath fcPath)
+    {
+	try { while ( ! closed ) { if ( queue.offer(fcPath, 100, TimeUnit.MILLISECONDS) ) { return true; } } }
+	catch (InterruptedException ex) { Thread.currentThread().interrupt(); }
+	return false;
+    }
+}
@@ -0,0 +1,387 @@
+/*
+ * Copyright © 2017 Ron de Jong (ronuitzaandam@gmail.com).
+ *
+ * This is free software; you can redistribute it
+ * under the terms of the Creative Commons License
+ * Creative Commons License: (CC BY-NC-ND 4.0) as published by
+ * https://creativecommons.org/licenses/by-nc-nd/4.0/ ; either
+ * version 4.0 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Creative Commons Attribution-NonCommercial-NoDerivatives 4.0
+ * International Public License for more details.
+ *
+ * You should have received a copy of the Creative Commons
+ * Public License License along with this software;
+ */
+
+package rdj;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+    Parallel directory scanner of Validate.buildSelection (one Files.walkFileTree classified every file on one thread).
+
+    Every directory is a task on a work-stealing ForkJoinPool: it lists its entries, forks its subdirectories and classifies its
+    files in batches of FILE_BATCH files (Validate.getFCPath with the walk attributes: one token read per file). The stats are
+    added to the target list while scanning (live dashboard), the FCPaths in Files.walkFileTree order when the scan is done.
+
+    Same rules as MySimpleFCFileVisitor: links are followed (a link back to a parent directory is reported as failed), invalid
+    directories are skipped, the filter (FCPathFilter) is matched on file names and FCPathWalker.running = false cancels the
+    scan. A subdirectory matching a directory exclude of the filter is dropped from the listing of its parent (not walked).
+
+    Lazy (GUIFX): files that need a token read are added pending (stat facts only, FCPath.isPending) and classified on the pool
+    when the walk is done, so all targets are counted before any is read (pendingFiles counts down on the dashboard). A key switch
+    on the scanned selection (reclassify(..)) classifies the scanned targets from their token hashes without walking or reading.
+
+    With an FCPathQueue (streaming) the classified targets go to the queue as soon as they are classified (waiting while it is
+    full) and the target list only gets the stats. Closing the queue cancels the scan.
+
+    Every scan gets a generation: a new scan supersedes the scans before it (GUIFX selection clicks), they stop at their next file
+    or directory entry and don't report (buildReady). One scan walks at a time, so a superseded scan hands over its completed
+    subtrees first: the newest scan reuses them for the same directories (unchanged modification time, same key, filter & symlink
+    setting, within REUSE_TIME) instead of walking them again. Subtrees with followed directory links are not handed over.
+*/
+
+public class FCPathWalker
+{
+    public static final    int	    FILE_BATCH =	256; // Files classified per task
+    public static final    int	    THREADS_DEFAULT =	Math.max(4, Runtime.getRuntime().availableProcessors() * 2); // Classifying mostly waits on I/O
+    public static final    long	    REUSE_TIME =	10000; // ms the subtrees of a superseded scan stay reusable
+
+    public static volatile boolean running = false; // A scan is running (false cancels it, also a MySimpleFCFileVisitor walk)
+
+    private static final ReentrantLock walkLock = new ReentrantLock(); // One walk at a time
+    private static volatile long currentGeneration = 0; // Newest scan, older ones are superseded
+    private static HashMap<Path, Subtree> subtreeMap = new HashMap<>(); // Handed over by a superseded scan (guarded by FCPathWalker.class)
+    private static long subtreeGeneration = 0;
+    private static long subtreeTime = 0;
+    private static String subtreeSettings = "";
+    private static byte[] subtreeKeyToken = null;
+
+    private final UI ui;
+    private final FCPath keyFCPath;
+    private final FCPathList<FCPath> targetFCPathList;
+    private final boolean symlink;
+    private final FCPathFilter fcPathFilter;
+    private byte[] keyToken = null; // Token of the key (read once per scan, see KeyTokenCache)
+    private FCPathQueue fcPathQueue = null;
+    private boolean lazy = false;
+    private final long generation;
+    private final String settings; // Key, filter & symlink setting (subtrees are only reused by a scan with the same ones)
+
+//  New scan: supersedes the scans before it
+    public FCPathWalker(UI ui, FCPath keyFCPath, FCPathList<FCPath> targetFCPathList, boolean symlink, FCPathFilter fcPathFilter)
+    {
+	this.generation = startGeneration();
+	this.settings = String.valueOf(keyFCPath.path) + "\n" + fcPathFilter + "\n" + symlink;
+	this.ui = ui;
+	this.keyFCPath = keyFCPath;
+	this.targetFCPathList = targetFCPathList;
+	this.symlink = symlink;
+	this.fcPathFilter = fcPathFilter;
+    }
+
+//  Streaming: targets go to fcPathQueue instead of the target list
+    public void setFCPathQueue(FCPathQueue fcPathQueue) { this.fcPathQueue = fcPathQueue; }
+
+//  Lazy: token probes after the walk (not with an FCPathQueue)
+    public void setLazy(boolean lazy) { this.lazy = lazy; }
+
+    public long getGeneration() { return generation; }
+    public boolean isSuperseded() { return ( generation != currentGeneration ); }
+
+//  Ends the scan (running = false) unless it was superseded: false = a newer scan is running and reports
+    public boolean end() { synchronized (FCPathWalker.class) { if ( isSuperseded() ) { return false; } running = false; return true; } }
+
+    private static synchronized long startGeneration() { running = true; return ++currentGeneration; } // Cancelled by running = false
+
+//  Scans all paths (the list is cleared when the scan is cancelled)
+    public void walk(ArrayList<Path> pathList, int threads)
+    {
+	readKeyToken();
+	walkLock.lock(); // Superseded walks stop within a file or directory entry
+	try
+	{
+	    ForkJoinPool forkJoinPool = new ForkJoinPool(threads);
+	    ArrayList<WalkTask> walkTaskList = new ArrayList<>();
+	    try
+	    {
+		for (Path path : pathList) { if ( ! isRunning() ) { break; } WalkTask walkTask = getWalkTask(path, null); if ( walkTask != null ) { walkTaskList.add(walkTask); forkJoinPool.execute(walkTask); } }
+		for (WalkTask walkTask : walkTaskList) { walkTask.join(); }
+	    }
+	    catch (RuntimeException ex) { ui.log("Error: FCPathWalker.walk(..) " + ex.getMessage() + "\r\n", true, true, true, true, false); }
+	    finally { forkJoinPool.shutdown(); if ( fcPathQueue != null ) { fcPathQueue.end(); } }
+
+	    if	    ( ! isRunning() )		{ if (( isSuperseded() ) && ( fcPathQueue == null )) { putSubtrees(walkTaskList); } targetFCPathList.clear(); }
+	    else if ( fcPathQueue == null )	{ for (WalkTask walkTask : walkTaskList) { walkTask.merge(); } clearSubtrees(); classify(threads); }
+	    ScanCache.save(ui); // Probes of this scan (also of a cancelled one)
+	}
+	finally { walkLock.unlock(); }
+    }
+
+//  Key switch: the targets of an earlier scan classified against the key of this one (Validate.reclassify(..)), pending ones on the pool
+    public void reclassify(FCPathList<FCPath> scannedFCPathList, int threads)
+    {
+	readKeyToken();
+	walkLock.lock();
+	try
+	{
+	    for (int index = 0; ( index < scannedFCPathList.size() ) && ( isRunning() ); index++) { targetFCPathList.add(Validate.reclassify(ui, scannedFCPathList.get(index), keyFCPath.path, keyToken)); }
+	    if ( ! isRunning() ) { targetFCPathList.clear(); } else { classify(threads); }
+	    ScanCache.save(ui);
+	}
+	finally { walkLock.unlock(); }
+    }
+
+    private void readKeyToken()
+    {
+	if (( keyFCPath.path != null ) && ( ! Files.isDirectory(keyFCPath.path) ))
+	{
+	    try { keyToken = KeyTokenCache.get(keyFCPath.path); } catch (IOException ex) { ui.log("Error: keyAuthenticatedTargetSource readKeySourceChannel " + ex.getMessage() + "\r\n", true, true, true, true, false); }
+	}
+    }
+
+//  Classifies the pending targets (token probes) on a pool, their rows get the new state while the dashboard counts them down
+    private void classify(int threads)
+    {
+	FCPathList<FCPath> pendingFCPathList = targetFCPathList.getView(FCPathList.PENDING_VIEW); if ( pendingFCPathList.isEmpty() ) { return; }
+	int[] rows = new int[pendingFCPathList.size()]; for (int index = 0; index < rows.length; index++) { rows[index] = pendingFCPathList.get(index).index; }
+	ForkJoinPool forkJoinPool = new ForkJoinPool(threads);
+	ArrayList<ClassifyTask> classifyTaskList = new ArrayList<>();
+	try
+	{
+	    for (int from = 0; from < rows.length; from += FILE_BATCH) { ClassifyTask classifyTask = new ClassifyTask(rows, from, Math.min(from + FILE_BATCH, rows.length)); classifyTaskList.add(classifyTask); forkJoinPool.execute(classifyTask); }
+	    for (ClassifyTask classifyTask : classifyTaskList) { classifyTask.join(); }
+	}
+	catch (RuntimeException ex) { ui.log("Error: FCPathWalker.classify(..) " + ex.getMessage() + "\r\n", true, true, true, true, false); }
+	finally { forkJoinPool.shutdown(); }
+	if ( ! isRunning() ) { targetFCPathList.clear(); }
+    }
+
+//  Superseded: hands over the completed subtrees (the largest ones) to the next scan
+    private void putSubtrees(ArrayList<WalkTask> walkTaskList)
+    {
+	HashMap<Path, Subtree> newSubtreeMap = new HashMap<>();
+	for (WalkTask walkTask : walkTaskList) { if ( walkTask instanceof DirectoryTask ) { ((DirectoryTask) walkTask).putSubtrees(newSubtreeMap); } }
+	synchronized (FCPathWalker.class)
+	{
+	    if ( generation < subtreeGeneration ) { return; } // A newer scan handed over or completed
+	    subtreeMap = newSubtreeMap; subtreeGeneration = generation; subtreeTime = System.currentTimeMillis(); subtreeSettings = settings; subtreeKeyToken = keyToken;
+	}
+    }
+
+//  Completed: nothing to hand over
+    private void clearSubtrees() { synchronized (FCPathWalker.class) { if ( generation >= subtreeGeneration ) { subtreeMap = new HashMap<>(); subtreeGeneration = generation; } } }
+
+//  Subtree of a superseded scan this scan can use for the directory (or null)
+    private Subtree getSubtree(Path dirPath, FileTime modifiedTime)
+    {
+	synchronized (FCPathWalker.class)
+	{
+	    if (( subtreeMap.isEmpty() ) || ( System.currentTimeMillis() - subtreeTime > REUSE_TIME ) || ( ! subtreeSettings.equals(settings) ) || ( ! Arrays.equals(subtreeKeyToken, keyToken) )) { return null; }
+	    Subtree subtree = subtreeMap.get(dirPath);
+	    if (( subtree != null ) && ( subtree.modifiedTime.equals(modifiedTime) )) { return subtree; } else { return null; }
+	}
+    }
+
+//  Task of one path: its directory, the path itself when it is a matching file or failed (like visitFileFailed) or else null
+    private WalkTask getWalkTask(Path path, DirectoryTask parentTask)
+    {
+	BasicFileAttributes linkAttributes = getLinkAttributes(path); BasicFileAttributes attributes = getAttributes(path, linkAttributes);
+	if	( isDirectory(attributes, path, parentTask) )	{ return new DirectoryTask(path, attributes, parentTask); }
+	else if ( isTarget(attributes, path) )			{ return new FileTask(path, getFileAttributes(linkAttributes)); }
+	else							{ return null; }
+    }
+
+//  A directory to walk (not a link back to a parent directory: that one is reported as failed)
+    private static boolean isDirectory(BasicFileAttributes attributes, Path path, DirectoryTask parentTask) { return ( attributes != null ) && ( attributes.isDirectory() ) && (( parentTask == null ) || ( ! parentTask.isLoop(path, attributes.fileKey()) )); }
+
+//  A path to classify (when not a directory to walk): failed (no attributes, directory loop) or a file matching the filter
+    private boolean isTarget(BasicFileAttributes attributes, Path path) { return ( attributes == null ) || ( attributes.isDirectory() ) || ( fcPathFilter.matches(path, attributes) ); }
+
+    private boolean isRunning() { return ( running ) && ( ! isSuperseded() ) && (( fcPathQueue == null ) || ( ! fcPathQueue.isClosed() )); }
+
+//  Attributes of the path itself (null = failed)
+    private static BasicFileAttributes getLinkAttributes(Path path)
+    {
+	try { return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS); } catch (IOException | SecurityException ex) { return null; }
+    }
+
+//  Attributes of the link target, of the link itself when the link is broken (like Files.walkFileTree with FOLLOW_LINKS)
+    private static BasicFileAttributes getAttributes(Path path, BasicFileAttributes linkAttributes)
+    {
+	if (( linkAttributes == null ) || ( ! linkAttributes.isSymbolicLink() )) { return linkAttributes; }
+	try { return Files.readAttributes(path, BasicFileAttributes.class); } catch (IOException | SecurityException ex) { return linkAttributes; }
+    }
+
+//  Attributes the classification can use (Validate.getFCPath(.., attributes, ..)): of a path that isn't a link
+    private static BasicFileAttributes getFileAttributes(BasicFileAttributes linkAttributes) { if (( linkAttributes != null ) && ( ! linkAttributes.isSymbolicLink() )) { return linkAttributes; } else { return null; } }
+
+    private abstract class WalkTask extends RecursiveAction
+    {
+	private static final long serialVersionUID = 1L;
+	boolean completed = false; // Not cancelled (a subtree that can be handed over)
+
+	abstract void merge(); // Adds the FCPaths of this task to targetFCPathList (in walk order)
+	abstract void addFCPaths(ArrayList<FCPath> fcPathList); // Same for a handed over subtree
+    }
+
+    private static class Subtree
+    {
+	final FileTime modifiedTime; // Of the directory
+	final ArrayList<FCPath> fcPathList; // In walk order
+
+	Subtree(FileTime modifiedTime, ArrayList<FCPath> fcPathList) { this.modifiedTime = modifiedTime; this.fcPathList = fcPathList; }
+    }
+
+    private class FileTask extends WalkTask
+    {
+	private static final long serialVersionUID = 1L;
+	private final ArrayList<Path> pathList;
+	private final ArrayList<BasicFileAttributes> attributesList; // Walk attributes (null = probed by getFCPath)
+	private final FCPath[] fcPaths;
+
+	FileTask(Path path, BasicFileAttributes attributes)					{ this.pathList = new ArrayList<>(1); this.pathList.add(path); this.attributesList = new ArrayList<>(1); this.attributesList.add(attributes); this.fcPaths = new FCPath[1]; }
+	FileTask(ArrayList<Path> pathList, ArrayList<BasicFileAttributes> attributesList)	{ this.pathList = pathList; this.attributesList = attributesList; this.fcPaths = new FCPath[pathList.size()]; }
+
+	@Override protected void compute()
+	{
+	    for (int index = 0; ( index < fcPaths.length ) && ( isRunning() ); index++)
+	    {
+//					     getFCPath(UI ui, Path path,	   BasicFileAttributes attributes,  Path keyPath,     byte[] keyToken, boolean lazy)
+		fcPaths[index] = Validate.getFCPath(   ui,	pathList.get(index), attributesList.get(index),	    keyFCPath.path,   keyToken, ( lazy ) && ( fcPathQueue == null ));
+		targetFCPathList.addStat(fcPaths[index]);
+		if ( fcPathQueue != null ) { fcPathQueue.put(fcPaths[index]); fcPaths[index] = null; } // Streamed, not kept
+	    }
+	    completed = isRunning();
+	}
+
+	@Override void merge() { for (FCPath fcPath : fcPaths) { if ( fcPath != null ) { targetFCPathList.addCounted(fcPath); } } }
+	@Override void addFCPaths(ArrayList<FCPath> fcPathList) { for (FCPath fcPath : fcPaths) { if ( fcPath != null ) { fcPathList.add(fcPath); } } }
+    }
+
+//  Pending targets (rows of targetFCPathList) classified with a token probe
+    private class ClassifyTask extends RecursiveAction
+    {
+	private static final long serialVersionUID = 1L;
+	private final int[] rows;
+	private final int from;
+	private final int to;
+
+	ClassifyTask(int[] rows, int from, int to) { this.rows = rows; this.from = from; this.to = to; }
+
+	@Override protected void compute()
+	{
+	    for (int index = from; ( index < to ) && ( isRunning() ); index++)
+	    {
+		FCPath fcPath = targetFCPathList.get(rows[index]);
+		if ( ! fcPath.isPending ) { continue; }
+		targetFCPathList.updateStat(fcPath, Validate.getFCPath(ui, fcPath.path, getFileAttributes(getLinkAttributes(fcPath.path)), keyFCPath.path, keyToken, false));
+	    }
+	}
+    }
+
+    private class DirectoryTask extends WalkTask
+    {
+	private static final long serialVersionUID = 1L;
+	private final Path dirPath;
+	private final Object fileKey;
+	private final FileTime modifiedTime;
+	private final DirectoryTask parentTask;
+	private final ArrayList<WalkTask> walkTaskList = new ArrayList<>(); // Entries in walk order (file batches & subdirectories)
+	private ArrayList<FCPath> subtreeFCPathList = null; // Handed over by a superseded scan (instead of walkTaskList)
+
+	DirectoryTask(Path dirPath, BasicFileAttributes attributes, DirectoryTask parentTask) { this.dirPath = dirPath; this.fileKey = attributes.fileKey(); this.modifiedTime = attributes.lastModifiedTime(); this.parentTask = parentTask; }
+
+	@Override protected void compute()
+	{
+	    if ( ! isRunning() ) { return; }
+	    Subtree subtree = getSubtree(dirPath, modifiedTime);
+	    if ( subtree != null ) { reuse(subtree); return; }
+	    boolean listed = false; boolean linked = false; // Subtree depends on the directories above it (loops)
+	    DirectoryStream<Path> directoryStream;
+	    try { directoryStream = Files.newDirectoryStream(dirPath); }
+	    catch (IOException | SecurityException ex) { forkTask(new FileTask(dirPath, null)); joinTasks(); return; } // Unreadable directory is reported as failed path
+	    try
+	    {
+		if ( ! Validate.isValidDir(ui, dirPath, symlink, true) ) { return; } // Skip subtree
+
+		ArrayList<Path> filePathList = new ArrayList<>(); ArrayList<BasicFileAttributes> fileAttributesList = new ArrayList<>();
+		for (Path path : directoryStream)
+		{
+		    if ( ! isRunning() ) { break; }
+		    BasicFileAttributes linkAttributes = getLinkAttributes(path); BasicFileAttributes attributes = getAttributes(path, linkAttributes);
+		    if (( attributes != null ) && ( attributes.isDirectory() ) && ( fcPathFilter.isExcludedDir(path) )) { continue; } // Pruned subtree
+		    if (( linkAttributes != null ) && ( linkAttributes.isSymbolicLink() ) && ( attributes.isDirectory() )) { linked = true; }
+		    if	    ( isDirectory(attributes, path, this) ) { if ( ! filePathList.isEmpty() ) { forkTask(new FileTask(filePathList, fileAttributesList)); filePathList = new ArrayList<>(); fileAttributesList = new ArrayList<>(); } forkTask(new DirectoryTask(path, attributes, this)); }
+		    else if ( isTarget(attributes, path) )
+		    {
+			filePathList.add(path); fileAttributesList.add(getFileAttributes(linkAttributes));
+			if ( filePathList.size() >= FILE_BATCH ) { forkTask(new FileTask(filePathList, fileAttributesList)); filePathList = new ArrayList<>(); fileAttributesList = new ArrayList<>(); }
+		    }
+		}
+		if ( ! filePathList.isEmpty() ) { forkTask(new FileTask(filePathList, fileAttributesList)); }
+		listed = isRunning();
+	    }
+	    catch (DirectoryIteratorException ex) { } // Entries listed so far are kept (like postVisitDirectory with exception)
+	    finally { try { directoryStream.close(); } catch (IOException ex) { } }
+	    joinTasks();
+	    completed = ( listed ) && ( ! linked ) && ( isRunning() );
+	    for (WalkTask walkTask : walkTaskList) { if ( ! walkTask.completed ) { completed = false; } }
+	}
+
+//	Subtree of a superseded scan: its FCPaths are counted (& streamed) like classified ones
+	private void reuse(Subtree subtree)
+	{
+	    for (FCPath fcPath : subtree.fcPathList)
+	    {
+		if ( ! isRunning() ) { return; }
+		targetFCPathList.addStat(fcPath);
+		if ( fcPathQueue != null ) { fcPathQueue.put(fcPath); }
+	    }
+	    if ( fcPathQueue == null ) { subtreeFCPathList = subtree.fcPathList; }
+	    completed = isRunning();
+	}
+
+	private void forkTask(WalkTask walkTask) { walkTaskList.add(walkTask); walkTask.fork(); }
+
+	private void joinTasks() { for (WalkTask walkTask : walkTaskList) { walkTask.join(); } }
+
+	@Override void merge() { if ( subtreeFCPathList != null ) { for (FCPath fcPath : subtreeFCPathList) { targetFCPathList.addCounted(fcPath); } } else { for (WalkTask walkTask : walkTaskList) { walkTask.merge(); } } }
+	@Override void addFCPaths(ArrayList<FCPath> fcPathList) { if ( subtreeFCPathList != null ) { fcPathList.addAll(subtreeFCPathList); } else { for (WalkTask walkTask : walkTaskList) { walkTask.addFCPaths(fcPathList); } } }
+
+//	Completed subtrees of this directory (this one or else the completed ones below it)
+	void putSubtrees(HashMap<Path, Subtree> subtreeMap)
+	{
+	    if ( completed ) { ArrayList<FCPath> fcPathList = new ArrayList<>(); addFCPaths(fcPathList); subtreeMap.put(dirPath, new Subtree(modifiedTime, fcPathList)); return; }
+	    for (WalkTask walkTask : walkTaskList) { if ( walkTask instanceof DirectoryTask ) { ((DirectoryTask) walkTask).putSubtrees(subtreeMap); } }
+	}
+
+//	A directory that is this directory or one of its parents (followed link)
+	boolean isLoop(Path path, Object fileKey)
+	{
+	    for (DirectoryTask directoryTask = this; directoryTask != null; directoryTask = directoryTask.parentTask)
+	    {
+		if (( fileKey != null ) && ( directoryTask.fileKey != null ))	{ if ( fileKey.equals(directoryTask.fileKey) ) { return true; } }
+		else { try { if ( Files.isSameFile(path, directoryTask.dirPath) ) { return true; } } catch (IOException | SecurityException ex) { } }
+	    }
+	    return false;
+	}
+    }
+}
@@ -21,22 +21,39 @@ package rdj;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributeView;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.DosFileAttributes;
 import java.nio.file.attribute.PosixFileAttributes;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Locale;
+import java.util.Map;
 import java.util.TimerTask;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class FinalCrypt extends Thread
 {
@@ -57,9 +74,8 @@ public class FinalCrypt extends Thread
     private TimerTask updateProgressTask;
     private java.util.Timer updateProgressTaskTimer;
 
-    private boolean stopPending = false;
-    private static boolean pausing = false;
-    private boolean targetSourceEnded;
+    private volatile boolean stopPending = false;
+    private static volatile boolean pausing = false;
 //							1234567890123456789012345678901234567890123456789012345678901234567890
     public static final String FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN = "FinalCrypt - File Encryption Program - Plain Text Authentication Token";
     private Calendar	startCalendar;
@@ -76,6 +92,56 @@ public class FinalCrypt extends Thread
 
     public boolean disableMAC = false; // Disable Message Authentication Mode DANGEROUS
 
+//  I/O Engines
+    public static final    int	    ENGINE_LEGACY =	0; // Opens and closes the target, key and destination channels for every buffer
+    public static final    int	    ENGINE_STREAM =	1; // One FileChannel per role for the whole file using positional reads and writes
+    public static final    int	    ENGINE_MMAP =	2; // Target, key & destin mapped in windows, XOR straight between the mappings (falls back to stream per file)
+    public static final    int	    ENGINE_PIPELINE =	3; // Reader thread -> XOR thread -> writer connected by a ring of reusable buffers
+    public static final String[]   ENGINE_NAME_ARRAY = new String[] { "legacy","stream","mmap","pipeline" };
+    private int engine = ENGINE_LEGACY;
+
+//  Pipeline engine
+    public static final    int	    STAGE_READ =	0;
+    public static final    int	    STAGE_XOR =		1;
+    public static final    int	    STAGE_WRITE =	2;
+    public static final String[]   STAGE_NAME_ARRAY = new String[] { "rd","xor","wr" };
+    private int pipelineDepth = 4; // Buffer sets in the ring
+    private ExecutorService pipelineService;
+
+//  Parallel mode
+    private int workers = 1; // Files processed at the same time
+    private volatile Stat progressReadTargetSourceStat;
+    private volatile Stat progressWrteTargetSourceStat;
+
+//  Chunk mode: files of chunkThreshold bytes and up are split in chunks (whole buffers) that are encrypted concurrently
+    private static final   long	    CHUNK_SIZE =	(64L * 1024L * 1024L); // 64 MiB
+    private long chunkThreshold = 0; // 0 = disabled
+    private ExecutorService chunkService;
+
+//  In-place mode: files are XORed where they are and renamed (no copy & shred pass), every block is journaled first (InPlaceJournal)
+    private boolean inplace = false;
+
+//  Resumable runs: finished targets & data offsets reached are journaled (ResumeJournal), --resume continues a stopped run
+    private Path resumeJournalDirPath = null; // null = not journaled
+    private boolean resume = false;
+    private ResumeJournal resumeJournal;
+
+//  Streaming scan: targets of the scan that is still running (closed on stop)
+    private volatile FCPathQueue streamFCPathQueue = null;
+
+    private static final   long	    MMAP_WINDOW_SIZE =	(256L * 1024L * 1024L); // 256 MiB
+    private KeyMapping		    sharedKeyMapping;	// Key mapping shared read-only across files (and workers)
+
+//  Key served from memory (KeyStream & KeyCache): keys up to the key cache size & keys smaller than the buffers (null = key read per block)
+    private KeyStream		    keyStream;
+    private long		    keyPrefetchWindow = KeyPrefetcher.WINDOW_DEFAULT; // Read-ahead of larger keys by the stream & pipeline engine (0 = disabled)
+
+//  Engine results
+    private static final   int	    RESULT_OK =		0;
+    private static final   int	    RESULT_FAILED =	1; // Skip to the next file
+    private static final   int	    RESULT_STOPPED =	2; // Stop pending
+    private static final   int	    RESULT_FALLBACK =	3; // Mapping failed, destin restored, use the stream engine
+
     public FinalCrypt(UI ui)
     {   
 //      Set the locations of the version resources
@@ -98,7 +164,13 @@ public class FinalCrypt extends Thread
     public boolean getHex()                                                 { return hex; }
     public boolean getChr()                                                 { return chr; }
     public boolean getDry()                                                 { return dry; }
+    public boolean getInPlace()                                             { return inplace; }
     public int getBufferSizeDefault()					    { return BUFFERSIZEDEFAULT; }
+    public int getEngine()						    { return engine; }
+    public String getEngineString()					    { return ENGINE_NAME_ARRAY[engine]; }
+    public int getWorkers()						    { return workers; }
+    public long getChunkThreshold()					    { return chunkThreshold; }
+    public int getPipelineDepth()					    { return pipelineDepth; }
 //    public ArrayList<Path> getTargetFilesPathList()                         { return targetReadFilesPathList; }
 //    public Path getKeyFilePath()                                         { return keyReadFilePath; }
 //    public Path getOutputFilePath()                                         { return targetDestinPath; }
@@ -113,7 +185,17 @@ public class FinalCrypt extends Thread
     public void setHex(boolean hex)                                         { this.hex = hex; }
     public void setChr(boolean chr)                                         { this.chr = chr; }
     public void setDry(boolean dry)                                         { this.dry = dry; }
-    public void setBufferSize(int bufferSize)                               
+    public void setInPlace(boolean inplace)                                 { this.inplace = inplace; }
+    public void setResume(boolean resume)                                   { this.resume = resume; }
+    public void setResumeJournalDirPath(Path resumeJournalDirPath)          { this.resumeJournalDirPath = resumeJournalDirPath; }
+    public void setEngine(int engine)                                       { this.engine = engine; }
+    public void setWorkers(int workers)                                     { if ( workers > 0 ) { this.workers = workers; } }
+    public void setChunkThreshold(long chunkThreshold)                      { if ( chunkThreshold >= 0 ) { this.chunkThreshold = chunkThreshold; } }
+    public void setPipelineDepth(int pipelineDepth)                         { if ( pipelineDepth > 1 ) { this.pipelineDepth = pipelineDepth; } }
+    public void setKeyCacheSize(long keyCacheSize)                          { KeyCache.setCapacity(keyCacheSize); }
+    public void setKeyPrefetchWindow(long keyPrefetchWindow)                { if ( keyPrefetchWindow >= 0 ) { this.keyPrefetchWindow = keyPrefetchWindow; } }
+    public static int getEngine(String name)				    { for (int x = 0; x < ENGINE_NAME_ARRAY.length; x++) { if (ENGINE_NAME_ARRAY[x].equals(name.toLowerCase())) { return x; } } return -1; }
+    public void setBufferSize(int bufferSize)
     {
         this.bufferSize = bufferSize;
         readTargetSourceBufferSize = this.bufferSize; 
@@ -121,26 +203,63 @@ public class FinalCrypt extends Thread
         wrteTargetDestinBufferSize = this.bufferSize;
     }
         
-    public void encryptSelection(FCPathList targetSourceFCPathList, FCPathList filteredTargetSourceFCPathList, FCPath keySourceFCPath, boolean encryptmode)
+    public void encryptSelection(FCPathList<FCPath> targetSourceFCPathList, FCPathList<FCPath> filteredTargetSourceFCPathList, FCPath keySourceFCPath, boolean encryptmode)
+    {
+	encryptSelection(targetSourceFCPathList, filteredTargetSourceFCPathList, null, keySourceFCPath, encryptmode);
+    }
+
+//  Streaming: encrypts / decrypts the targets of a running scan (Validate.buildSelection(.., fcPathQueue)) as they come
+    public void encryptSelection(FCPathList<FCPath> targetSourceFCPathList, FCPathQueue fcPathQueue, FCPath keySourceFCPath, boolean encryptmode)
+    {
+	streamFCPathQueue = fcPathQueue;
+	try { encryptSelection(targetSourceFCPathList, null, fcPathQueue, keySourceFCPath, encryptmode); } finally { streamFCPathQueue = null; }
+    }
+
+    private void encryptSelection(FCPathList<FCPath> targetSourceFCPathList, FCPathList<FCPath> filteredTargetSourceFCPathList, FCPathQueue fcPathQueue, FCPath keySourceFCPath, boolean encryptmode)
     {
 	startCalendar = Calendar.getInstance(Locale.ROOT);
 
-	if ( keySourceFCPath.size < bufferSize ) { setBufferSize((int)keySourceFCPath.size); }
+//	The key is read once and served from memory to all files (a key smaller than the buffers is repeated by the key stream)
+//	The legacy engine & printing read it per block of key size
+	keyStream = null;
+	if ((( keySourceFCPath.size < bufferSize ) || ( KeyCache.fits(keySourceFCPath.size) )) && ( engine != ENGINE_LEGACY ) && ( ! print ) && ( ! txt ))
+	{
+	    try { keyStream = new KeyStream(keySourceFCPath.path, keySourceFCPath.size, (int)Math.min(keySourceFCPath.size, bufferSize)); }
+	    catch (IOException ex) { ui.log("Warning: KeyStream(..) " + ex.getMessage() + " key read per block\r\n", true, true, true, false, false); }
+	}
+	if (( keySourceFCPath.size < bufferSize ) && ( keyStream == null )) { setBufferSize((int)keySourceFCPath.size); }
+
+//	Resume journal of the key & mode (the key positions depend on the buffer size, so a run is only resumed with the same buffer size)
+	resumeJournal = null;
+	if (( resumeJournalDirPath != null ) && ( ! dry ) && ( ! print ) && ( ! txt ))
+	{
+	    resumeJournal = new ResumeJournal(ResumeJournal.getJournalPath(resumeJournalDirPath, keySourceFCPath.path, encryptmode));
+	    try
+	    {
+		boolean resuming = ( resume ) && ( resumeJournal.load(keySourceFCPath.path, keySourceFCPath.size, encryptmode, readTargetSourceBufferSize) );
+		if (( resume ) && ( ! resuming )) { ui.log("Warning: No stopped run with this key, mode & buffer size to resume, starting a new run\r\n", true, true, true, false, false); }
+		if ( resumeJournal.open(keySourceFCPath.path, keySourceFCPath.size, encryptmode, readTargetSourceBufferSize, resuming) ) { ui.log("Warning: Stopped run with this key & mode can't be resumed anymore (replaced by this run, use --resume to continue one)\r\n", true, true, true, false, false); }
+	    } catch (IOException ex) { ui.log("Warning: ResumeJournal " + ex.getMessage() + " (this run can't be resumed)\r\n", true, true, true, false, false); resumeJournal = null; }
+	}
 	
         Stats allDataStats = new Stats(); allDataStats.reset();
         
-        Stat readTargetSourceStat = new Stat(); readTargetSourceStat.reset();
+        progressReadTargetSourceStat = new Stat(); progressReadTargetSourceStat.reset();
 //        Stat readKeySourceStat = new Stat(); readKeySourceStat.reset();
 //        Stat wrteTargetDestinStat = new Stat(); wrteTargetDestinStat.reset();
 //        Stat readTargetDestinStat = new Stat(); readTargetDestinStat.reset();
-        Stat wrteTargetSourceStat = new Stat(); wrteTargetSourceStat.reset();
+        progressWrteTargetSourceStat = new Stat(); progressWrteTargetSourceStat.reset();
         
         stopPending = false;
         pausing = false;
 
-        // Get TOTALS
-        allDataStats.setFilesTotal(filteredTargetSourceFCPathList.encryptableFiles + filteredTargetSourceFCPathList.decryptableFiles);
-        allDataStats.setAllDataBytesTotal(filteredTargetSourceFCPathList.encryptableFilesSize + filteredTargetSourceFCPathList.decryptableFilesSize);
+        // Get TOTALS (streaming: the targets scanned so far)
+	if ( fcPathQueue == null )
+	{
+	    allDataStats.setFilesTotal(filteredTargetSourceFCPathList.encryptableFiles + filteredTargetSourceFCPathList.decryptableFiles);
+	    allDataStats.setAllDataBytesTotal(filteredTargetSourceFCPathList.encryptableFilesSize + filteredTargetSourceFCPathList.decryptableFilesSize);
+	}
+	else { allDataStats.setFilesTotal(fcPathQueue.getFilesTotal()); allDataStats.setAllDataBytesTotal(fcPathQueue.getBytesTotal()); }
 	String modeDesc = "";
 	if (encryptmode)
 	{
@@ -158,6 +277,7 @@ public class FinalCrypt extends Thread
 	private long bytesProcessed;
 	@Override public void run()
         {
+	    Stat readTargetSourceStat = progressReadTargetSourceStat; Stat wrteTargetSourceStat = progressWrteTargetSourceStat;
 	    long fileBytesProcessed =	(readTargetSourceStat.getFileBytesProcessed() + wrteTargetSourceStat.getFileBytesProcessed());
 	    double fileBytesPercent =	((readTargetSourceStat.getFileBytesTotal()) / 100.0); //  1000 / 100 = (long)10     10 > 0.1 (10*0.01)
 	    int fileBytesPercentage =	(int)(fileBytesProcessed / fileBytesPercent); // 600 / 10 = 60 - 600 * (10*0.01)
@@ -178,64 +298,134 @@ public class FinalCrypt extends Thread
 //      Start Files Encryption Clock
         allDataStats.setAllDataStartNanoTime();
         
+//      Durability.LEVEL_BATCH: originals waiting for their destins to be committed (batch = directory)
+	ArrayList<FCPath> batchTargetSourceFCPathList = new ArrayList<>();
+	ArrayList<Path> batchTargetDestinPathList = new ArrayList<>();
+
         // Encrypt Files loop
 	
-	encryptTargetloop: for (Iterator it = filteredTargetSourceFCPathList.iterator(); it.hasNext();)
-	{
-	    FCPath newTargetSourceFCPath = (FCPath) it.next();
-	    FCPath oldTargetSourceFCPath = newTargetSourceFCPath.clone(newTargetSourceFCPath);
-	    Path targetDestinPath = null;
-	    String fileStatusLine = "";
-            if (stopPending) { targetSourceEnded = true; break encryptTargetloop; }
-	    if ((newTargetSourceFCPath.path.compareTo(keySourceFCPath.path) != 0))
-	    {
+//      Parallel mode: every file (crypt, attributes & shred) runs on one of the workers (printing needs the byte order, so it stays sequential)
+	ExecutorService workerService = null;
+	if (( workers > 1 ) && ( ! print ) && ( ! txt )) { workerService = Executors.newFixedThreadPool(workers); }
+	if ( chunkThreshold > 0 ) { chunkService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()); }
+	if ( engine == ENGINE_PIPELINE ) { pipelineService = Executors.newCachedThreadPool(); } // Reader & XOR stage of every file in progress
+	ArrayList<Future<Integer>> workerFutureList = new ArrayList<>();
+	Path batchDirPath = null;
+	HashSet<Path> recoveredPathSet = recoverInPlace(targetSourceFCPathList, keySourceFCPath); // Interrupted in-place conversions of this key
+	if ( resumeJournal != null ) { finishCommitted(); } // Originals of destins the stopped run had committed
+
+	Iterator<FCPath> it; if ( fcPathQueue == null ) { it = filteredTargetSourceFCPathList.iterator(); } else { it = fcPathQueue; }
+	encryptTargetloop: while (( ! stopPending ) && ( it.hasNext() ))
+	{
+	    final FCPath targetSourceFCPath = it.next();
+            if (stopPending) { break encryptTargetloop; }
+	    if ( fcPathQueue != null ) { allDataStats.setFilesTotal(fcPathQueue.getFilesTotal()); allDataStats.setAllDataBytesTotal(fcPathQueue.getBytesTotal()); } // Grows with the scan
+	    if ( recoveredPathSet.contains(targetSourceFCPath.path.toAbsolutePath().normalize()) ) { continue; } // Completed by recoverInPlace(..)
+	    if (( resumeJournal != null ) && ( resumeJournal.isDone(targetSourceFCPath.path) )) { continue; } // Finished before the run was stopped
+
+//	    Durability.LEVEL_BATCH: the batch (directory) is finished by all workers before it gets committed
+	    Path targetSourceDirPath = targetSourceFCPath.path.toAbsolutePath().getParent();
+	    if (( Durability.getLevel() == Durability.LEVEL_BATCH ) && ( batchDirPath != null ) && ( ! batchDirPath.equals(targetSourceDirPath) ))
+	    { waitForWorkers(workerFutureList); commitBatch(batchTargetSourceFCPathList, batchTargetDestinPathList, allDataStats); }
+	    batchDirPath = targetSourceDirPath;
+
+	    if ( workerService == null ) { if ( encryptTarget(targetSourceFCPath, targetSourceFCPathList, keySourceFCPath, encryptmode, allDataStats, batchTargetSourceFCPathList, batchTargetDestinPathList) == RESULT_STOPPED ) { break encryptTargetloop; } }
+	    else { workerFutureList.add(workerService.submit(() -> encryptTarget(targetSourceFCPath, targetSourceFCPathList, keySourceFCPath, encryptmode, allDataStats, batchTargetSourceFCPathList, batchTargetDestinPathList))); }
+        } // Encrypt Files Loop // Encrypt Files Loop // Encrypt Files Loop // Encrypt Files Loop
+	if (( fcPathQueue != null ) && ( stopPending )) { fcPathQueue.close(); } // Stops the scan
+	waitForWorkers(workerFutureList); if ( workerService != null ) { workerService.shutdown(); }
+	commitBatch(batchTargetSourceFCPathList, batchTargetDestinPathList, allDataStats);
+	if ( fcPathQueue != null ) { allDataStats.setFilesTotal(fcPathQueue.getFilesTotal()); allDataStats.setAllDataBytesTotal(fcPathQueue.getBytesTotal()); }
+	if ( resumeJournal != null ) { resumeJournal.close( ! stopPending ); resumeJournal = null; } // Kept for --resume when stopped
+	ScanCache.save(ui); // Removals of the written files (a scan saves before they are written)
+        allDataStats.setAllDataEndNanoTime(); allDataStats.clock();
+        if ( stopPending ) { ui.log("\r\n", true, false, false, false, false); stopPending = false;  } // It breaks in the middle of encrypting, so the encryption summery needs to begin on a new line
+
+//      Print the stats
+        ui.log(allDataStats.getEndSummary(modeDesc), true, true, true, false, false);
+
+        updateProgressTaskTimer.cancel(); updateProgressTaskTimer.purge();
+	sharedKeyMapping = null; // Shared key mapping is released at garbage collection
+	if ( chunkService != null ) { chunkService.shutdown(); chunkService = null; }
+	if ( pipelineService != null ) { pipelineService.shutdown(); pipelineService = null; }
+//        updateProgressTimeline.stop();
+        ui.processFinished();
+    }
+
+
+//  Encrypts / decrypts, copies the attributes and shreds one file (runs on a worker in parallel mode)
+    private int encryptTarget(FCPath newTargetSourceFCPath, FCPathList<FCPath> targetSourceFCPathList, FCPath keySourceFCPath, boolean encryptmode, Stats allDataStats, ArrayList<FCPath> batchTargetSourceFCPathList, ArrayList<Path> batchTargetDestinPathList)
+    {
+//	Legacy engine I/O buffers are leased from the BufferPool for the whole file (encrypt & shred) instead of allocated per file
+	ByteBuffer targetSourceBuffer = BufferPool.lease(readTargetSourceBufferSize);
+	ByteBuffer keySourceBuffer = BufferPool.lease(readKeySourceBufferSize);
+	ByteBuffer targetDestinBuffer = BufferPool.lease(wrteTargetDestinBufferSize);
+	try { return encryptTarget(newTargetSourceFCPath, targetSourceFCPathList, keySourceFCPath, encryptmode, allDataStats, batchTargetSourceFCPathList, batchTargetDestinPathList, targetSourceBuffer, keySourceBuffer, targetDestinBuffer); }
+	finally { BufferPool.release(targetSourceBuffer); BufferPool.release(keySourceBuffer); BufferPool.release(targetDestinBuffer); }
+    }
+
+    private int encryptTarget(FCPath newTargetSourceFCPath, FCPathList<FCPath> targetSourceFCPathList, FCPath keySourceFCPath, boolean encryptmode, Stats allDataStats, ArrayList<FCPath> batchTargetSourceFCPathList, ArrayList<Path> batchTargetDestinPathList, ByteBuffer targetSourceBuffer, ByteBuffer keySourceBuffer, ByteBuffer targetDestinBuffer)
+    {
+	FCPath oldTargetSourceFCPath = newTargetSourceFCPath.clone(newTargetSourceFCPath);
+	Path targetDestinPath = null;
+	String fileStatusLine = "";
+	if (stopPending) { return RESULT_STOPPED; }
+	if ((newTargetSourceFCPath.path.compareTo(keySourceFCPath.path) != 0))
+	{
 //		Determine extension ===========================================================================================================================================================================
 		
-		String bit_extension =	    ".bit";
-		int lastDotPos =    newTargetSourceFCPath.path.getFileName().toString().lastIndexOf('.'); // -1 no extension
-		int lastPos =	    newTargetSourceFCPath.path.getFileName().toString().length();
-		String extension =  ""; if (lastDotPos != -1) { extension = newTargetSourceFCPath.path.getFileName().toString().substring(lastDotPos, lastPos); } else { extension = ""; }
+	    String bit_extension =	    ".bit";
+	    int lastDotPos =    newTargetSourceFCPath.path.getFileName().toString().lastIndexOf('.'); // -1 no extension
+	    int lastPos =	    newTargetSourceFCPath.path.getFileName().toString().length();
+	    String extension =  ""; if (lastDotPos != -1) { extension = newTargetSourceFCPath.path.getFileName().toString().substring(lastDotPos, lastPos); } else { extension = ""; }
 
 //		Set new name of target destination
 
-		if ( ! disableMAC)
-		{
-		    if	(encryptmode)				{ targetDestinPath = newTargetSourceFCPath.path.resolveSibling(newTargetSourceFCPath.path.getFileName().toString() + bit_extension); }
-		    else // (decryptmode)
-		    {
-			if (extension.equals(bit_extension))	{ targetDestinPath = Paths.get(newTargetSourceFCPath.path.toString().substring(0, newTargetSourceFCPath.path.toString().lastIndexOf('.'))); }
-			else					{ targetDestinPath = newTargetSourceFCPath.path.resolveSibling(newTargetSourceFCPath.path.getFileName().toString() + bit_extension); }
-		    }
-		}
-		else // Disable Message Authentication Mode
+	    if ( ! disableMAC)
+	    {
+		if	(encryptmode)				{ targetDestinPath = newTargetSourceFCPath.path.resolveSibling(newTargetSourceFCPath.path.getFileName().toString() + bit_extension); }
+		else // (decryptmode)
 		{
 		    if (extension.equals(bit_extension))	{ targetDestinPath = Paths.get(newTargetSourceFCPath.path.toString().substring(0, newTargetSourceFCPath.path.toString().lastIndexOf('.'))); }
 		    else					{ targetDestinPath = newTargetSourceFCPath.path.resolveSibling(newTargetSourceFCPath.path.getFileName().toString() + bit_extension); }
 		}
+	    }
+	    else // Disable Message Authentication Mode
+	    {
+		if (extension.equals(bit_extension))	{ targetDestinPath = Paths.get(newTargetSourceFCPath.path.toString().substring(0, newTargetSourceFCPath.path.toString().lastIndexOf('.'))); }
+		else					{ targetDestinPath = newTargetSourceFCPath.path.resolveSibling(newTargetSourceFCPath.path.getFileName().toString() + bit_extension); }
+	    }
 //		ui.log("newTargetSourceFCPath: " + newTargetSourceFCPath.path.toString() + "\r\n", true, true, true, false, false);
 //		ui.log("targetDestinPath:      " + targetDestinPath.toAbsolutePath().toString() + "\r\n", true, true, true, false, false);
 		
 //		End of enxtension codeblock ===================================================================================================================================================================
 
 
-		try { Files.deleteIfExists(targetDestinPath); } catch (IOException ex) { ui.log("Error: Files.deleteIfExists(targetDestinPath): " + ex.getMessage() + "\r\n", true, true, true, true, false); }
+	    Path targetDestinWritePath = Durability.getWritePath(targetDestinPath); // Temporary destin on Durability.LEVEL_ATOMIC
+	    boolean inPlaceTarget = ( inplace ) && ( ! dry ) && ( ! print ) && ( ! txt ) && ( Files.isRegularFile(newTargetSourceFCPath.path, LinkOption.NOFOLLOW_LINKS) ); // No destin file, no shredding
+	    long resumeOffset = 0; if (( ! inPlaceTarget ) && ( ! dry )) { resumeOffset = getResumeOffset(newTargetSourceFCPath, targetDestinWritePath, ( encryptmode ) && ( ! disableMAC )); } // Destin kept by a stopped run
+	    boolean resumed = ( resumeOffset > 0 );
+	    boolean smallTarget = ( ! inPlaceTarget ) && ( ! resumed ) && ( ! dry ) && ( ! print ) && ( ! txt ) && ( newTargetSourceFCPath.size <= readTargetSourceBufferSize ) && ( Files.isRegularFile(newTargetSourceFCPath.path, LinkOption.NOFOLLOW_LINKS) ); // One buffer, token & data written at once
 
-		// Prints printByte Header ones                
-		if ( print )
-		{
+	    if ( ! resumed ) { try { Files.deleteIfExists(targetDestinPath); } catch (IOException ex) { ui.log("Error: Files.deleteIfExists(targetDestinPath): " + ex.getMessage() + "\r\n", true, true, true, true, false); } }
+	    if (( ! resumed ) && ( ! targetDestinWritePath.equals(targetDestinPath) )) { try { Files.deleteIfExists(targetDestinWritePath); } catch (IOException ex) { ui.log("Error: Files.deleteIfExists(targetDestinWritePath): " + ex.getMessage() + "\r\n", true, true, true, true, false); } }
+
+	    // Prints printByte Header ones                
+	    if ( print )
+	    {
 //		    ui.log("\r\n");
 //		    ui.log(" ----------------------------------------------------------------------\r\n");
 //		    ui.log("|          |       Input       |      Key       |      Output       |\r\n");
 //		    ui.log("| ---------|-------------------|-------------------|-------------------|\r\n");
 //		    ui.log("| adr      | bin      hx dec c | bin      hx dec c | bin      hx dec c |\r\n");
 //		    ui.log("|----------|-------------------|-------------------|-------------------|\r\n");
-		    ui.log("\r\n", true, true, true, false, false);
-		    ui.log(" -----------------------------------------------------------\r\n", true, true, true, false, false);
-		    ui.log("|       Input       |      Key       |      Output       |\r\n", true, true, true, false, false);
-		    ui.log("|-------------------|-------------------|-------------------|\r\n", true, true, true, false, false);
-		    ui.log("| bin      hx dec c | bin      hx dec c | bin      hx dec c |\r\n", true, true, true, false, false);
-		    ui.log("|-------------------|-------------------|-------------------|\r\n", true, true, true, false, false);
-		}
+		ui.log("\r\n", true, true, true, false, false);
+		ui.log(" -----------------------------------------------------------\r\n", true, true, true, false, false);
+		ui.log("|       Input       |      Key       |      Output       |\r\n", true, true, true, false, false);
+		ui.log("|-------------------|-------------------|-------------------|\r\n", true, true, true, false, false);
+		ui.log("| bin      hx dec c | bin      hx dec c | bin      hx dec c |\r\n", true, true, true, false, false);
+		ui.log("|-------------------|-------------------|-------------------|\r\n", true, true, true, false, false);
+	    }
 //___________________________________________________________________________________________________________________________________________________________
 //
 //			Testing FinalCrypt Token
@@ -244,65 +434,65 @@ public class FinalCrypt extends Thread
 //			🔓!  Decrypt Legacy  (Key can't be checked! No Token present in old format)
 //			⛔   Decrypt Abort   (Key Failed)
 
-		long readTargetSourceChannelPosition = 0;	long writeTargetDestChannelTransfered = 0;
+	    long readTargetSourceChannelPosition = 0;	long writeTargetDestChannelTransfered = 0;
 		
-		if (! disableMAC) // Be carefull: TRUE value is highly dangerous
+	    if (! disableMAC) // Be carefull: TRUE value is highly dangerous
+	    {
+		if (encryptmode)
 		{
-		    if (encryptmode)
+		    if ( newTargetSourceFCPath.isDecrypted) // Target has NO Token, Decrypted
 		    {
-			if ( newTargetSourceFCPath.isDecrypted) // Target has NO Token, Decrypted
+			if (newTargetSourceFCPath.isEncryptable) // TargetSource is (Encryptable)
 			{
-			    if (newTargetSourceFCPath.isEncryptable) // TargetSource is (Encryptable)
-			    {
-				fileStatusLine =    UTF8_ENCRYPT_SYMBOL + " \"" + targetDestinPath.toAbsolutePath().toString() + "\" ";
+			    fileStatusLine =    UTF8_ENCRYPT_SYMBOL + " \"" + targetDestinPath.toAbsolutePath().toString() + "\" ";
 //				ui.log(		    UTF8_ENCRYPT_SYMBOL + " \"" + targetDestinPath.toAbsolutePath().toString() + "\" ", true, false, false, false, false);
-				ui.log(fileStatusLine, true, false, false, false, false);
+			    ui.log(fileStatusLine, true, false, false, false, false);
 
-				if ( ! dry )
-				{
-				    // Add Token to targetDestinPath
-				    ByteBuffer targetDestinTokenBuffer = ByteBuffer.allocate((FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN.length() * 2)); targetDestinTokenBuffer.clear();			
-				    try (final SeekableByteChannel writeTargetDestinChannel = Files.newByteChannel(targetDestinPath, EnumSet.of(StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC)))
-				    {
-					targetDestinTokenBuffer = createTargetDestinToken(keySourceFCPath.path);
-					writeTargetDestChannelTransfered = writeTargetDestinChannel.write(targetDestinTokenBuffer); targetDestinTokenBuffer.flip();
-					writeTargetDestinChannel.close();
-					// wrteTargetDestinStat.addFileBytesProcessed(writeTargetDestChannelTransfered);
-				    } catch (IOException ex) { ui.log("Error: Add Token writeTargetDestinChannel Abort Encrypting: " + targetDestinPath.toString() + " " + ex.getMessage() + "\r\n", true, true, true, true, false); continue encryptTargetloop; }
-				}
-			    }
-			    else // Decrypted but NOT Encryptable (should not be in the list anyway)
+			    if (( ! dry ) && ( ! inPlaceTarget ) && ( ! smallTarget ) && ( ! resumed )) // In-place writes the token after the data has been shifted, small targets with the data
 			    {
-				ui.log(UTF8_UNENCRYPTABLE_SYMBOL + " \"" + newTargetSourceFCPath.toString() + "\" - Not Encryptable!\r\n", true, true, false, false, false);
-				continue encryptTargetloop;
+				// Add Token to targetDestinPath
+				ByteBuffer targetDestinTokenBuffer = ByteBuffer.allocate((FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN.length() * 2)); targetDestinTokenBuffer.clear();			
+				try (final SeekableByteChannel writeTargetDestinChannel = Files.newByteChannel(targetDestinWritePath, Durability.getWriteOptions(StandardOpenOption.CREATE, StandardOpenOption.APPEND)))
+				{
+				    targetDestinTokenBuffer = createTargetDestinToken(keySourceFCPath.path);
+				    writeTargetDestChannelTransfered = writeTargetDestinChannel.write(targetDestinTokenBuffer); targetDestinTokenBuffer.flip();
+				    writeTargetDestinChannel.close();
+				    // wrteTargetDestinStat.addFileBytesProcessed(writeTargetDestChannelTransfered);
+				} catch (IOException ex) { ui.log("Error: Add Token writeTargetDestinChannel Abort Encrypting: " + targetDestinPath.toString() + " " + ex.getMessage() + "\r\n", true, true, true, true, false); return RESULT_FAILED; }
 			    }
 			}
+			else // Decrypted but NOT Encryptable (should not be in the list anyway)
+			{
+			    ui.log(UTF8_UNENCRYPTABLE_SYMBOL + " \"" + newTargetSourceFCPath.toString() + "\" - Not Encryptable!\r\n", true, true, false, false, false);
+			    return RESULT_FAILED;
+			}
 		    }
-		    else
+		}
+		else
+		{
+		    if (newTargetSourceFCPath.isEncrypted) // Target has Token, Decrypt New Format
 		    {
-			if (newTargetSourceFCPath.isEncrypted) // Target has Token, Decrypt New Format
+			if (( newTargetSourceFCPath.isDecryptable ) && ( Validate.targetHasAuthenticatedFCToken(ui, newTargetSourceFCPath.path, keySourceFCPath.path) )) // TargetSource Has Authenticated Token (Decryptable), the token it has now (the scan may have used a cached token hash)
 			{
-			    if (newTargetSourceFCPath.isDecryptable) // TargetSource Has Authenticated Token (Decryptable)
-			    {
-				fileStatusLine =    UTF8_DECRYPT_SYMBOL + " \"" + targetDestinPath.toString() + "\" ";
+			    fileStatusLine =    UTF8_DECRYPT_SYMBOL + " \"" + targetDestinPath.toString() + "\" ";
 //				ui.log(		    UTF8_DECRYPT_SYMBOL + " \"" + targetDestinPath.toString() + "\" ", true, false, false, false, false);
-				ui.log(fileStatusLine, true, false, false, false, false);
+			    ui.log(fileStatusLine, true, false, false, false, false);
 				
-				readTargetSourceChannelPosition = (FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN.length() * 2); // Decrypt skipping Token bytes at beginning
-			    }
-			    else
-			    {
-				ui.log(UTF8_UNDECRYPTABLE_SYMBOL + " \"" + newTargetSourceFCPath.toString() + "\" - Key Failed : " + keySourceFCPath.toString() + "\r\n", true, true, false, false, false);
-				continue encryptTargetloop;
-			    }
+			    readTargetSourceChannelPosition = (FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN.length() * 2); // Decrypt skipping Token bytes at beginning
+			}
+			else
+			{
+			    ui.log(UTF8_UNDECRYPTABLE_SYMBOL + " \"" + newTargetSourceFCPath.toString() + "\" - Key Failed : " + keySourceFCPath.toString() + "\r\n", true, true, false, false, false);
+			    return RESULT_FAILED;
 			}
 		    }
 		}
-		else
-		{
-		    fileStatusLine =    UTF8_ENCRYPT_LEGACY_SYMBOL + " \"" + targetDestinPath.toAbsolutePath().toString() + "\" ";
-		    ui.log(fileStatusLine, true, false, false, false, false);
-		}
+	    }
+	    else
+	    {
+		fileStatusLine =    UTF8_ENCRYPT_LEGACY_SYMBOL + " \"" + targetDestinPath.toAbsolutePath().toString() + "\" ";
+		ui.log(fileStatusLine, true, false, false, false, false);
+	    }
 		
 		
 		
@@ -317,7 +507,7 @@ public class FinalCrypt extends Thread
 ////		    else
 ////		    {
 ////			ui.status("⛔ \"" + newTargetSourceFCPath.toString() + "\" - Key Failed : " + keySourceFCPath.toString() + "\r\n", true);
-////			continue encryptTargetloop;
+////			return RESULT_FAILED;
 ////		    }
 ////		}
 //		else // Target has NO Token
@@ -336,7 +526,7 @@ public class FinalCrypt extends Thread
 //				writeTargetDestChannelTransfered = writeTargetDestinChannel.write(targetDestinTokenBuffer); targetDestinTokenBuffer.flip();
 //				writeTargetDestinChannel.close();
 //				// wrteTargetDestinStat.addFileBytesProcessed(writeTargetDestChannelTransfered);
-//			    } catch (IOException ex) { ui.error("Error: Add Token writeTargetDestinChannel Abort Encrypting: " + targetDestinPath.toString() + " " + ex.getMessage() + "\r\n"); continue encryptTargetloop; }
+//			    } catch (IOException ex) { ui.error("Error: Add Token writeTargetDestinChannel Abort Encrypting: " + targetDestinPath.toString() + " " + ex.getMessage() + "\r\n"); return RESULT_FAILED; }
 //			}
 //
 //			readTargetSourceChannelPosition = 0; // Start reading targetSource from beginning (Encrypt)
@@ -353,84 +543,126 @@ public class FinalCrypt extends Thread
 //
 //			Encryptor I/O Block
 
-		ByteBuffer targetSourceBuffer = ByteBuffer.allocate(readTargetSourceBufferSize); targetSourceBuffer.clear();
-		ByteBuffer keySourceBuffer = ByteBuffer.allocate(readTargetSourceBufferSize); keySourceBuffer.clear();
-		ByteBuffer targetDestinBuffer = ByteBuffer.allocate(readTargetSourceBufferSize); targetDestinBuffer.clear();
+	    targetSourceBuffer.clear(); keySourceBuffer.clear(); targetDestinBuffer.clear();
 
-		targetSourceEnded = false;
-							    long    readTargetSourceChannelTransfered =  0;
-		long readKeySourceChannelPosition = 0;	    long    readKeySourceChannelTransfered =  0;                
-		long writeTargetDestChannelPosition = 0;	    writeTargetDestChannelTransfered =   0;
-		long readTargetDestChannelPosition = 0;	    long    readTargetDestChannelTransfered =    0;
-		long writeTargetSourceChannelPosition = 0;  long    writeTargetSourceChannelTransfered = 0;
+	    boolean targetSourceEnded = false;
+							long    readTargetSourceChannelTransfered =  0;
+	    long readKeySourceChannelPosition = 0;	    long    readKeySourceChannelTransfered =  0;                
+	    long writeTargetDestChannelPosition = 0;	    writeTargetDestChannelTransfered =   0;
+	    long readTargetDestChannelPosition = 0;	    long    readTargetDestChannelTransfered =    0;
+	    long writeTargetSourceChannelPosition = 0;  long    writeTargetSourceChannelTransfered = 0;
 
-		// Get and set the stats
+	    // Get and set the stats
 //		    allDataStats.setFileBytesTotal(targetSourceSize);
-		allDataStats.setFileBytesTotal(newTargetSourceFCPath.size);
+	    allDataStats.setFileBytesTotal(newTargetSourceFCPath.size);
 
-		readTargetSourceStat.setFileBytesProcessed(0);	    readTargetSourceStat.setFileBytesTotal(newTargetSourceFCPath.size);
+	    Stat readTargetSourceStat = new Stat(); readTargetSourceStat.reset(); progressReadTargetSourceStat = readTargetSourceStat; // Progress follows the last started file
+	    Stat wrteTargetSourceStat = new Stat(); wrteTargetSourceStat.reset(); progressWrteTargetSourceStat = wrteTargetSourceStat;
+	    readTargetSourceStat.setFileBytesProcessed(0);	    readTargetSourceStat.setFileBytesTotal(newTargetSourceFCPath.size);
 //                        readKeySourceStat.setFileBytesProcessed(0);      readKeySourceStat.setFileBytesTotal(filesize);
 //                        wrteTargetDestinStat.setFileBytesProcessed(0);      wrteTargetDestinStat.setFileBytesTotal(filesize);
 //                        readTargetDestinStat.setFileBytesProcessed(0);      readTargetDestinStat.setFileBytesTotal(filesize);
-		wrteTargetSourceStat.setFileBytesProcessed(0);	    wrteTargetSourceStat.setFileBytesTotal(newTargetSourceFCPath.size);
+	    wrteTargetSourceStat.setFileBytesProcessed(0);	    wrteTargetSourceStat.setFileBytesTotal(newTargetSourceFCPath.size);
+
+	    // Per file throughput of the whole crypt & shred phases (including opening and closing) to compare engines
+	    Stat cryptFileStat = new Stat(); cryptFileStat.reset(); cryptFileStat.setFileBytesTotal(newTargetSourceFCPath.size);
+	    Stat shredFileStat = new Stat(); shredFileStat.reset(); shredFileStat.setFileBytesTotal(newTargetSourceFCPath.size);
+	    Stat[] stallStats = new Stat[] { new Stat(), new Stat(), new Stat() }; // Pipeline engine: time each stage waits for a buffer set
+	    cryptFileStat.setFileStartEpoch();
 
-		// Open and close files after every bufferrun. Interrupted file I/O works much faster than uninterrupted I/O encryption
-		while (( ! targetSourceEnded ) && ( ! dry ))
+	    boolean chunked = ( chunkService != null ) && ( newTargetSourceFCPath.size >= chunkThreshold ) && ( ! print ) && ( ! txt ) && ( ! inPlaceTarget ) && ( ! smallTarget ) && ( ! resumed ); // Large file, chunks are encrypted in parallel
+	    ByteBuffer[] smallTargetDestinBuffers = null; // Token & data of a small target (kept for shredding)
+	    if ((( engine != ENGINE_LEGACY ) || ( chunked ) || ( inPlaceTarget ) || ( smallTarget ) || ( resumed )) && ( ! dry ))
+	    {
+		int result = RESULT_FALLBACK;
+		if	(  smallTarget )
+		{
+		    ByteBuffer targetDestinTokenBuffer = ByteBuffer.allocate(0); if (( encryptmode ) && ( ! disableMAC )) { targetDestinTokenBuffer = createTargetDestinToken(keySourceFCPath.path); }
+		    smallTargetDestinBuffers = new ByteBuffer[] { targetDestinTokenBuffer, targetDestinBuffer };
+		    result = encryptFileSmall(newTargetSourceFCPath, targetDestinWritePath, keySourceFCPath, readTargetSourceChannelPosition, targetSourceBuffer, keySourceBuffer, smallTargetDestinBuffers, readTargetSourceStat, allDataStats);
+		}
+		else if (  resumed )							{ result = encryptFileStream(newTargetSourceFCPath, targetDestinWritePath, keySourceFCPath, readTargetSourceChannelPosition, resumeOffset, readTargetSourceStat, allDataStats); }
+		else if (  inPlaceTarget )						{ result = encryptFileInPlace(newTargetSourceFCPath, targetDestinPath, keySourceFCPath, ( encryptmode ) && ( ! disableMAC ), readTargetSourceChannelPosition, readTargetSourceStat, wrteTargetSourceStat, allDataStats); }
+		else if (  chunked )							{ result = encryptFileChunked(newTargetSourceFCPath, targetDestinWritePath, keySourceFCPath, readTargetSourceChannelPosition, readTargetSourceStat, allDataStats); }
+		else if (( engine == ENGINE_MMAP ) && ( ! print ) && ( ! txt )) { result = encryptFileMapped(newTargetSourceFCPath, targetDestinWritePath, keySourceFCPath, readTargetSourceChannelPosition, readTargetSourceStat, allDataStats); }
+		else if (( engine == ENGINE_PIPELINE ) && ( ! print ) && ( ! txt )) { result = encryptFilePipeline(newTargetSourceFCPath, targetDestinWritePath, keySourceFCPath, readTargetSourceChannelPosition, readTargetSourceStat, allDataStats, stallStats); }
+		if	    ( result == RESULT_FALLBACK )	{ result = encryptFileStream(newTargetSourceFCPath, targetDestinWritePath, keySourceFCPath, readTargetSourceChannelPosition, 0, readTargetSourceStat, allDataStats); }
+		if	    ( result == RESULT_STOPPED )	{ ui.log("\r\n", true, true, false, false, false); return RESULT_STOPPED; }
+		else if ( result == RESULT_FAILED )	{ return RESULT_FAILED; }
+	    }
+
+	    // Open and close files after every bufferrun. Interrupted file I/O works much faster than uninterrupted I/O encryption
+	    while (( engine == ENGINE_LEGACY ) && ( ! chunked ) && ( ! inPlaceTarget ) && ( ! smallTarget ) && ( ! resumed ) && ( ! targetSourceEnded ) && ( ! dry ))
+	    {
+		if (stopPending)
 		{
-		    if (stopPending)
-		    {
 //                          Delete broken outputFile and keep original
-			try { Files.deleteIfExists(targetDestinPath); } catch (IOException ex) { ui.log("Error: Files.deleteIfExists(targetDestinPath): " + ex.getMessage() + "\r\n", true, true, true, true, false); }
-			targetSourceEnded = true; ui.log("\r\n", true, true, false, false, false); break encryptTargetloop;
-		    }
+		    try { Files.deleteIfExists(targetDestinWritePath); } catch (IOException ex) { ui.log("Error: Files.deleteIfExists(targetDestinPath): " + ex.getMessage() + "\r\n", true, true, true, true, false); }
+		    ui.log("\r\n", true, true, false, false, false); return RESULT_STOPPED;
+		}
 
-		    //open targetSourcePath
-		    readTargetSourceStat.setFileStartEpoch(); // allFilesStats.setFilesStartNanoTime();
-		    try (final SeekableByteChannel readTargetSourceChannel = Files.newByteChannel(newTargetSourceFCPath.path, EnumSet.of(StandardOpenOption.READ)))
-		    {
-			// Fill up inputFileBuffer
-			readTargetSourceChannel.position(readTargetSourceChannelPosition);
-			readTargetSourceChannelTransfered = readTargetSourceChannel.read(targetSourceBuffer); targetSourceBuffer.flip(); readTargetSourceChannelPosition += readTargetSourceChannelTransfered;
-			if (( readTargetSourceChannelTransfered == -1 ) || ( targetSourceBuffer.limit() < readTargetSourceBufferSize )) { targetSourceEnded = true; } // Buffer.limit = remainder from current position to end
-			readTargetSourceChannel.close();
-			readTargetSourceStat.setFileEndEpoch(); readTargetSourceStat.clock();
-			readTargetSourceStat.addFileBytesProcessed(readTargetSourceChannelTransfered / 2);
-			allDataStats.addAllDataBytesProcessed("rd src", readTargetSourceChannelTransfered / 2);
-		    } catch (IOException ex) { ui.log("Error: readTargetSourceChannel = Files.newByteChannel(..) " + ex.getMessage() + "\r\n", true, true, true, true, false); continue encryptTargetloop; }
+		//open targetSourcePath
+		readTargetSourceStat.setFileStartEpoch(); // allFilesStats.setFilesStartNanoTime();
+		try (final SeekableByteChannel readTargetSourceChannel = Files.newByteChannel(newTargetSourceFCPath.path, EnumSet.of(StandardOpenOption.READ)))
+		{
+		    // Fill up inputFileBuffer
+		    readTargetSourceChannel.position(readTargetSourceChannelPosition);
+		    readTargetSourceChannelTransfered = readTargetSourceChannel.read(targetSourceBuffer); targetSourceBuffer.flip(); readTargetSourceChannelPosition += readTargetSourceChannelTransfered;
+		    if (( readTargetSourceChannelTransfered == -1 ) || ( targetSourceBuffer.limit() < readTargetSourceBufferSize )) { targetSourceEnded = true; } // Buffer.limit = remainder from current position to end
+		    readTargetSourceChannel.close();
+		    readTargetSourceStat.setFileEndEpoch(); readTargetSourceStat.clock();
+		    readTargetSourceStat.addFileBytesProcessed(readTargetSourceChannelTransfered / 2);
+		    allDataStats.addAllDataBytesProcessed("rd src", readTargetSourceChannelTransfered / 2);
+		} catch (IOException ex) { ui.log("Error: readTargetSourceChannel = Files.newByteChannel(..) " + ex.getMessage() + "\r\n", true, true, true, true, false); return RESULT_FAILED; }
 //                            ui.log("readTargetSourceChannelTransfered: " + readTargetSourceChannelTransfered + " targetSourceBuffer.limit(): " + Integer.toString(targetSourceBuffer.limit()) + "\r\n");
 
-		    if ( readTargetSourceChannelTransfered != -1 )
-		    {
+		if ( readTargetSourceChannelTransfered != -1 )
+		{
 //                                readKeySourceStat.setFileStartEpoch();
-			try (final SeekableByteChannel readKeySourceChannel = Files.newByteChannel(keySourceFCPath.path, EnumSet.of(StandardOpenOption.READ,StandardOpenOption.SYNC)))
-			{
-			    // Fill up keyFileBuffer
-			    readKeySourceChannel.position(readKeySourceChannelPosition);
-			    readKeySourceChannelTransfered = readKeySourceChannel.read(keySourceBuffer); readKeySourceChannelPosition += readKeySourceChannelTransfered;
-			    if ( readKeySourceChannelTransfered < readKeySourceBufferSize ) { readKeySourceChannelPosition = 0; readKeySourceChannel.position(0); readKeySourceChannelTransfered += readKeySourceChannel.read(keySourceBuffer); readKeySourceChannelPosition += readKeySourceChannelTransfered;}
-			    keySourceBuffer.flip();
-			    readKeySourceChannel.close();
+		    try (final SeekableByteChannel readKeySourceChannel = Files.newByteChannel(keySourceFCPath.path, EnumSet.of(StandardOpenOption.READ,StandardOpenOption.SYNC)))
+		    {
+			// Fill up keyFileBuffer
+			readKeySourceChannel.position(readKeySourceChannelPosition);
+			readKeySourceChannelTransfered = readKeySourceChannel.read(keySourceBuffer); readKeySourceChannelPosition += readKeySourceChannelTransfered;
+			if ( readKeySourceChannelTransfered < readKeySourceBufferSize ) { readKeySourceChannelPosition = 0; readKeySourceChannel.position(0); readKeySourceChannelTransfered += readKeySourceChannel.read(keySourceBuffer); readKeySourceChannelPosition += readKeySourceChannelTransfered;}
+			keySourceBuffer.flip();
+			readKeySourceChannel.close();
 //				    readKeySourceStat.setFileEndEpoch(); readKeySourceStat.clock();
 //                                    readKeySourceStat.addFileBytesProcessed(readKeySourceChannelTransfered);
-			} catch (IOException ex) { ui.log("Error: readKeySourceChannel = Files.newByteChannel(..) " + ex.getMessage() + "\r\n", true, true, true, true, false); continue encryptTargetloop; }
+		    } catch (IOException ex) { ui.log("Error: readKeySourceChannel = Files.newByteChannel(..) " + ex.getMessage() + "\r\n", true, true, true, true, false); return RESULT_FAILED; }
 //                                ui.log("readKeyFileChannelTransfered: " + readKeySourceChannelTransfered + " keySourceBuffer.limit(): " + Integer.toString(keySourceBuffer.limit()) + "\r\n");
 
-			// Open outputFile for writing
+		    // Open outputFile for writing
 //                                wrteTargetDestinStat.setFileStartEpoch();
-			try (final SeekableByteChannel writeTargetDestinChannel = Files.newByteChannel(targetDestinPath, EnumSet.of(StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC)))
-			{
-			    // Encrypt inputBuffer and fill up outputBuffer
-			    targetDestinBuffer = encryptBuffer(targetSourceBuffer, keySourceBuffer, true); // last boolean = PrintEnabled
-			    writeTargetDestChannelTransfered = writeTargetDestinChannel.write(targetDestinBuffer); targetDestinBuffer.flip(); writeTargetDestChannelPosition += writeTargetDestChannelTransfered;
-			    if (txt) { logByteBuffer("DB", targetSourceBuffer); logByteBuffer("CB", keySourceBuffer); logByteBuffer("OB", targetDestinBuffer); }
-			    writeTargetDestinChannel.close();
+		    try (final SeekableByteChannel writeTargetDestinChannel = Files.newByteChannel(targetDestinWritePath, Durability.getWriteOptions(StandardOpenOption.CREATE, StandardOpenOption.APPEND)))
+		    {
+			// Encrypt inputBuffer and fill up outputBuffer
+			encryptBuffer(targetSourceBuffer, keySourceBuffer, targetDestinBuffer, true); // last boolean = PrintEnabled
+			writeTargetDestChannelTransfered = writeTargetDestinChannel.write(targetDestinBuffer); targetDestinBuffer.flip(); writeTargetDestChannelPosition += writeTargetDestChannelTransfered;
+			if (txt) { logByteBuffer("DB", targetSourceBuffer); logByteBuffer("CB", keySourceBuffer); logByteBuffer("OB", targetDestinBuffer); }
+			writeTargetDestinChannel.close();
 //				    wrteTargetDestinStat.setFileEndEpoch(); wrteTargetDestinStat.clock();
 //                                    wrteTargetDestinStat.addFileBytesProcessed(writeTargetDestChannelTransfered);
-			} catch (IOException ex) { ui.log("Error: writeTargetDestinChannel = Files.newByteChannel(..) " + ex.getMessage() + "\r\n", true, true, true, true, false); continue encryptTargetloop; }
+		    } catch (IOException ex) { ui.log("Error: writeTargetDestinChannel = Files.newByteChannel(..) " + ex.getMessage() + "\r\n", true, true, true, true, false); return RESULT_FAILED; }
 //                            ui.log("writeTargetDestChannelTransfered: " + writeTargetDestChannelTransfered + " targetDestinBuffer.limit(): " + Integer.toString(targetDestinBuffer.limit()) + "\r\n");
-		    }
-		    targetDestinBuffer.clear(); targetSourceBuffer.clear(); keySourceBuffer.clear();
-		} // targetSourceEnded
+		}
+		targetDestinBuffer.clear(); targetSourceBuffer.clear(); keySourceBuffer.clear();
+	    } // targetSourceEnded
+	    cryptFileStat.setFileEndEpoch(); cryptFileStat.clock(); cryptFileStat.addFileBytesProcessed(newTargetSourceFCPath.size);
+
+//		Make the destin durable before the original gets shredded (Durability.LEVEL_BATCH commits the whole batch before shredding)
+	    boolean deferShred = ( Durability.getLevel() == Durability.LEVEL_BATCH ) && ( ! inPlaceTarget );
+	    if (( ! dry ) && ( ! deferShred ) && ( ! inPlaceTarget )) // In-place targets are durable & renamed already
+	    {
+		try { Durability.commit(targetDestinWritePath, targetDestinPath); }
+		catch (IOException ex)
+		{
+		    ui.log("Error: Durability.commit(" + targetDestinPath.toString() + ") keeping original: " + ex.getMessage() + "\r\n", true, true, true, true, false);
+		    try { Files.deleteIfExists(targetDestinWritePath); } catch (IOException ex2) { ui.log("Error: Files.deleteIfExists(targetDestinWritePath): " + ex2.getMessage() + "\r\n", true, true, true, true, false); } // No .fctmp left behind
+		    return RESULT_FAILED;
+		}
+		journalCommitted(newTargetSourceFCPath, targetDestinPath); // A stopped run is resumed by shredding & deleting the original
+	    }
 
 //    ==================================================================================================================================================================
 //                      Copy inputFilePath attributes to outputFilePath
@@ -458,59 +690,58 @@ public class FinalCrypt extends Thread
 “acl:owner”	UserPrincipal
 */
 
-		if ( ! dry)
+	    if (( ! dry) && ( ! inPlaceTarget )) // The in-place target keeps its attributes (encryptFileInPlace(..) restores its times)
+	    {
+		attributeViewloop: for (String view:newTargetSourceFCPath.path.getFileSystem().supportedFileAttributeViews()) // acl basic owner user dos
 		{
-		    attributeViewloop: for (String view:newTargetSourceFCPath.path.getFileSystem().supportedFileAttributeViews()) // acl basic owner user dos
-		    {
 //                            ui.println(view);
-			if ( view.toLowerCase().equals("basic") )
+		    if ( view.toLowerCase().equals("basic") )
+		    {
+			try
 			{
+			    BasicFileAttributes basicAttributes = null; basicAttributes = Files.readAttributes(newTargetSourceFCPath.path, BasicFileAttributes.class);
 			    try
 			    {
-				BasicFileAttributes basicAttributes = null; basicAttributes = Files.readAttributes(newTargetSourceFCPath.path, BasicFileAttributes.class);
-				try
-				{
-				    Files.setAttribute(targetDestinPath, "basic:creationTime",        basicAttributes.creationTime());
-				    Files.setAttribute(targetDestinPath, "basic:lastModifiedTime",    basicAttributes.lastModifiedTime());
-				    Files.setAttribute(targetDestinPath, "basic:lastAccessTime",      basicAttributes.lastAccessTime());
-				}
-				catch (IOException ex) { ui.log("Error: Set Basic Attributes: " + ex.getMessage() + "\r\n", true, true, true, true, false); }
-			    }   catch (IOException ex) { ui.log("Error: basicAttributes = Files.readAttributes(..): " + ex.getMessage(), true, true, true, true, false); }
-			}
-			else if ( view.toLowerCase().equals("dos") )
+//				All three times in one call (instead of a Files.setAttribute(..) per time)
+				Files.getFileAttributeView(targetDestinPath, BasicFileAttributeView.class).setTimes(basicAttributes.lastModifiedTime(), basicAttributes.lastAccessTime(), basicAttributes.creationTime());
+			    }
+			    catch (IOException ex) { ui.log("Error: Set Basic Attributes: " + ex.getMessage() + "\r\n", true, true, true, true, false); }
+			}   catch (IOException ex) { ui.log("Error: basicAttributes = Files.readAttributes(..): " + ex.getMessage(), true, true, true, true, false); }
+		    }
+		    else if ( view.toLowerCase().equals("dos") )
+		    {
+			try
 			{
+			    DosFileAttributes msdosAttributes = null; msdosAttributes = Files.readAttributes(newTargetSourceFCPath.path, DosFileAttributes.class);
 			    try
 			    {
-				DosFileAttributes msdosAttributes = null; msdosAttributes = Files.readAttributes(newTargetSourceFCPath.path, DosFileAttributes.class);
-				try
-				{
-				    Files.setAttribute(targetDestinPath, "basic:lastModifiedTime",    msdosAttributes.lastModifiedTime());
-				    Files.setAttribute(targetDestinPath, "dos:hidden",                msdosAttributes.isHidden());
-				    Files.setAttribute(targetDestinPath, "dos:system",                msdosAttributes.isSystem());
-				    Files.setAttribute(targetDestinPath, "dos:readonly",              msdosAttributes.isReadOnly());
-				    Files.setAttribute(targetDestinPath, "dos:archive",               msdosAttributes.isArchive());
-				}
-				catch (IOException ex) { ui.log("Error: Set DOS Attributes: " + ex.getMessage() + "\r\n", true, true, true, true, false); }
-			    }   catch (IOException ex) { ui.log("Error: msdosAttributes = Files.readAttributes(..): " + ex.getMessage(), true, true, true, true, false); }
-			}
-			else if ( view.toLowerCase().equals("posix") )
+				Files.setAttribute(targetDestinPath, "basic:lastModifiedTime",    msdosAttributes.lastModifiedTime());
+				Files.setAttribute(targetDestinPath, "dos:hidden",                msdosAttributes.isHidden());
+				Files.setAttribute(targetDestinPath, "dos:system",                msdosAttributes.isSystem());
+				Files.setAttribute(targetDestinPath, "dos:readonly",              msdosAttributes.isReadOnly());
+				Files.setAttribute(targetDestinPath, "dos:archive",               msdosAttributes.isArchive());
+			    }
+			    catch (IOException ex) { ui.log("Error: Set DOS Attributes: " + ex.getMessage() + "\r\n", true, true, true, true, false); }
+			}   catch (IOException ex) { ui.log("Error: msdosAttributes = Files.readAttributes(..): " + ex.getMessage(), true, true, true, true, false); }
+		    }
+		    else if ( view.toLowerCase().equals("posix") )
+		    {
+			PosixFileAttributes posixAttributes = null;
+			try
 			{
-			    PosixFileAttributes posixAttributes = null;
+			    posixAttributes = Files.readAttributes(newTargetSourceFCPath.path, PosixFileAttributes.class);
 			    try
 			    {
-				posixAttributes = Files.readAttributes(newTargetSourceFCPath.path, PosixFileAttributes.class);
-				try
-				{
-				    Files.setAttribute(targetDestinPath, "posix:owner",               posixAttributes.owner());
-				    Files.setAttribute(targetDestinPath, "posix:group",               posixAttributes.group());
-				    Files.setPosixFilePermissions(targetDestinPath,                   posixAttributes.permissions());
-				    Files.setLastModifiedTime(targetDestinPath,                       posixAttributes.lastModifiedTime());
-				}
-				catch (IOException ex) { ui.log("Error: Set POSIX Attributes: " + ex.getMessage() + "\r\n", true, true, true, true, false); }
-			    }   catch (IOException ex) { ui.log("Error: posixAttributes = Files.readAttributes(..): " + ex.getMessage(), true, true, true, true, false); }
-			}
-		    } // End attributeViewloop // End attributeViewloop
-		} // End ! dry
+				Files.setAttribute(targetDestinPath, "posix:owner",               posixAttributes.owner());
+				Files.setAttribute(targetDestinPath, "posix:group",               posixAttributes.group());
+				Files.setPosixFilePermissions(targetDestinPath,                   posixAttributes.permissions());
+				Files.setLastModifiedTime(targetDestinPath,                       posixAttributes.lastModifiedTime());
+			    }
+			    catch (IOException ex) { ui.log("Error: Set POSIX Attributes: " + ex.getMessage() + "\r\n", true, true, true, true, false); }
+			}   catch (IOException ex) { ui.log("Error: posixAttributes = Files.readAttributes(..): " + ex.getMessage(), true, true, true, true, false); }
+		    }
+		} // End attributeViewloop // End attributeViewloop
+	    } // End ! dry
 
 //    ==================================================================================================================================================================
 
@@ -518,121 +749,944 @@ public class FinalCrypt extends Thread
 
 //                      Shredding process
 
-		ui.log(UTF8_SHRED_SYMBOL + " \"" + newTargetSourceFCPath.path.toAbsolutePath() + "\" ", true, false, false, false, false); // 🌊🗑
+	    ui.log(UTF8_SHRED_SYMBOL + " \"" + newTargetSourceFCPath.path.toAbsolutePath() + "\" ", true, false, false, false, false); // 🌊🗑
 
-		long targetDestinSize = 0; double targetDiffFactor = 1;
+	    long targetDestinSize = 0; double targetDiffFactor = 1;
 
-		if ( ! dry)
-		{
+	    if ( ! dry)
+	    {
 //				     isValidFile(UI ui, String caller,    Path path, boolean isKey, boolean device, long minSize, boolean symlink, boolean writable, boolean report)
-		    if (Validate.isValidFile(   ui,            "", targetDestinPath,		false,		false,            1,           false,            false,	    true))
-		    { try { targetDestinSize = Files.size(targetDestinPath); targetDiffFactor = newTargetSourceFCPath.size / targetDestinSize;} catch (IOException ex) { ui.log("Error: Files.size(targetDestinPath); " + ex.getMessage() + "\r\n", true, true, true, true, false); } } else 
+		if (Validate.isValidFile(   ui,            "", targetDestinPath,		false,		false,            1,           false,            false,	    true))
+		{ try { targetDestinSize = Files.size(targetDestinPath); targetDiffFactor = newTargetSourceFCPath.size / targetDestinSize;} catch (IOException ex) { ui.log("Error: Files.size(targetDestinPath); " + ex.getMessage() + "\r\n", true, true, true, true, false); } } else 
 
-		    readTargetSourceChannelPosition = 0;	readTargetSourceChannelTransfered = 0;
-		    readKeySourceChannelPosition = 0;    readKeySourceChannelTransfered = 0;
+		readTargetSourceChannelPosition = 0;	readTargetSourceChannelTransfered = 0;
+		readKeySourceChannelPosition = 0;    readKeySourceChannelTransfered = 0;
 
-		    writeTargetDestChannelPosition = 0;
+		writeTargetDestChannelPosition = 0;
 
-		    targetSourceBuffer = ByteBuffer.allocate(readTargetSourceBufferSize); targetSourceBuffer.clear();
-		    keySourceBuffer = ByteBuffer.allocate(readKeySourceBufferSize); keySourceBuffer.clear();
-		    targetDestinBuffer = ByteBuffer.allocate(wrteTargetDestinBufferSize); targetDestinBuffer.clear();
+		targetSourceBuffer.clear(); keySourceBuffer.clear(); if ( ! smallTarget ) { targetDestinBuffer.clear(); } // A small target's destin stays in the buffer (limit = its length) for shredFileSmall(..)
 
-		    boolean targetDestinEnded = false;
+		boolean targetDestinEnded = false;
 
-		    shredloop: while ( ! targetDestinEnded )
-		    {
-			while (pausing)     { try { Thread.sleep(100); } catch (InterruptedException ex) {  } }
-			if (stopPending)    { targetDestinEnded = true; break shredloop; }
+		shredFileStat.setFileStartEpoch();
+		if (( smallTarget ) && ( ! deferShred ) && ( shredFileSmall(newTargetSourceFCPath, smallTargetDestinBuffers, wrteTargetSourceStat, allDataStats) == RESULT_FAILED )) { return RESULT_FAILED; }
+		if (( engine != ENGINE_LEGACY ) && ( ! deferShred ) && ( ! inPlaceTarget ) && ( ! smallTarget ) && ( shredFileStream(targetDestinPath, newTargetSourceFCPath, wrteTargetSourceStat, allDataStats, true) == RESULT_FAILED )) { return RESULT_FAILED; }
 
-			//read outputFile
+		shredloop: while (( engine == ENGINE_LEGACY ) && ( ! deferShred ) && ( ! inPlaceTarget ) && ( ! smallTarget ) && ( ! targetDestinEnded ))
+		{
+		    while (pausing)     { try { Thread.sleep(100); } catch (InterruptedException ex) {  } }
+		    if (stopPending)    { targetDestinEnded = true; break shredloop; }
+
+		    //read outputFile
 //                            readTargetDestinStat.setFileStartEpoch();
-			try (final SeekableByteChannel readTargetDestinChannel = Files.newByteChannel(targetDestinPath, EnumSet.of(StandardOpenOption.READ)))
-			{
-			    readTargetDestinChannel.position(readTargetDestChannelPosition);
-			    readTargetDestChannelTransfered = readTargetDestinChannel.read(targetDestinBuffer); targetDestinBuffer.flip(); readTargetDestChannelPosition += readTargetDestChannelTransfered;
-			    if (( readTargetDestChannelTransfered < 1 )) { targetDestinEnded = true; }
-			    readTargetDestinChannel.close();
-			} catch (IOException ex) { ui.log("Error: readTargetDestinChannel = Files.newByteChannel(..) " + ex.getMessage() + "\r\n", true, true, true, true, false); continue encryptTargetloop; }
+		    try (final SeekableByteChannel readTargetDestinChannel = Files.newByteChannel(targetDestinPath, EnumSet.of(StandardOpenOption.READ)))
+		    {
+			readTargetDestinChannel.position(readTargetDestChannelPosition);
+			readTargetDestChannelTransfered = readTargetDestinChannel.read(targetDestinBuffer); targetDestinBuffer.flip(); readTargetDestChannelPosition += readTargetDestChannelTransfered;
+			if (( readTargetDestChannelTransfered < 1 )) { targetDestinEnded = true; }
+			readTargetDestinChannel.close();
+		    } catch (IOException ex) { ui.log("Error: readTargetDestinChannel = Files.newByteChannel(..) " + ex.getMessage() + "\r\n", true, true, true, true, false); return RESULT_FAILED; }
 //                            ui.log("readTargetDestChannelTransfered: " + readTargetDestChannelTransfered + " targetDestinBuffer.limit(): " + Integer.toString( targetDestinBuffer.limit()) + "\r\n");
 
-			//shred inputFile
+		    //shred inputFile
 //                            if ( readTargetDestChannelTransfered < 1 )
-			if ( targetDestinBuffer.limit() > 0 )
+		    if ( targetDestinBuffer.limit() > 0 )
+		    {
+			wrteTargetSourceStat.setFileStartEpoch();
+			try (final SeekableByteChannel writeTargetSourceChannel = Files.newByteChannel(newTargetSourceFCPath.path, Durability.getWriteOptions(StandardOpenOption.WRITE)))
 			{
-			    wrteTargetSourceStat.setFileStartEpoch();
-			    try (final SeekableByteChannel writeTargetSourceChannel = Files.newByteChannel(newTargetSourceFCPath.path, EnumSet.of(StandardOpenOption.WRITE,StandardOpenOption.SYNC)))
-			    {
-				// Fill up inputFileBuffer
-				writeTargetSourceChannel.position(writeTargetSourceChannelPosition);
-				writeTargetSourceChannelTransfered = writeTargetSourceChannel.write(targetDestinBuffer); targetSourceBuffer.flip(); writeTargetSourceChannelPosition += writeTargetSourceChannelTransfered;
-				if (( writeTargetSourceChannelTransfered < 1 )) { targetSourceEnded = true; }
-				writeTargetSourceChannel.close();
-				wrteTargetSourceStat.setFileEndEpoch(); wrteTargetSourceStat.clock();
-				wrteTargetSourceStat.addFileBytesProcessed(writeTargetSourceChannelTransfered / 2);
-				allDataStats.addAllDataBytesProcessed("wr src", writeTargetSourceChannelTransfered / 2);
+			    // Fill up inputFileBuffer
+			    writeTargetSourceChannel.position(writeTargetSourceChannelPosition);
+			    writeTargetSourceChannelTransfered = writeTargetSourceChannel.write(targetDestinBuffer); targetSourceBuffer.flip(); writeTargetSourceChannelPosition += writeTargetSourceChannelTransfered;
+			    if (( writeTargetSourceChannelTransfered < 1 )) { targetSourceEnded = true; }
+			    writeTargetSourceChannel.close();
+			    wrteTargetSourceStat.setFileEndEpoch(); wrteTargetSourceStat.clock();
+			    wrteTargetSourceStat.addFileBytesProcessed(writeTargetSourceChannelTransfered / 2);
+			    allDataStats.addAllDataBytesProcessed("wr src", writeTargetSourceChannelTransfered / 2);
 //				    if ( targetDiffFactor < 1 )
 //				    { allDataStats.addAllDataBytesProcessed("wr src", writeTargetSourceChannelTransfered * Math.abs((long)targetDiffFactor)); } else
 //				    { allDataStats.addAllDataBytesProcessed("wr src", writeTargetSourceChannelTransfered / Math.abs((long)targetDiffFactor)); }
 
-			    } catch (IOException ex) { ui.log("Error: writeTargetSourceChannel = Files.newByteChannel(..) " + ex.getMessage() + "\r\n", true, true, true, true, false); continue encryptTargetloop; }
+			} catch (IOException ex) { ui.log("Error: writeTargetSourceChannel = Files.newByteChannel(..) " + ex.getMessage() + "\r\n", true, true, true, true, false); return RESULT_FAILED; }
 //                                ui.log("writeTargetSourceChannelTransfered: " + writeTargetSourceChannelTransfered + " targetDestinBuffer.limit(): " + Integer.toString(targetDestinBuffer.limit()) + "\r\n");
-			}
-			targetDestinBuffer.clear(); targetSourceBuffer.clear(); keySourceBuffer.clear();
 		    }
+		    targetDestinBuffer.clear(); targetSourceBuffer.clear(); keySourceBuffer.clear();
+		}
+		if (( engine == ENGINE_LEGACY ) && ( ! deferShred ) && ( ! inPlaceTarget ) && ( ! smallTarget )) { try { Durability.force(newTargetSourceFCPath.path); } catch (IOException ex) { ui.log("Error: Durability.force(" + newTargetSourceFCPath.path.toString() + "): " + ex.getMessage() + "\r\n", true, true, true, true, false); } }
+		shredFileStat.setFileEndEpoch(); shredFileStat.clock(); shredFileStat.addFileBytesProcessed(newTargetSourceFCPath.size);
 
 //                  FILE STATUS 
-		    if (verbose)
-		    {
-			fileStatusLine += "- Crypt: rd(" +  readTargetSourceStat.getFileBytesThroughPut() + ") -> ";
+		if (verbose)
+		{
+		    fileStatusLine += "- Crypt: rd(" +  readTargetSourceStat.getFileBytesThroughPut() + ") -> ";
 //			    fileStatusLine += "rd(" +           readKeySourceStat.getFileBytesThroughPut() + ") -> ";
 //			    fileStatusLine += "wr(" +           wrteTargetDestinStat.getFileBytesThroughPut() + ") ";
 //			    fileStatusLine += "- Shred: rd(" +  readTargetDestinStat.getFileBytesThroughPut() + ")";
-			fileStatusLine += "wr(" +           wrteTargetSourceStat.getFileBytesThroughPut() + ") ";
+		    fileStatusLine += "wr(" +           wrteTargetSourceStat.getFileBytesThroughPut() + ") ";
+		    String engineString = getEngineString(); if ( inPlaceTarget ) { engineString = "in-place"; } else if ( smallTarget ) { engineString = "small"; }
+		    fileStatusLine += "- " + engineString + ": crypt(" + cryptFileStat.getFileBytesThroughPut() + ") shred(" + shredFileStat.getFileBytesThroughPut() + ") ";
+		    if (( engine == ENGINE_PIPELINE ) && ( ! chunked ) && ( ! inPlaceTarget ) && ( ! smallTarget ))
+		    {
+			fileStatusLine += "stall:";
+			for (int stage = 0; stage < stallStats.length; stage++) { fileStatusLine += " " + STAGE_NAME_ARRAY[stage] + "(" + String.format("%.1f", stallStats[stage].getMSecCounted() / 1000000.0) + " ms)"; }
+			fileStatusLine += " ";
 		    }
-		} // End ! dry
+		}
+	    } // End ! dry
 
-		fileStatusLine += allDataStats.getAllDataBytesProgressPercentage();
-		ui.log(fileStatusLine + "\r\n", true, true, true, false, false);
+	    fileStatusLine += allDataStats.getAllDataBytesProgressPercentage();
+	    ui.log(fileStatusLine + "\r\n", true, true, true, false, false);
 
-		allDataStats.addFilesProcessed(1);
+	    allDataStats.addFilesProcessed(1);
 
 //		if ( print ) { ui.log(" ----------------------------------------------------------------------\r\n"); } // Tail after printheader
 
 
 //              Delete the original
-		if ( ! dry)
-		{
-		    if
-		    (
-			( newTargetSourceFCPath.size != 0 ) && ( targetDestinSize != 0 ) &&
-			( Math.abs(newTargetSourceFCPath.size - targetDestinSize)  == (FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN.length()) * 2 ) ||
-			( newTargetSourceFCPath.size == targetDestinSize)
-		    )
-		    { try { Files.deleteIfExists(newTargetSourceFCPath.path); } catch (IOException ex)    { ui.log("Error: Files.deleteIfExists(inputFilePath): " + ex.getMessage() + "\r\n", true, true, true, true, false); continue encryptTargetloop; } }
-		}
-	    } // else { ui.error(targetSourcePath.toAbsolutePath() + " ignoring:   " + keySourcePath.toAbsolutePath() + " (is key!)\r\n"); }
+	    if (( ! dry) && ( deferShred ))
+	    {
+		synchronized (batchTargetSourceFCPathList) { batchTargetSourceFCPathList.add(newTargetSourceFCPath); batchTargetDestinPathList.add(targetDestinPath); }
+	    }
+	    else if (( ! dry) && ( ! inPlaceTarget ))
+	    {
+		if ( isDeletable(newTargetSourceFCPath.size, targetDestinSize) )
+		{ try { Files.deleteIfExists(newTargetSourceFCPath.path); } catch (IOException ex)    { ui.log("Error: Files.deleteIfExists(inputFilePath): " + ex.getMessage() + "\r\n", true, true, true, true, false); return RESULT_FAILED; } }
+	    }
+	    if (( resumeJournal != null ) && ( ! dry ) && ( ! deferShred )) // Batch targets are done when their batch is committed (commitBatch(..))
+	    { try { resumeJournal.done(newTargetSourceFCPath.path); } catch (IOException ex) { ui.log("Error: ResumeJournal.done(..) " + ex.getMessage() + "\r\n", true, true, true, true, false); } }
+	} // else { ui.error(targetSourcePath.toAbsolutePath() + " ignoring:   " + keySourcePath.toAbsolutePath() + " (is key!)\r\n"); }
+	if ( ! dry ) { ScanCache.remove(oldTargetSourceFCPath.path); ScanCache.remove(targetDestinPath); } // Written with their modification time kept
 	    
 //					     getFCPath(UI ui, String caller,	    Path path, boolean isKey,		 Path keyPath, boolean report)
-	    newTargetSourceFCPath = Validate.getFCPath(   ui,            "", targetDestinPath,		  false, keySourceFCPath.path,	 verbose);
-	    if ( newTargetSourceFCPath.isEncrypted ) { newTargetSourceFCPath.isNewEncrypted = true; } else { newTargetSourceFCPath.isNewDecrypted = true; }
-	    targetSourceFCPathList.updateStat(oldTargetSourceFCPath, newTargetSourceFCPath); ui.fileProgress();
-        } // Encrypt Files Loop // Encrypt Files Loop // Encrypt Files Loop // Encrypt Files Loop
-        allDataStats.setAllDataEndNanoTime(); allDataStats.clock();
-        if ( stopPending ) { ui.log("\r\n", true, false, false, false, false); stopPending = false;  } // It breaks in the middle of encrypting, so the encryption summery needs to begin on a new line
+	newTargetSourceFCPath = Validate.getFCPath(   ui,            "", targetDestinPath,		  false, keySourceFCPath.path,	 verbose);
+	if ( newTargetSourceFCPath.isEncrypted ) { newTargetSourceFCPath.isNewEncrypted = true; } else { newTargetSourceFCPath.isNewDecrypted = true; }
+	targetSourceFCPathList.updateStat(oldTargetSourceFCPath, newTargetSourceFCPath); ui.fileProgress();
+	return RESULT_OK;
+    }
 
-//      Print the stats
-        ui.log(allDataStats.getEndSummary(modeDesc), true, true, true, false, false);
+//  Waits until all submitted files are finished
+    private void waitForWorkers(ArrayList<Future<Integer>> workerFutureList)
+    {
+	for (Future<Integer> workerFuture: workerFutureList)
+	{
+	    try { workerFuture.get(); }
+	    catch (InterruptedException | ExecutionException ex) { ui.log("Error: encryptTarget(..) " + ex.getMessage() + "\r\n", true, true, true, true, false); }
+	}
+	workerFutureList.clear();
+    }
 
-        updateProgressTaskTimer.cancel(); updateProgressTaskTimer.purge();
-//        updateProgressTimeline.stop();
-        ui.processFinished();
+//  Stream engine: encrypts one file keeping the target, key & destin channels open for the whole file (positional I/O, no reopening per buffer)
+    private int encryptFileStream(FCPath targetSourceFCPath, Path targetDestinPath, FCPath keySourceFCPath, long readTargetSourceChannelPosition, long resumeOffset, Stat readTargetSourceStat, Stats allDataStats)
+    {
+	ByteBuffer targetSourceBuffer = BufferPool.lease(readTargetSourceBufferSize);
+	ByteBuffer keySourceBuffer = BufferPool.lease(readKeySourceBufferSize);
+	ByteBuffer targetDestinBuffer = BufferPool.lease(wrteTargetDestinBufferSize);
+	long dataOffset = resumeOffset; // Bytes encrypted so far (key stream position)
+	long checkpointOffset = resumeOffset;
+	long readKeySourceChannelPosition = 0; if ( resumeOffset > 0 ) { readKeySourceChannelPosition = KeyStream.getKeyPosition(resumeOffset / readKeySourceBufferSize, keySourceFCPath.size, readKeySourceBufferSize); } // Whole blocks
+	readTargetSourceChannelPosition += resumeOffset;
+	boolean targetSourceFileEnded = false;
+
+	try
+	(
+	    final FileChannel readTargetSourceChannel = FileChannel.open(targetSourceFCPath.path, EnumSet.of(StandardOpenOption.READ));
+	    final FileChannel readKeySourceChannel = FileChannel.open(keySourceFCPath.path, EnumSet.of(StandardOpenOption.READ));
+	    final FileChannel writeTargetDestinChannel = FileChannel.open(targetDestinPath, Durability.getWriteOptions(StandardOpenOption.CREATE, StandardOpenOption.WRITE));
+	    final KeyPrefetcher keyPrefetcher = getKeyPrefetcher(keySourceFCPath, readKeySourceBufferSize, dataOffset)
+	)
+	{
+	    long writeTargetDestinChannelPosition = writeTargetDestinChannel.size(); // Behind the token (encrypt) or the data of the stopped run
+	    while ( ! targetSourceFileEnded )
+	    {
+		while (pausing)     { try { Thread.sleep(100); } catch (InterruptedException ex) {  } }
+		if (stopPending)
+		{
+		    if ( resumeJournal != null ) { checkpoint(targetSourceFCPath.path, writeTargetDestinChannel, dataOffset, checkpointOffset, true); return RESULT_STOPPED; } // Destin kept for --resume
+		    return deleteStoppedDestin(writeTargetDestinChannel, targetDestinPath); // Broken outputFile, original kept
+		}
+
+		readTargetSourceStat.setFileStartEpoch();
+		long readTargetSourceChannelTransfered = readFully(readTargetSourceChannel, targetSourceBuffer, readTargetSourceChannelPosition); targetSourceBuffer.flip();
+		if ( readTargetSourceChannelTransfered > 0 ) { readTargetSourceChannelPosition += readTargetSourceChannelTransfered; }
+		if (( readTargetSourceChannelTransfered == -1 ) || ( targetSourceBuffer.limit() < readTargetSourceBufferSize )) { targetSourceFileEnded = true; }
+		readTargetSourceStat.setFileEndEpoch(); readTargetSourceStat.clock();
+		readTargetSourceStat.addFileBytesProcessed(readTargetSourceChannelTransfered / 2);
+		allDataStats.addAllDataBytesProcessed("rd src", readTargetSourceChannelTransfered / 2);
+
+		if ( readTargetSourceChannelTransfered != -1 )
+		{
+		    if	    ( keyStream != null )	{ keyStream.fill(keySourceBuffer, 0, dataOffset, targetSourceBuffer.limit()); keySourceBuffer.limit(targetSourceBuffer.limit()); }
+		    else if ( keyPrefetcher != null )	{ keyPrefetcher.fill(keySourceBuffer, 0, dataOffset, targetSourceBuffer.limit()); keySourceBuffer.limit(targetSourceBuffer.limit()); }
+		    else
+		    {
+//			Same key positioning as the legacy engine (a short key read continues from the start of the key)
+			long readKeySourceChannelTransfered = readFully(readKeySourceChannel, keySourceBuffer, readKeySourceChannelPosition); readKeySourceChannelPosition += readKeySourceChannelTransfered;
+			if ( readKeySourceChannelTransfered < readKeySourceBufferSize ) { readKeySourceChannelPosition = 0; readKeySourceChannelTransfered += Math.max(0, readFully(readKeySourceChannel, keySourceBuffer, 0)); readKeySourceChannelPosition += readKeySourceChannelTransfered; }
+			keySourceBuffer.flip();
+		    }
+		    dataOffset += targetSourceBuffer.limit();
+
+		    encryptBuffer(targetSourceBuffer, keySourceBuffer, targetDestinBuffer, true); // last boolean = PrintEnabled
+		    if (txt) { logByteBuffer("DB", targetSourceBuffer); logByteBuffer("CB", keySourceBuffer); logByteBuffer("OB", targetDestinBuffer); }
+		    while ( targetDestinBuffer.hasRemaining() ) { writeTargetDestinChannelPosition += writeTargetDestinChannel.write(targetDestinBuffer, writeTargetDestinChannelPosition); }
+		    checkpointOffset = checkpoint(targetSourceFCPath.path, writeTargetDestinChannel, dataOffset, checkpointOffset, false);
+		}
+		targetSourceBuffer.clear(); keySourceBuffer.clear();
+	    }
+	}
+	catch (IOException ex) { ui.log("Error: encryptFileStream(..) " + ex.getMessage() + "\r\n", true, true, true, true, false); return RESULT_FAILED; }
+	finally { BufferPool.release(targetSourceBuffer); BufferPool.release(keySourceBuffer); BufferPool.release(targetDestinBuffer); }
+	return RESULT_OK;
     }
-    
+
+//  Small file fast path (one buffer): reads the target once and writes token & data with one gathering write
+//  targetDestinBuffers = { token (empty when decrypting), data } stay filled for shredFileSmall(..)
+    private int encryptFileSmall(FCPath targetSourceFCPath, Path targetDestinPath, FCPath keySourceFCPath, long readTargetSourceChannelPosition, ByteBuffer targetSourceBuffer, ByteBuffer keySourceBuffer, ByteBuffer[] targetDestinBuffers, Stat readTargetSourceStat, Stats allDataStats)
+    {
+	targetSourceBuffer.clear(); keySourceBuffer.clear();
+	try
+	(
+	    final FileChannel readTargetSourceChannel = FileChannel.open(targetSourceFCPath.path, EnumSet.of(StandardOpenOption.READ));
+	    final FileChannel writeTargetDestinChannel = FileChannel.open(targetDestinPath, Durability.getWriteOptions(StandardOpenOption.CREATE, StandardOpenOption.WRITE))
+	)
+	{
+	    readTargetSourceStat.setFileStartEpoch();
+	    long readTargetSourceChannelTransfered = readFully(readTargetSourceChannel, targetSourceBuffer, readTargetSourceChannelPosition); targetSourceBuffer.flip();
+
+//	    One block: key bytes from the start of the key (a shorter key is repeated by the key stream)
+	    int bytes = targetSourceBuffer.limit();
+	    keySourceBuffer.limit(bytes);
+	    if ( keyStream != null ) { keyStream.fill(keySourceBuffer, 0, 0, bytes); }
+	    else { try (final FileChannel readKeySourceChannel = FileChannel.open(keySourceFCPath.path, EnumSet.of(StandardOpenOption.READ))) { readFully(readKeySourceChannel, keySourceBuffer, 0); } }
+	    encryptBuffer(targetSourceBuffer, keySourceBuffer, targetDestinBuffers[1], false);
+
+	    while (( targetDestinBuffers[0].hasRemaining() ) || ( targetDestinBuffers[1].hasRemaining() )) { writeTargetDestinChannel.write(targetDestinBuffers); }
+	    readTargetSourceStat.setFileEndEpoch(); readTargetSourceStat.clock();
+	    readTargetSourceStat.addFileBytesProcessed(Math.max(0, readTargetSourceChannelTransfered) / 2);
+	    allDataStats.addAllDataBytesProcessed("rd src", Math.max(0, readTargetSourceChannelTransfered) / 2);
+	}
+	catch (IOException ex) { ui.log("Error: encryptFileSmall(..) " + ex.getMessage() + "\r\n", true, true, true, true, false); return RESULT_FAILED; }
+	return RESULT_OK;
+    }
+
+//  Small file fast path: overwrites the original with the destin content still in memory (one gathering write at position 0)
+//  Only the written destin is used (rewind() keeps the limit of encryptFileSmall(..)), the stats count the data bytes
+    private int shredFileSmall(FCPath targetSourceFCPath, ByteBuffer[] targetDestinBuffers, Stat wrteTargetSourceStat, Stats allDataStats)
+    {
+	for (ByteBuffer targetDestinBuffer : targetDestinBuffers) { targetDestinBuffer.rewind(); }
+	long dataBytes = targetDestinBuffers[1].limit();
+	try (final FileChannel writeTargetSourceChannel = FileChannel.open(targetSourceFCPath.path, Durability.getWriteOptions(StandardOpenOption.WRITE)))
+	{
+	    wrteTargetSourceStat.setFileStartEpoch();
+	    while (( targetDestinBuffers[0].hasRemaining() ) || ( targetDestinBuffers[1].hasRemaining() )) { writeTargetSourceChannel.write(targetDestinBuffers); }
+	    Durability.force(writeTargetSourceChannel);
+	    wrteTargetSourceStat.setFileEndEpoch(); wrteTargetSourceStat.clock();
+	    wrteTargetSourceStat.addFileBytesProcessed(dataBytes / 2);
+	    allDataStats.addAllDataBytesProcessed("wr src", dataBytes / 2);
+	}
+	catch (IOException ex) { ui.log("Error: shredFileSmall(..) " + ex.getMessage() + "\r\n", true, true, true, true, false); return RESULT_FAILED; }
+	return RESULT_OK;
+    }
+
+//  Read-ahead key reader for keys that aren't served from memory (null = key read per block)
+    private KeyPrefetcher getKeyPrefetcher(FCPath keySourceFCPath, int keyBlockSize, long dataOffset) throws IOException
+    {
+	if (( keyStream != null ) || ( keyPrefetchWindow == 0 )) { return null; }
+	return new KeyPrefetcher(keySourceFCPath.path, keySourceFCPath.size, keyBlockSize, keyPrefetchWindow, dataOffset);
+    }
+
+//  Resumable runs: forces the destin and journals the data offset reached, every ResumeJournal.CHECKPOINT_SIZE bytes and when stopping
+    private long checkpoint(Path targetSourcePath, FileChannel writeTargetDestinChannel, long dataOffset, long checkpointOffset, boolean stopping) throws IOException
+    {
+	if (( resumeJournal == null ) || (( ! stopping ) && ( dataOffset - checkpointOffset < ResumeJournal.CHECKPOINT_SIZE ))) { return checkpointOffset; }
+	writeTargetDestinChannel.force(false);
+	resumeJournal.offset(targetSourcePath, dataOffset);
+	return dataOffset;
+    }
+
+//  Data offset a stopped run reached in the destin of the target (0 = start over). The destin is cut back to it (unjournaled writes)
+    private long getResumeOffset(FCPath targetSourceFCPath, Path targetDestinWritePath, boolean token)
+    {
+	if ( resumeJournal == null ) { return 0; }
+	long resumeOffset = resumeJournal.getOffset(targetSourceFCPath.path);
+	long destinOffset = 0; if ( token ) { destinOffset = (FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN.length() * 2); }
+	if (( resumeOffset <= 0 ) || ( ! Files.isRegularFile(targetDestinWritePath, LinkOption.NOFOLLOW_LINKS) )) { return 0; }
+	try (final FileChannel writeTargetDestinChannel = FileChannel.open(targetDestinWritePath, EnumSet.of(StandardOpenOption.WRITE)))
+	{
+	    if ( writeTargetDestinChannel.size() < destinOffset + resumeOffset ) { return 0; }
+	    writeTargetDestinChannel.truncate(destinOffset + resumeOffset);
+	} catch (IOException ex) { ui.log("Error: getResumeOffset(..) " + ex.getMessage() + " (starting over)\r\n", true, true, true, true, false); return 0; }
+	return resumeOffset;
+    }
+
+//  In-place mode: XORs the blocks of the target where they are (shifted over the token: encrypt +140, decrypt -140 bytes) and renames it
+//  One read & one write pass instead of crypt + shred (read, write, read, write) and no free space needed for a copy
+    private int encryptFileInPlace(FCPath targetSourceFCPath, Path targetDestinPath, FCPath keySourceFCPath, boolean writeToken, long readTargetSourceChannelPosition, Stat readTargetSourceStat, Stat wrteTargetSourceStat, Stats allDataStats)
+    {
+	long destinOffset = 0; if ( writeToken ) { destinOffset = (FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN.length() * 2); }
+	InPlaceJournal journal = new InPlaceJournal(targetSourceFCPath.path, targetDestinPath, keySourceFCPath.path, readTargetSourceChannelPosition, destinOffset, targetSourceFCPath.size - readTargetSourceChannelPosition, keySourceFCPath.size, readTargetSourceBufferSize, writeToken);
+	if ( Files.exists(journal.getJournalPath()) ) { ui.log("Error: Interrupted in-place conversion pending: " + journal.getJournalPath().toString() + " (recovered with its own key)\r\n", true, true, true, true, false); return RESULT_FAILED; }
+
+//	Same file (owner, permissions & DOS attributes stay), only the times the conversion changes are restored after the rename
+	BasicFileAttributes basicAttributes = null;
+	try { basicAttributes = Files.readAttributes(targetSourceFCPath.path, BasicFileAttributes.class); } catch (IOException ex) { ui.log("Error: basicAttributes = Files.readAttributes(..): " + ex.getMessage() + "\r\n", true, true, true, true, false); }
+	int result = convertInPlace(journal, false, readTargetSourceStat, wrteTargetSourceStat, allDataStats);
+	if (( result == RESULT_OK ) && ( basicAttributes != null ))
+	{
+	    try { Files.getFileAttributeView(targetDestinPath, BasicFileAttributeView.class).setTimes(basicAttributes.lastModifiedTime(), basicAttributes.lastAccessTime(), basicAttributes.creationTime()); }
+	    catch (IOException ex) { ui.log("Error: Set Basic Attributes: " + ex.getMessage() + "\r\n", true, true, true, true, false); }
+	}
+	return result;
+    }
+
+//  Converts the target of journal block by block (redoing the recorded block when resuming) and finishes it with token, truncation & rename
+//  Not stoppable halfway, a partly converted file is neither plain nor encrypted
+    private int convertInPlace(InPlaceJournal journal, boolean resume, Stat readTargetSourceStat, Stat wrteTargetSourceStat, Stats allDataStats)
+    {
+	if (( journal.block == InPlaceJournal.BLOCK_FINISHING ) && ( Files.notExists(journal.targetSourcePath) ) && ( Files.exists(journal.targetDestinPath) ))
+	{
+	    try { journal.delete(); } catch (IOException ex) { ui.log("Error: journal.delete(): " + ex.getMessage() + "\r\n", true, true, true, true, false); }
+	    return RESULT_OK; // Renamed before the crash
+	}
+
+	long blocks = journal.getBlocks();
+	long step = 1; long firstBlock = 0; if ( ! journal.isForward() ) { step = -1; firstBlock = blocks - 1; } // Shifting towards the end starts at the end
+	ByteBuffer redoSourceBuffer = null;
+	if	( journal.block == InPlaceJournal.BLOCK_FINISHING )	{ firstBlock = -1; }
+	else if ( journal.block >= 0 )				{ firstBlock = journal.block; redoSourceBuffer = journal.sourceBuffer; }
+
+//	Key smaller than the blocks: repeated by a key stream (key block size = key size), also when recovering a journal of an earlier run
+	KeyStream journalKeyStream = null;
+	int keyBlockSize = (int)Math.min(journal.keySize, journal.blockSize);
+	if (( keyStream != null ) && ( keyStream.matches(journal.keySourcePath, journal.keySize, keyBlockSize) )) { journalKeyStream = keyStream; }
+	else if ( journal.keySize < journal.blockSize )
+	{
+	    try { journalKeyStream = new KeyStream(journal.keySourcePath, journal.keySize, keyBlockSize); }
+	    catch (IOException ex) { ui.log("Error: KeyStream(..) " + ex.getMessage() + " (completed on the next run with this key)\r\n", true, true, true, true, false); return RESULT_FAILED; }
+	}
+
+	ByteBuffer targetSourceBuffer = BufferPool.lease(journal.blockSize);
+	ByteBuffer keySourceBuffer = BufferPool.lease(journal.blockSize);
+	ByteBuffer targetDestinBuffer = BufferPool.lease(journal.blockSize);
+	try
+	(
+	    final FileChannel journalChannel = ( resume ) ? journal.open() : journal.create();
+	    final FileChannel targetChannel = FileChannel.open(journal.targetSourcePath, Durability.getWriteOptions(StandardOpenOption.READ, StandardOpenOption.WRITE));
+	    final FileChannel readKeySourceChannel = FileChannel.open(journal.keySourcePath, EnumSet.of(StandardOpenOption.READ))
+	)
+	{
+	    for (long block = firstBlock; ( block >= 0 ) && ( block < blocks ); block += step)
+	    {
+		while (pausing)     { try { Thread.sleep(100); } catch (InterruptedException ex) {  } }
+
+		readTargetSourceStat.setFileStartEpoch();
+		int bytes = (int)Math.min(journal.blockSize, journal.dataLength - (block * journal.blockSize));
+		targetSourceBuffer.clear(); targetSourceBuffer.limit(bytes);
+		if ( redoSourceBuffer != null )	{ redoSourceBuffer.rewind(); targetSourceBuffer.put(redoSourceBuffer); redoSourceBuffer = null; } // Source bytes may be overwritten partly
+		else if ( readFully(targetChannel, targetSourceBuffer, journal.sourceOffset + (block * journal.blockSize)) != bytes ) { throw new IOException("Unexpected end of file"); }
+		journal.record(journalChannel, block, targetSourceBuffer, bytes);
+
+//		Key bytes continue from the start of the key when the end of the key is reached (same positions as the other engines)
+		keySourceBuffer.clear(); keySourceBuffer.limit(bytes);
+		if ( journalKeyStream != null ) { journalKeyStream.fill(keySourceBuffer, 0, block * journal.blockSize, bytes); }
+		else
+		{
+		    long keyPosition = KeyStream.getKeyPosition(block, journal.keySize, journal.blockSize); if ( keyPosition >= journal.keySize ) { keyPosition = 0; }
+		    if ( readFully(readKeySourceChannel, keySourceBuffer, keyPosition) < bytes ) { readFully(readKeySourceChannel, keySourceBuffer, 0); }
+		}
+		readTargetSourceStat.setFileEndEpoch(); readTargetSourceStat.clock();
+
+		wrteTargetSourceStat.setFileStartEpoch();
+		targetDestinBuffer.clear(); targetDestinBuffer.limit(bytes);
+		XORKernel.xor(targetSourceBuffer, 0, keySourceBuffer, 0, targetDestinBuffer, 0, bytes);
+		long writeTargetChannelPosition = journal.destinOffset + (block * journal.blockSize);
+		while ( targetDestinBuffer.hasRemaining() ) { writeTargetChannelPosition += targetChannel.write(targetDestinBuffer, writeTargetChannelPosition); }
+		Durability.force(targetChannel); // Before the next record replaces this one (LEVEL_WRITE channels are opened with SYNC)
+		wrteTargetSourceStat.setFileEndEpoch(); wrteTargetSourceStat.clock();
+
+		readTargetSourceStat.addFileBytesProcessed(bytes / 2);	allDataStats.addAllDataBytesProcessed("rd src", bytes / 2);
+		wrteTargetSourceStat.addFileBytesProcessed(bytes / 2);	allDataStats.addAllDataBytesProcessed("wr src", bytes / 2);
+	    }
+
+	    journal.recordFinishing(journalChannel);
+	    if ( journal.writeToken )
+	    {
+		ByteBuffer targetDestinTokenBuffer = createTargetDestinToken(journal.keySourcePath);
+		long writeTargetChannelPosition = 0; while ( targetDestinTokenBuffer.hasRemaining() ) { writeTargetChannelPosition += targetChannel.write(targetDestinTokenBuffer, writeTargetChannelPosition); }
+	    }
+	    if ( journal.destinOffset < journal.sourceOffset ) { targetChannel.truncate(journal.destinOffset + journal.dataLength); } // Token removed
+	    targetChannel.force(true);
+	}
+	catch (IOException ex) { ui.log("Error: convertInPlace(..) " + ex.getMessage() + " (completed on the next run with this key)\r\n", true, true, true, true, false); return RESULT_FAILED; }
+	finally { BufferPool.release(targetSourceBuffer); BufferPool.release(keySourceBuffer); BufferPool.release(targetDestinBuffer); }
+
+	try
+	{
+	    Files.move(journal.targetSourcePath, journal.targetDestinPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	    Durability.forceDirectory(journal.targetDestinPath.getParent());
+	    journal.delete();
+	} catch (IOException ex) { ui.log("Error: convertInPlace(..) rename " + journal.targetSourcePath.toString() + ": " + ex.getMessage() + "\r\n", true, true, true, true, false); return RESULT_FAILED; }
+	return RESULT_OK;
+    }
+
+//  Completes the in-place conversions a crash or power loss interrupted (journals of keySourceFCPath only) and returns their original paths
+    public HashSet<Path> recoverInPlace(FCPath keySourceFCPath) { HashSet<Path> recoveredPathSet = recoverInPlace(new FCPathList<>(), keySourceFCPath); ScanCache.save(ui); return recoveredPathSet; }
+
+    private HashSet<Path> recoverInPlace(FCPathList<FCPath> targetSourceFCPathList, FCPath keySourceFCPath)
+    {
+	HashSet<Path> recoveredPathSet = new HashSet<>();
+	for (Path journalPath : InPlaceJournal.getJournalPathList())
+	{
+	    InPlaceJournal journal = null;
+	    try { journal = InPlaceJournal.read(journalPath); } catch (IOException ex) { ui.log("Error: InPlaceJournal.read(" + journalPath.toString() + "): " + ex.getMessage() + "\r\n", true, true, true, true, false); continue; }
+	    if ( journal == null ) { try { Files.deleteIfExists(journalPath); } catch (IOException ex) { } continue; } // Header incomplete, no block was touched yet
+	    if (( ! journal.keySourcePath.equals(keySourceFCPath.path.toAbsolutePath().normalize()) ) || ( journal.keySize != keySourceFCPath.size )) { ui.log("Warning: Interrupted in-place conversion of \"" + journal.targetSourcePath.toString() + "\" needs key: " + journal.keySourcePath.toString() + "\r\n", true, true, true, false, false); continue; }
+
+	    ui.log("Recovering in-place conversion \"" + journal.targetDestinPath.toString() + "\" ", true, true, true, false, false);
+	    Stat readTargetSourceStat = new Stat(); readTargetSourceStat.reset();
+	    Stat wrteTargetSourceStat = new Stat(); wrteTargetSourceStat.reset();
+	    if ( convertInPlace(journal, true, readTargetSourceStat, wrteTargetSourceStat, new Stats()) != RESULT_OK ) { ui.log("failed\r\n", true, true, true, false, false); continue; }
+	    ui.log("completed\r\n", true, true, true, false, false);
+	    recoveredPathSet.add(journal.targetSourcePath); ScanCache.remove(journal.targetSourcePath); ScanCache.remove(journal.targetDestinPath);
+
+	    for (FCPath targetSourceFCPath : targetSourceFCPathList)
+	    {
+		if ( targetSourceFCPath.path.toAbsolutePath().normalize().equals(journal.targetSourcePath) )
+		{
+		    FCPath newTargetSourceFCPath = Validate.getFCPath(ui, "", journal.targetDestinPath, false, keySourceFCPath.path, verbose);
+		    if ( newTargetSourceFCPath.isEncrypted ) { newTargetSourceFCPath.isNewEncrypted = true; } else { newTargetSourceFCPath.isNewDecrypted = true; }
+		    targetSourceFCPathList.updateStat(targetSourceFCPath, newTargetSourceFCPath); break;
+		}
+	    }
+	}
+	return recoveredPathSet;
+    }
+
+//  Pipeline engine: a reader thread, a XOR thread and the writer (calling thread) pass a ring of pipelineDepth reusable buffer sets around
+//  Reading block N + 1 overlaps with the XOR of block N and the write of block N - 1. stallStats gets the time every stage waited for a buffer set
+    private int encryptFilePipeline(FCPath targetSourceFCPath, Path targetDestinPath, FCPath keySourceFCPath, long readTargetSourceChannelPosition, Stat readTargetSourceStat, Stats allDataStats, Stat[] stallStats)
+    {
+	int blockSize = readTargetSourceBufferSize;
+	ArrayBlockingQueue<PipelineSlot> freeQueue = new ArrayBlockingQueue<>(pipelineDepth);
+	ArrayBlockingQueue<PipelineSlot> readQueue = new ArrayBlockingQueue<>(pipelineDepth + 1); // + end slot
+	ArrayBlockingQueue<PipelineSlot> xorQueue = new ArrayBlockingQueue<>(pipelineDepth + 1);
+	ArrayList<PipelineSlot> slotList = new ArrayList<>();
+	for (int slot = 0; slot < pipelineDepth; slot++) { slotList.add(new PipelineSlot(blockSize)); }
+	freeQueue.addAll(slotList);
+	final PipelineSlot endSlot = new PipelineSlot(0); // Never returned to the pool (not in slotList)
+	final AtomicReference<IOException> readError = new AtomicReference<>();
+	final AtomicBoolean readStopped = new AtomicBoolean(false);
+	final AtomicBoolean pipelineStopped = new AtomicBoolean(false); // Writer failed, the reader stops
+
+	try
+	(
+	    final FileChannel readTargetSourceChannel = FileChannel.open(targetSourceFCPath.path, EnumSet.of(StandardOpenOption.READ));
+	    final FileChannel readKeySourceChannel = FileChannel.open(keySourceFCPath.path, EnumSet.of(StandardOpenOption.READ));
+	    final FileChannel writeTargetDestinChannel = FileChannel.open(targetDestinPath, Durability.getWriteOptions(StandardOpenOption.CREATE, StandardOpenOption.WRITE));
+	    final KeyPrefetcher keyPrefetcher = getKeyPrefetcher(keySourceFCPath, blockSize, 0)
+	)
+	{
+	    long writeTargetDestinChannelStartPosition = writeTargetDestinChannel.size(); // Behind the token (encrypt)
+
+//	    Reader: target & key (same key positioning as the legacy engine)
+	    Future<?> readFuture = pipelineService.submit(() ->
+	    {
+		long readTargetSourceChannelPositionNext = readTargetSourceChannelPosition;
+		long readKeySourceChannelPosition = 0;
+		long dataOffset = 0;
+		try
+		{
+		    boolean targetSourceFileEnded = false;
+		    while ( ! targetSourceFileEnded )
+		    {
+			while (pausing)     { Thread.sleep(100); }
+			if ( pipelineStopped.get() ) { break; }
+			if (stopPending)    { readStopped.set(true); break; }
+			PipelineSlot slot = takeSlot(freeQueue, stallStats[STAGE_READ]);
+			if ( slot == endSlot ) { break; } // Woken by stopPipeline(..)
+			slot.targetSourceBuffer.clear(); slot.keySourceBuffer.clear();
+			long readTargetSourceChannelTransfered = readFully(readTargetSourceChannel, slot.targetSourceBuffer, readTargetSourceChannelPositionNext); slot.targetSourceBuffer.flip();
+			if ( readTargetSourceChannelTransfered == -1 ) { freeQueue.put(slot); break; }
+			readTargetSourceChannelPositionNext += readTargetSourceChannelTransfered;
+			if ( readTargetSourceChannelTransfered < blockSize ) { targetSourceFileEnded = true; }
+
+			if	( keyStream != null )	    { keyStream.fill(slot.keySourceBuffer, 0, dataOffset, (int)readTargetSourceChannelTransfered); slot.keySourceBuffer.limit((int)readTargetSourceChannelTransfered); }
+			else if ( keyPrefetcher != null )   { keyPrefetcher.fill(slot.keySourceBuffer, 0, dataOffset, (int)readTargetSourceChannelTransfered); slot.keySourceBuffer.limit((int)readTargetSourceChannelTransfered); }
+			else
+			{
+			    long readKeySourceChannelTransfered = readFully(readKeySourceChannel, slot.keySourceBuffer, readKeySourceChannelPosition); readKeySourceChannelPosition += readKeySourceChannelTransfered;
+			    if ( readKeySourceChannelTransfered < blockSize ) { readKeySourceChannelPosition = 0; readKeySourceChannelTransfered += Math.max(0, readFully(readKeySourceChannel, slot.keySourceBuffer, 0)); readKeySourceChannelPosition += readKeySourceChannelTransfered; }
+			    slot.keySourceBuffer.flip();
+			}
+			dataOffset += readTargetSourceChannelTransfered;
+			slot.bytes = (int)readTargetSourceChannelTransfered;
+			readQueue.put(slot);
+		    }
+		}
+		catch (IOException ex)		{ readError.set(ex); }
+		catch (RuntimeException ex)	{ readError.set(new IOException(ex.toString(), ex)); } // The writer waits for the end slot
+		catch (InterruptedException ex) { return null; }
+		readQueue.put(endSlot);
+		return null;
+	    });
+
+//	    XOR stage
+	    Future<?> xorFuture = pipelineService.submit(() ->
+	    {
+		PipelineSlot slot;
+		while ( (slot = takeSlot(readQueue, stallStats[STAGE_XOR])) != endSlot )
+		{
+		    XORKernel.xor(slot.targetSourceBuffer, 0, slot.keySourceBuffer, 0, slot.targetDestinBuffer, 0, slot.bytes);
+		    slot.targetDestinBuffer.clear(); slot.targetDestinBuffer.limit(slot.bytes);
+		    xorQueue.put(slot);
+		}
+		xorQueue.put(endSlot);
+		return null;
+	    });
+
+//	    Writer
+	    long writeTargetDestinChannelPosition = writeTargetDestinChannelStartPosition;
+	    long checkpointOffset = 0;
+	    readTargetSourceStat.setFileStartEpoch();
+	    try
+	    {
+		PipelineSlot slot;
+		while ( (slot = takeSlot(xorQueue, stallStats[STAGE_WRITE])) != endSlot )
+		{
+		    while ( slot.targetDestinBuffer.hasRemaining() ) { writeTargetDestinChannelPosition += writeTargetDestinChannel.write(slot.targetDestinBuffer, writeTargetDestinChannelPosition); }
+		    checkpointOffset = checkpoint(targetSourceFCPath.path, writeTargetDestinChannel, writeTargetDestinChannelPosition - writeTargetDestinChannelStartPosition, checkpointOffset, false);
+		    readTargetSourceStat.addFileBytesProcessed(slot.bytes / 2);
+		    allDataStats.addAllDataBytesProcessed("rd src", slot.bytes / 2);
+		    freeQueue.put(slot);
+		}
+		readFuture.get(); xorFuture.get();
+	    }
+	    catch (IOException | InterruptedException | ExecutionException ex) { ui.log("Error: encryptFilePipeline(..) " + ex.getMessage() + "\r\n", true, true, true, true, false); return RESULT_FAILED; }
+	    finally { stopPipeline(pipelineStopped, freeQueue, endSlot, readFuture, xorFuture); } // Before the slots are released & the channels closed
+	    readTargetSourceStat.setFileEndEpoch(); readTargetSourceStat.clock();
+
+	    if ( readError.get() != null ) { ui.log("Error: encryptFilePipeline(..) " + readError.get().getMessage() + "\r\n", true, true, true, true, false); return RESULT_FAILED; }
+	    if ( readStopped.get() )
+	    {
+		if ( resumeJournal != null ) { checkpoint(targetSourceFCPath.path, writeTargetDestinChannel, writeTargetDestinChannelPosition - writeTargetDestinChannelStartPosition, checkpointOffset, true); return RESULT_STOPPED; } // Destin kept for --resume
+		return deleteStoppedDestin(writeTargetDestinChannel, targetDestinPath); // Broken outputFile, original kept
+	    }
+	}
+	catch (IOException ex) { ui.log("Error: encryptFilePipeline(..) " + ex.getMessage() + "\r\n", true, true, true, true, false); return RESULT_FAILED; }
+	finally { for (PipelineSlot slot : slotList) { slot.release(); } }
+	return RESULT_OK;
+    }
+
+//  Pipeline engine: one buffer set of the ring (bytes = number of valid target bytes)
+    private static class PipelineSlot
+    {
+	private final ByteBuffer targetSourceBuffer;
+	private final ByteBuffer keySourceBuffer;
+	private final ByteBuffer targetDestinBuffer;
+	private int bytes = 0;
+
+	private PipelineSlot(int size) { targetSourceBuffer = BufferPool.lease(size); keySourceBuffer = BufferPool.lease(size); targetDestinBuffer = BufferPool.lease(size); }
+	private void release() { BufferPool.release(targetSourceBuffer); BufferPool.release(keySourceBuffer); BufferPool.release(targetDestinBuffer); }
+    }
+
+//  Pipeline engine: stops the reader (the XOR stage ends with its end slot) and waits until both stages are finished, as they may
+//  still use a buffer set, a channel or the key prefetcher (XORKernel.xor(..) can't be interrupted)
+    private static void stopPipeline(AtomicBoolean pipelineStopped, ArrayBlockingQueue<PipelineSlot> freeQueue, PipelineSlot endSlot, Future<?>... stageFutures)
+    {
+	pipelineStopped.set(true); freeQueue.offer(endSlot); // Wakes a reader waiting for a free buffer set
+	boolean interrupted = false;
+	for (Future<?> stageFuture : stageFutures)
+	{
+	    while (true)
+	    {
+		try { stageFuture.get(); break; }
+		catch (InterruptedException ex) { interrupted = true; }
+		catch (ExecutionException | CancellationException ex) { break; } // Reported by the writer
+	    }
+	}
+	if ( interrupted ) { Thread.currentThread().interrupt(); }
+    }
+
+//  Takes the next buffer set adding the waiting time to the stall time of the stage
+    private static PipelineSlot takeSlot(ArrayBlockingQueue<PipelineSlot> queue, Stat stallStat) throws InterruptedException
+    {
+	long startNanoTime = System.nanoTime();
+	PipelineSlot slot = queue.take();
+	stallStat.addMSecCounted(System.nanoTime() - startNanoTime);
+	return slot;
+    }
+
+//  Chunk mode: splits one file in chunks of whole buffers that are encrypted concurrently on the chunk workers (positional I/O on shared channels)
+//  The token is already written. Every chunk computes its own key position with KeyStream.getKeyPosition(..), so the result is the same as sequential
+    private int encryptFileChunked(FCPath targetSourceFCPath, Path targetDestinPath, FCPath keySourceFCPath, long readTargetSourceChannelPosition, Stat readTargetSourceStat, Stats allDataStats)
+    {
+	int blockSize = readTargetSourceBufferSize;
+	long chunkSize = Math.max(blockSize, (CHUNK_SIZE / blockSize) * blockSize);
+	boolean failed = false;
+
+	try
+	(
+	    final FileChannel readTargetSourceChannel = FileChannel.open(targetSourceFCPath.path, EnumSet.of(StandardOpenOption.READ));
+	    final FileChannel readKeySourceChannel = FileChannel.open(keySourceFCPath.path, EnumSet.of(StandardOpenOption.READ));
+	    final FileChannel writeTargetDestinChannel = FileChannel.open(targetDestinPath, Durability.getWriteOptions(StandardOpenOption.CREATE, StandardOpenOption.WRITE))
+	)
+	{
+	    long writeTargetDestinChannelPosition = writeTargetDestinChannel.size(); // Behind the token (encrypt)
+	    long targetSourceLength = readTargetSourceChannel.size() - readTargetSourceChannelPosition;
+	    ArrayList<Future<Object>> chunkFutureList = new ArrayList<>();
+	    for (long chunkOffset = 0; chunkOffset < targetSourceLength; chunkOffset += chunkSize)
+	    {
+		final long offset = chunkOffset; final long length = Math.min(chunkSize, targetSourceLength - chunkOffset);
+		chunkFutureList.add(chunkService.submit(() ->
+		{
+		    encryptChunk(readTargetSourceChannel, readTargetSourceChannelPosition + offset, readKeySourceChannel, keySourceFCPath.size, offset / blockSize, writeTargetDestinChannel, writeTargetDestinChannelPosition + offset, length, blockSize, readTargetSourceStat, allDataStats);
+		    return null;
+		}));
+	    }
+	    for (Future<Object> chunkFuture: chunkFutureList)
+	    {
+		try { chunkFuture.get(); }
+		catch (InterruptedException | ExecutionException ex) { ui.log("Error: encryptChunk(..) " + ex.getMessage() + "\r\n", true, true, true, true, false); failed = true; }
+	    }
+	    if (stopPending)
+	    {
+		return deleteStoppedDestin(writeTargetDestinChannel, targetDestinPath); // Broken outputFile, original kept
+	    }
+	} catch (IOException ex) { ui.log("Error: encryptFileChunked(..) " + ex.getMessage() + "\r\n", true, true, true, true, false); return RESULT_FAILED; }
+	if ( failed ) { return RESULT_FAILED; } else { return RESULT_OK; }
+    }
+
+//  Encrypts length bytes starting at block number firstBlock of the target (no buffer allocation per block)
+    private void encryptChunk(FileChannel readTargetSourceChannel, long readTargetSourceChannelPosition, FileChannel readKeySourceChannel, long keySize, long firstBlock, FileChannel writeTargetDestinChannel, long writeTargetDestinChannelPosition, long length, int blockSize, Stat readTargetSourceStat, Stats allDataStats) throws IOException
+    {
+	ByteBuffer targetSourceBuffer = BufferPool.lease(blockSize);
+	ByteBuffer keySourceBuffer = BufferPool.lease(blockSize);
+	ByteBuffer targetDestinBuffer = BufferPool.lease(blockSize);
+	long block = firstBlock;
+
+	try
+	{
+		for (long offset = 0; offset < length; offset += blockSize, block++)
+		{
+		    while (pausing)     { try { Thread.sleep(100); } catch (InterruptedException ex) {  } }
+		    if (stopPending)    { return; }
+
+		    long startNanoTime = System.nanoTime();
+		    int bytes = (int)Math.min(blockSize, length - offset);
+		    targetSourceBuffer.clear(); targetSourceBuffer.limit(bytes);
+		    if ( readFully(readTargetSourceChannel, targetSourceBuffer, readTargetSourceChannelPosition + offset) != bytes ) { throw new IOException("Unexpected end of file"); }
+
+	//	    Key bytes continue from the start of the key when the end of the key is reached
+		    keySourceBuffer.clear(); keySourceBuffer.limit(bytes);
+		    if ( keyStream != null ) { keyStream.fill(keySourceBuffer, 0, block * blockSize, bytes); }
+		    else
+		    {
+			long keyPosition = KeyStream.getKeyPosition(block, keySize, blockSize); if ( keyPosition >= keySize ) { keyPosition = 0; }
+			long keyTransfered = readFully(readKeySourceChannel, keySourceBuffer, keyPosition);
+			if ( keyTransfered < bytes ) { readFully(readKeySourceChannel, keySourceBuffer, 0); }
+		    }
+
+		    XORKernel.xor(targetSourceBuffer, 0, keySourceBuffer, 0, targetDestinBuffer, 0, bytes);
+		    targetDestinBuffer.clear(); targetDestinBuffer.limit(bytes);
+		    long writeTargetDestinChannelTransfered = 0;
+		    while ( targetDestinBuffer.hasRemaining() ) { writeTargetDestinChannelTransfered += writeTargetDestinChannel.write(targetDestinBuffer, writeTargetDestinChannelPosition + offset + writeTargetDestinChannelTransfered); }
+
+		    readTargetSourceStat.addMSecCounted(System.nanoTime() - startNanoTime);
+		    readTargetSourceStat.addFileBytesProcessed(bytes / 2);
+		    allDataStats.addAllDataBytesProcessed("rd src", bytes / 2);
+		}
+	}
+	finally { BufferPool.release(targetSourceBuffer); BufferPool.release(keySourceBuffer); BufferPool.release(targetDestinBuffer); }
+    }
+
+//  Mmap engine: maps target, key & destin in windows and XORs straight between the mappings (no heap buffers)
+    private int encryptFileMapped(FCPath targetSourceFCPath, Path targetDestinPath, FCPath keySourceFCPath, long readTargetSourceChannelPosition, Stat readTargetSourceStat, Stats allDataStats)
+    {
+	if (( ! Files.isRegularFile(targetSourceFCPath.path) ) || ( ! Files.isRegularFile(keySourceFCPath.path) )) { return RESULT_FALLBACK; } // Devices can't be mapped reliably
+
+	int blockSize = readTargetSourceBufferSize; // Same key positioning per block as the other engines
+	long windowSize = Math.max(blockSize, (MMAP_WINDOW_SIZE / blockSize) * blockSize); // Whole blocks per window
+	long keySize = keySourceFCPath.size;
+	long readKeySourceChannelPosition = 0;
+
+	try
+	(
+	    final FileChannel readTargetSourceChannel = FileChannel.open(targetSourceFCPath.path, EnumSet.of(StandardOpenOption.READ));
+	    final FileChannel readKeySourceChannel = FileChannel.open(keySourceFCPath.path, EnumSet.of(StandardOpenOption.READ));
+	    final FileChannel writeTargetDestinChannel = FileChannel.open(targetDestinPath, EnumSet.of(StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE))
+	)
+	{
+	    long targetDestinStartSize = writeTargetDestinChannel.size(); // Behind the token (encrypt)
+	    long targetSourceSize = readTargetSourceChannel.size();
+	    long targetSourcePosition = readTargetSourceChannelPosition;
+	    long targetDestinPosition = targetDestinStartSize;
+	    MappedByteBuffer targetSourceMap = null;
+	    MappedByteBuffer targetDestinMap = null;
+	    KeyMapping keyMapping = null;
+
+	    try
+	    {
+		while ( targetSourcePosition < targetSourceSize )
+		{
+		    long windowLength = Math.min(windowSize, targetSourceSize - targetSourcePosition);
+		    targetSourceMap = readTargetSourceChannel.map(FileChannel.MapMode.READ_ONLY, targetSourcePosition, windowLength);
+		    targetDestinMap = writeTargetDestinChannel.map(FileChannel.MapMode.READ_WRITE, targetDestinPosition, windowLength);
+
+		    for (int block = 0; block < windowLength; block += blockSize)
+		    {
+			while (pausing)     { try { Thread.sleep(100); } catch (InterruptedException ex) {  } }
+			if (stopPending)
+			{
+			    unmap(targetSourceMap); unmap(targetDestinMap); return deleteStoppedDestin(writeTargetDestinChannel, targetDestinPath); // Broken outputFile, original kept
+			}
+
+			readTargetSourceStat.setFileStartEpoch();
+			int length = (int)Math.min(blockSize, windowLength - block);
+			if ( keyStream != null ) // Straight from the cached key
+			{
+			    keyStream.xor(targetSourceMap, block, targetDestinMap, block, (targetSourcePosition - readTargetSourceChannelPosition) + block, length);
+			    readTargetSourceStat.setFileEndEpoch(); readTargetSourceStat.clock();
+			    readTargetSourceStat.addFileBytesProcessed(length / 2);
+			    allDataStats.addAllDataBytesProcessed("rd src", length / 2);
+			    continue;
+			}
+			long keyStart = ( readKeySourceChannelPosition < keySize ) ? readKeySourceChannelPosition : 0;
+			int keyLength = (int)Math.min(length, keySize - keyStart);
+			keyMapping = getKeyMapping(keyMapping, readKeySourceChannel, keySourceFCPath.path, keySize, keyStart, keyLength);
+			XORKernel.xor(targetSourceMap, block, keyMapping.buffer, (int)(keyStart - keyMapping.position), targetDestinMap, block, keyLength);
+			if ( keyLength < length ) // Key continues from its beginning
+			{
+			    keyMapping = getKeyMapping(keyMapping, readKeySourceChannel, keySourceFCPath.path, keySize, 0, length - keyLength);
+			    XORKernel.xor(targetSourceMap, block + keyLength, keyMapping.buffer, (int)(0 - keyMapping.position), targetDestinMap, block + keyLength, length - keyLength);
+			}
+			readKeySourceChannelPosition = KeyStream.getNextKeyPosition(readKeySourceChannelPosition, keySize, blockSize);
+			readTargetSourceStat.setFileEndEpoch(); readTargetSourceStat.clock();
+			readTargetSourceStat.addFileBytesProcessed(length / 2);
+			allDataStats.addAllDataBytesProcessed("rd src", length / 2);
+		    }
+
+		    if ( Durability.getLevel() == Durability.LEVEL_WRITE ) { targetDestinMap.force(); }
+		    unmap(targetSourceMap); unmap(targetDestinMap); targetSourceMap = null; targetDestinMap = null;
+		    targetSourcePosition += windowLength; targetDestinPosition += windowLength;
+		}
+	    }
+	    catch (IOException ex) // Mapping failed (e.g. address space), restore destin for the stream engine
+	    {
+		unmap(targetSourceMap); unmap(targetDestinMap);
+		ui.log("Warning: encryptFileMapped(..) " + ex.getMessage() + " falling back to stream engine\r\n", true, true, true, false, false);
+		writeTargetDestinChannel.truncate(targetDestinStartSize);
+		readTargetSourceStat.setFileBytesProcessed(0);
+		return RESULT_FALLBACK;
+	    }
+	} catch (IOException ex) { ui.log("Error: encryptFileMapped(..) " + ex.getMessage() + "\r\n", true, true, true, true, false); return RESULT_FAILED; }
+	return RESULT_OK;
+    }
+
+//  Read-only key window: buffer index 0 is key[position]. Immutable, so it can be shared by workers
+    private static class KeyMapping
+    {
+	private final Path		path;
+	private final long		position;
+	private final MappedByteBuffer	buffer;
+
+	private KeyMapping(Path path, long position, MappedByteBuffer buffer) { this.path = path; this.position = position; this.buffer = buffer; }
+	private boolean contains(Path keyPath, long keyPosition, int length) { return ( path.equals(keyPath) ) && ( keyPosition >= position ) && ( keyPosition + length <= position + buffer.capacity() ); }
+    }
+
+//  Returns a key mapping containing key[position .. position + length>. Keys up to MMAP_WINDOW_SIZE are mapped once and shared by all files
+//  Larger keys get a window per file (current) that moves along with the key position. Key mappings are never unmapped explicitly
+    private KeyMapping getKeyMapping(KeyMapping current, FileChannel keyChannel, Path keyPath, long keySize, long position, int length) throws IOException
+    {
+	if ( keySize <= MMAP_WINDOW_SIZE )
+	{
+	    synchronized (this)
+	    {
+		if (( sharedKeyMapping == null ) || ( ! sharedKeyMapping.contains(keyPath, position, length) )) { sharedKeyMapping = new KeyMapping(keyPath, 0, keyChannel.map(FileChannel.MapMode.READ_ONLY, 0, keySize)); }
+		return sharedKeyMapping;
+	    }
+	}
+	if (( current == null ) || ( ! current.contains(keyPath, position, length) ))
+	{
+	    long mapLength = Math.max(length, Math.min(MMAP_WINDOW_SIZE, keySize - position));
+	    current = new KeyMapping(keyPath, position, keyChannel.map(FileChannel.MapMode.READ_ONLY, position, mapLength));
+	}
+	return current;
+    }
+
+//  Releases a mapping right away instead of at garbage collection (a mapped original can't be shredded & deleted on Windows)
+    private static void unmap(MappedByteBuffer buffer)
+    {
+	if ( buffer == null ) { return; }
+	try // Java 9+
+	{
+	    Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+	    Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+	    Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe"); theUnsafe.setAccessible(true);
+	    invokeCleaner.invoke(theUnsafe.get(null), buffer);
+	}
+	catch (Exception ex) // Java 8
+	{
+	    try
+	    {
+		Method cleanerMethod = buffer.getClass().getMethod("cleaner"); cleanerMethod.setAccessible(true);
+		Object cleaner = cleanerMethod.invoke(buffer);
+		if ( cleaner != null ) { Method cleanMethod = cleaner.getClass().getMethod("clean"); cleanMethod.setAccessible(true); cleanMethod.invoke(cleaner); }
+	    } catch (Exception ex2) { } // Released at garbage collection
+	}
+    }
+
+//  Durability.LEVEL_BATCH: forces all destins of the batch, then shreds & deletes their originals (a batch is finished, even when stopping)
+    private void commitBatch(ArrayList<FCPath> batchTargetSourceFCPathList, ArrayList<Path> batchTargetDestinPathList, Stats allDataStats)
+    {
+	boolean[] committed = new boolean[batchTargetSourceFCPathList.size()];
+	for (int x = 0; x < batchTargetDestinPathList.size(); x++)
+	{
+	    try { Durability.force(batchTargetDestinPathList.get(x)); committed[x] = true; }
+	    catch (IOException ex) { ui.log("Error: Durability.force(" + batchTargetDestinPathList.get(x).toString() + ") keeping original: " + ex.getMessage() + "\r\n", true, true, true, true, false); }
+	}
+	if ( ! batchTargetDestinPathList.isEmpty() ) { Durability.forceDirectory(batchTargetDestinPathList.get(0).toAbsolutePath().getParent()); }
+
+	for (int x = 0; x < batchTargetSourceFCPathList.size(); x++)
+	{
+	    FCPath targetSourceFCPath = batchTargetSourceFCPathList.get(x); Path targetDestinPath = batchTargetDestinPathList.get(x);
+	    if ( ! committed[x] ) { continue; }
+	    journalCommitted(targetSourceFCPath, targetDestinPath);
+	    Stat wrteTargetSourceStat = new Stat(); wrteTargetSourceStat.reset(); wrteTargetSourceStat.setFileBytesTotal(targetSourceFCPath.size);
+	    progressReadTargetSourceStat = new Stat(); progressReadTargetSourceStat.reset(); progressReadTargetSourceStat.setFileBytesTotal(targetSourceFCPath.size); progressWrteTargetSourceStat = wrteTargetSourceStat;
+	    if ( shredFileStream(targetDestinPath, targetSourceFCPath, wrteTargetSourceStat, allDataStats, false) == RESULT_FAILED ) { continue; }
+
+	    long targetDestinSize = 0;
+	    try { targetDestinSize = Files.size(targetDestinPath); } catch (IOException ex) { ui.log("Error: Files.size(targetDestinPath); " + ex.getMessage() + "\r\n", true, true, true, true, false); }
+	    if ( isDeletable(targetSourceFCPath.size, targetDestinSize) )
+	    { try { Files.deleteIfExists(targetSourceFCPath.path); } catch (IOException ex)    { ui.log("Error: Files.deleteIfExists(inputFilePath): " + ex.getMessage() + "\r\n", true, true, true, true, false); continue; } }
+	    if ( resumeJournal != null ) { try { resumeJournal.done(targetSourceFCPath.path); } catch (IOException ex) { ui.log("Error: ResumeJournal.done(..) " + ex.getMessage() + "\r\n", true, true, true, true, false); } }
+	}
+	batchTargetSourceFCPathList.clear(); batchTargetDestinPathList.clear();
+    }
+
+//  Resumable runs: the destin of the target is committed, its original gets shredded & deleted next
+    private void journalCommitted(FCPath targetSourceFCPath, Path targetDestinPath)
+    {
+	if ( resumeJournal == null ) { return; }
+	try { resumeJournal.committed(targetSourceFCPath.path, targetSourceFCPath.size, targetDestinPath); }
+	catch (IOException ex) { ui.log("Error: ResumeJournal.committed(..) " + ex.getMessage() + "\r\n", true, true, true, true, false); }
+    }
+
+//  Resumed run: shreds & deletes the originals of the destins the stopped run had committed (they may be half shredded, so they
+//  aren't classified again) and marks them done
+    private void finishCommitted()
+    {
+	for (Map.Entry<Path, Path> committedEntry : resumeJournal.getCommittedMap().entrySet())
+	{
+	    FCPath targetSourceFCPath = new FCPath(committedEntry.getKey()); targetSourceFCPath.size = resumeJournal.getCommittedSize(committedEntry.getKey()); Path targetDestinPath = committedEntry.getValue();
+	    if ( Files.exists(targetSourceFCPath.path, LinkOption.NOFOLLOW_LINKS) )
+	    {
+		long targetDestinSize = 0;
+		try { targetDestinSize = Files.size(targetDestinPath); }
+		catch (IOException ex) { ui.log("Warning: Committed destin \"" + targetDestinPath.toString() + "\" of the stopped run is missing, keeping original: " + targetSourceFCPath.path.toString() + "\r\n", true, true, true, false, false); continue; }
+
+		ui.log(UTF8_SHRED_SYMBOL + " \"" + targetSourceFCPath.path.toString() + "\" (committed by the stopped run) ", true, true, true, false, false);
+		Stat wrteTargetSourceStat = new Stat(); wrteTargetSourceStat.reset();
+		if ( shredFileStream(targetDestinPath, targetSourceFCPath, wrteTargetSourceStat, new Stats(), false) == RESULT_FAILED ) { continue; }
+		if ( isDeletable(targetSourceFCPath.size, targetDestinSize) )
+		{ try { Files.deleteIfExists(targetSourceFCPath.path); } catch (IOException ex) { ui.log("Error: Files.deleteIfExists(inputFilePath): " + ex.getMessage() + "\r\n", true, true, true, true, false); continue; } }
+		ui.log("\r\n", true, true, true, false, false);
+		ScanCache.remove(targetSourceFCPath.path);
+	    }
+	    try { resumeJournal.done(targetSourceFCPath.path); } catch (IOException ex) { ui.log("Error: ResumeJournal.done(..) " + ex.getMessage() + "\r\n", true, true, true, true, false); }
+	}
+    }
+
+//  The original may only be deleted when the destin has the same size (with or without token)
+    private boolean isDeletable(long targetSourceSize, long targetDestinSize)
+    {
+	return
+	(
+	    ( targetSourceSize != 0 ) && ( targetDestinSize != 0 ) &&
+	    ( Math.abs(targetSourceSize - targetDestinSize)  == (FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN.length()) * 2 ) ||
+	    ( targetSourceSize == targetDestinSize)
+	);
+    }
+
+//  Stream engine: overwrites the original with the destin content keeping both channels open for the whole file
+    private int shredFileStream(Path targetDestinPath, FCPath targetSourceFCPath, Stat wrteTargetSourceStat, Stats allDataStats, boolean stoppable)
+    {
+	ByteBuffer targetDestinBuffer = BufferPool.lease(wrteTargetDestinBufferSize);
+	long channelPosition = 0;
+
+	try
+	(
+	    final FileChannel readTargetDestinChannel = FileChannel.open(targetDestinPath, EnumSet.of(StandardOpenOption.READ));
+	    final FileChannel writeTargetSourceChannel = FileChannel.open(targetSourceFCPath.path, Durability.getWriteOptions(StandardOpenOption.WRITE))
+	)
+	{
+	    while (true)
+	    {
+		while (pausing)     { try { Thread.sleep(100); } catch (InterruptedException ex) {  } }
+		if (( stoppable ) && ( stopPending )) { break; }
+
+		long readTargetDestChannelTransfered = readFully(readTargetDestinChannel, targetDestinBuffer, channelPosition); targetDestinBuffer.flip();
+		if ( readTargetDestChannelTransfered < 1 ) { break; }
+
+		wrteTargetSourceStat.setFileStartEpoch();
+		long writeTargetSourceChannelTransfered = 0;
+		while ( targetDestinBuffer.hasRemaining() ) { writeTargetSourceChannelTransfered += writeTargetSourceChannel.write(targetDestinBuffer, channelPosition + writeTargetSourceChannelTransfered); }
+		channelPosition += writeTargetSourceChannelTransfered;
+		wrteTargetSourceStat.setFileEndEpoch(); wrteTargetSourceStat.clock();
+		wrteTargetSourceStat.addFileBytesProcessed(writeTargetSourceChannelTransfered / 2);
+		allDataStats.addAllDataBytesProcessed("wr src", writeTargetSourceChannelTransfered / 2);
+		targetDestinBuffer.clear();
+	    }
+	    Durability.force(writeTargetSourceChannel);
+	}
+	catch (IOException ex) { ui.log("Error: shredFileStream(..) " + ex.getMessage() + "\r\n", true, true, true, true, false); return RESULT_FAILED; }
+	finally { BufferPool.release(targetDestinBuffer); }
+	return RESULT_OK;
+    }
+
+//  Stopped run: closes the open destin (an open file can't be deleted on Windows) and deletes it, the original is kept
+    private int deleteStoppedDestin(FileChannel writeTargetDestinChannel, Path targetDestinPath)
+    {
+	try { writeTargetDestinChannel.close(); } catch (IOException ex) { } // Deleted anyway
+	try { Files.deleteIfExists(targetDestinPath); } catch (IOException ex) { ui.log("Error: Files.deleteIfExists(targetDestinPath): " + ex.getMessage() + "\r\n", true, true, true, true, false); }
+	return RESULT_STOPPED;
+    }
+
+//  Positional read until the buffer is full or end of file is reached (returns -1 when nothing could be read at end of file)
+    private static long readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+    {
+	long transfered = 0;
+	while ( buffer.hasRemaining() )
+	{
+	    int bytes = channel.read(buffer, position + transfered);
+	    if ( bytes == -1 ) { if ( transfered == 0 ) { return -1; } else { break; } }
+	    transfered += bytes;
+	}
+	return transfered;
+    }
+
     public static ByteBuffer encryptBuffer(ByteBuffer targetSourceBuffer, ByteBuffer keySourceBuffer, boolean printEnabled)
     {
-        ByteBuffer targetDestinBuffer = ByteBuffer.allocate(keySourceBuffer.capacity()); targetDestinBuffer.clear();
-	
+        ByteBuffer targetDestinBuffer = ByteBuffer.allocate(keySourceBuffer.capacity());
+	return encryptBuffer(targetSourceBuffer, keySourceBuffer, targetDestinBuffer, printEnabled);
+    }
+
+//  Allocation free version: encrypts into targetDestinBuffer (capacity >= targetSourceBuffer.limit()) and returns it flipped
+    public static ByteBuffer encryptBuffer(ByteBuffer targetSourceBuffer, ByteBuffer keySourceBuffer, ByteBuffer targetDestinBuffer, boolean printEnabled)
+    {
+	targetDestinBuffer.clear();
         while (pausing)     { try { Thread.sleep(100); } catch (InterruptedException ex) {  } }
+	if ((printEnabled) && ( print )) { return encryptBufferReference(targetSourceBuffer, keySourceBuffer, targetDestinBuffer, printEnabled); } // Printing needs every byte
+
+//	Bulk kernel (selected once at startup, see XORKernel)
+	XORKernel.xor(targetSourceBuffer, 0, keySourceBuffer, 0, targetDestinBuffer, 0, targetSourceBuffer.limit()); targetDestinBuffer.position(targetSourceBuffer.limit());
+        targetDestinBuffer.flip();
+	return targetDestinBuffer;
+    }
+
+//  Byte by byte reference implementation of encryptBuffer(..)
+    public static ByteBuffer encryptBufferReference(ByteBuffer targetSourceBuffer, ByteBuffer keySourceBuffer, ByteBuffer targetDestinBuffer, boolean printEnabled)
+    {
         byte targetDestinByte;
 	for (int targetSourceBufferCount = 0; targetSourceBufferCount < targetSourceBuffer.limit(); targetSourceBufferCount++)
         {
@@ -679,36 +1733,10 @@ public class FinalCrypt extends Thread
 
     private ByteBuffer createTargetDestinToken(Path keySourcePath) // Tested
     {
-        ByteBuffer plainTextTokenBuffer = ByteBuffer.allocate(FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN.length()); plainTextTokenBuffer.clear();
-        ByteBuffer keyBitTokenBuffer = ByteBuffer.allocate(FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN.length()); keyBitTokenBuffer.clear();
-        ByteBuffer encryptedTokenBuffer = ByteBuffer.allocate(FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN.length()); encryptedTokenBuffer.clear();
-
-	ByteBuffer targetDstTokenBuffer = ByteBuffer.allocate(FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN.length() * 2); targetDstTokenBuffer.clear();
-	long readKeySourceChannelTransfered = 0;                
-
-	// Create plaint text Buffer
-	plainTextTokenBuffer.put(FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN.getBytes());
-	
-	// Create Key Buffer
-	try (final SeekableByteChannel readKeySourceChannel = Files.newByteChannel(keySourcePath, EnumSet.of(StandardOpenOption.READ)))
-	{
-//	    readKeySourceChannel.position(readKeySourceChannelPosition);
-	    readKeySourceChannelTransfered = readKeySourceChannel.read(keyBitTokenBuffer);
-	    keyBitTokenBuffer.flip(); readKeySourceChannel.close();
-	} catch (IOException ex) { ui.log("Error: getTargetDestinToken: readKeySourceChannel " + ex.getMessage() + "\r\n", true, true, true, true, false); }
-	
-	// Create Encrypted Token Buffer
-	encryptedTokenBuffer = encryptBuffer(plainTextTokenBuffer, keyBitTokenBuffer, false);
-	
-	// Create Target Destin Token Buffer
-	byte[] tokenArray = new byte[(FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN.length() * 2)];
-	for (int x = 0; x < plainTextTokenBuffer.capacity(); x++) { tokenArray[x] = plainTextTokenBuffer.array()[x]; }
-	for (int x = 0; x < encryptedTokenBuffer.capacity(); x++) { tokenArray[(FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN.length() + x)] = encryptedTokenBuffer.array()[x]; }
-	targetDstTokenBuffer.put(tokenArray); targetDstTokenBuffer.flip();
-//	for (byte myByte:plainTextTokenBuffer.array()) {targetDstTokenBuffer.put(myByte);}
-//	for (byte myByte:encryptedTokenBuffer.array()) {targetDstTokenBuffer.put(myByte);}
-	
-	return targetDstTokenBuffer;
+//	Plain text token + token encrypted with the key header (cached per key, see KeyTokenCache)
+	try { return KeyTokenCache.getToken(keySourcePath); }
+	catch (IOException ex) { ui.log("Error: getTargetDestinToken: readKeySourceChannel " + ex.getMessage() + "\r\n", true, true, true, true, false); }
+	return ByteBuffer.wrap(KeyTokenCache.createToken(new byte[0])); // Unread key buffer
     }
     
 //  Recursive Deletion of PathList
@@ -717,9 +1745,10 @@ public class FinalCrypt extends Thread
         EnumSet opts = EnumSet.of(FileVisitOption.FOLLOW_LINKS); //follow links
 //							  MySimpleFileVisitor(UI ui, boolean verbose, boolean delete, long minSize, boolean symlink, boolean writable, boolean returnpathlist, ArrayList<FCPath>(),    String pattern, boolean negatePattern)
 //							  MySimpleFCFileVisitor(UI ui, boolean verbose, boolean delete, boolean symlink, boolean setFCPathlist,    Path keyPath, ArrayList<FCPath> targetFCPathList, String pattern, boolean negatePattern)
-        MySimpleFCFileVisitor mySimpleFCFileVisitor = new MySimpleFCFileVisitor(   ui,	       verbose,         delete,         symlink,		 false,               null,            new FCPathList(),        pattern,         negatePattern);
+        MySimpleFCFileVisitor mySimpleFCFileVisitor = new MySimpleFCFileVisitor(   ui,	       verbose,         delete,         symlink,		 false,               null,            new FCPathList<>(),      pattern,         negatePattern);
         for (Path path:targetSourcePathList)
         {
+            mySimpleFCFileVisitor.rootPath = path;
             try{Files.walkFileTree(path, opts, Integer.MAX_VALUE, mySimpleFCFileVisitor);} catch(IOException e){System.err.println(e);}
         }
     }
@@ -733,7 +1762,7 @@ public class FinalCrypt extends Thread
     public boolean getPausing()             { return pausing; }
     public boolean getStopPending()         { return stopPending; }
     public void setPausing(boolean val)     { pausing = val; }
-    public void setStopPending(boolean val) { stopPending = val; }
+    public void setStopPending(boolean val) { stopPending = val; FCPathQueue fcPathQueue = streamFCPathQueue; if (( val ) && ( fcPathQueue != null )) { fcPathQueue.close(); } }
 
     private static void logByteBuffer(String preFix, ByteBuffer byteBuffer)
     {
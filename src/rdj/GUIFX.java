@@ -274,6 +274,16 @@ public class GUIFX extends Application implements UI, Initializable
     
     private FCPathList targetFCPathList; // Main List
 
+    // Last scan: a key switch on the same selection is classified from it (Validate.reclassifySelection) instead of scanned again
+    private FCPathList<FCPath> scanningFCPathList;
+    private FCPathList<FCPath> scannedFCPathList;
+    private ArrayList<Path> scannedTargetPathList;
+    private String scannedPattern;
+    private boolean scannedNegatePattern;
+    private boolean scannedSymlink;
+    private Path scannedKeyPath;
+    private boolean pendingStatus = false; // Status line shows the pending (lazy) classification
+
     // Filtered Lists
     private FCPathList decryptedList; 
     private FCPathList encryptableList;
@@ -479,6 +489,8 @@ public class GUIFX extends Application implements UI, Initializable
     {
 	targetFCPathList = new FCPathList(); updateDashboard(targetFCPathList);
         configuration = new Configuration(ui);
+        ScanCache.setCachePath(configuration.getDataDirPath().resolve(ScanCache.CACHE_NAME)); // Unchanged files are not probed again
+        InPlaceJournal.setJournalDirPath(configuration.getDataDirPath().resolve(InPlaceJournal.JOURNAL_DIR_NAME)); // Interrupted in-place conversions
         version = new Version(ui);
         version.checkCurrentlyInstalledVersion(this);
         log("Welcome to " + Version.getProduct() + " " + version.getCurrentlyInstalledOverallVersionString() + "\r\n", true, false, false, false ,false);        
@@ -1051,7 +1063,7 @@ public class GUIFX extends Application implements UI, Initializable
 	    else // Not a Valid Selection
 	    {
 //		log("CC Sel Not Valid\r\n");
-		MySimpleFCFileVisitor.running = false;
+		scanningFCPathList = null; scannedFCPathList = null; FCPathWalker.running = false;
 //	        try { Thread.sleep(100); } catch (InterruptedException ex) {  }
 		if ( keyFCPath != null ) { keyFCPath.isValidKey = false; }
 		targetFCPathList = new FCPathList();
@@ -1213,6 +1225,12 @@ public class GUIFX extends Application implements UI, Initializable
     //		Get Globbing Pattern String
 		pattern = "glob:*"; try { pattern = getSelectedPatternFromFileChooser( targetFileChooser.getFileFilter()); } catch (ClassCastException exc) {  }
 
+		// Key switch on the scanned selection: classified from the scan, no walk & no reads
+		final FCPathList<FCPath> scannedFCPathList2;
+		if ((scannedFCPathList != null) && (targetPathList.equals(scannedTargetPathList)) && (pattern.equals(scannedPattern)) && (negatePattern == scannedNegatePattern) && (symlink == scannedSymlink) && (! keyFCPath.path.equals(scannedKeyPath)))
+		{ scannedFCPathList2 = scannedFCPathList; } else { scannedFCPathList2 = null; }
+		scanningFCPathList = targetFCPathList2; scannedFCPathList = null; scannedTargetPathList = targetPathList; scannedPattern = pattern; scannedNegatePattern = negatePattern; scannedSymlink = symlink; scannedKeyPath = keyFCPath.path;
+
 		// UPdate Dashboard during buildSelection
 
 		updateDashboardTask = new TimerTask() { @Override public void run() { updateDashboard(targetFCPathList2); }}; updateDashboardTaskTimer = new java.util.Timer(); updateDashboardTaskTimer.schedule(updateDashboardTask, 200L, 200L);
@@ -1227,7 +1245,8 @@ public class GUIFX extends Application implements UI, Initializable
 		{
 		    Thread scanThread = new Thread(new Runnable() { @Override@SuppressWarnings({"static-access"})public void run() // Relaxed interruptable thread
 		    {
-			Validate.buildSelection( ui, targetPathList, keyFCPath, targetFCPathList2, symlink, pattern, negatePattern, false);
+			if ( scannedFCPathList2 != null )   { Validate.reclassifySelection(ui, scannedFCPathList2, keyFCPath, targetFCPathList2, symlink, pattern, negatePattern); }
+			else				    { Validate.buildSelection( ui, targetPathList, keyFCPath, targetFCPathList2, symlink, pattern, negatePattern, false, null, true); } // Lazy: counted first, then classified
 		    }}); scanThread.setName("scanThread"); scanThread.setDaemon(true); scanThread.start();
 		}});
 	    }
@@ -1236,6 +1255,7 @@ public class GUIFX extends Application implements UI, Initializable
 //		log("Not all valid: " + targetPathList.size() + "\r\n", true, false, false, false, false);
 //		MySimpleFCFileVisitor.running = false;
 //		try { Thread.sleep(100); } catch (InterruptedException ex) {  }
+		scanningFCPathList = null; scannedFCPathList = null;
 		targetFCPathList = new FCPathList();
 		buildReady(targetFCPathList);
 	    }
@@ -1246,8 +1266,9 @@ public class GUIFX extends Application implements UI, Initializable
     {
 	Platform.runLater(new Runnable(){ @Override public void run() { filesProgressBar.setProgress(0); }});
 	if (updateDashboardTaskTimer != null) { updateDashboardTaskTimer.cancel(); updateDashboardTaskTimer.purge(); }
-	MySimpleFCFileVisitor.running = false;
+	FCPathWalker.running = false;
 	isCalculatingCheckSum = false;
+	if (( fcPathListParam == scanningFCPathList ) && ( fcPathListParam.size() == fcPathListParam.total )) { scannedFCPathList = fcPathListParam; } // Completed
 	
 	if (fcPathListParam.size() > 0)
 	{
@@ -1270,6 +1291,10 @@ public class GUIFX extends Application implements UI, Initializable
 //	log(s + "\r\n" + targetFCPathList.getStats());
 	Platform.runLater(new Runnable(){ @Override public void run() 
 	{
+	    // Pending (lazy) classification
+	    if ( targetFCPathList.pendingFiles > 0 ) { statusLabel.setText("Classifying: " + targetFCPathList.pendingFiles + " files pending (" + Validate.getHumanSize(targetFCPathList.pendingFilesSize,1) + ")"); pendingStatus = true; }
+	    else if ( pendingStatus ) { statusLabel.setText(""); pendingStatus = false; }
+
 	    // Skipping / Info Column
 	    if ( (targetFCPathList.emptyFiles > 0) || (targetFCPathList.symlinkFiles > 0)  || (targetFCPathList.unreadableFiles > 0) || (targetFCPathList.unwritableFiles > 0))
 	    { targetWarningLabel.setTextFill(Color.ORANGE); targetWarningLabel.setText("Skipping"); } else { targetWarningLabel.setTextFill(Color.GRAY); targetWarningLabel.setText("Invalid"); }
@@ -1371,13 +1396,13 @@ public class GUIFX extends Application implements UI, Initializable
 // ================================================================================================================================================================================================
 		    // Decrypted Files
 		    
-		    if (targetFCPathList.decryptedFiles > 0)	{ decryptedList = filter(targetFCPathList,(FCPath fcPath) -> fcPath.isDecrypted); } else { decryptedList = null; }
+		    if (targetFCPathList.decryptedFiles > 0)	{ decryptedList = targetFCPathList.getView(FCPathList.DECRYPTED_VIEW); } else { decryptedList = null; }
 		    if (targetFCPathList.encryptableFiles > 0) // Encryptables
 		    {
-			encryptableList = filter(targetFCPathList,(FCPath fcPath) -> fcPath.isEncryptable);
+			encryptableList = targetFCPathList.getView(FCPathList.ENCRYPTABLE_VIEW);
 			encryptButton.setDisable(false); pauseToggleButton.setDisable(true); stopButton.setDisable(true);
 		    } else { encryptButton.setDisable(true); encryptableList = null; }
-		    if (targetFCPathList.newEncryptedFiles > 0)	    { newEncryptedList = filter(targetFCPathList,(FCPath fcPath) -> fcPath.isNewEncrypted); } else { newEncryptedList = null; }
+		    if (targetFCPathList.newEncryptedFiles > 0)	    { newEncryptedList = targetFCPathList.getView(FCPathList.NEW_ENCRYPTED_VIEW); } else { newEncryptedList = null; }
 //		    if (targetFCPathList.encryptRemainingFiles > 0) { encryptRemainingList = filter(targetFCPathList,(FCPath fcPath) -> fcPath.); } else { encryptRemainingList = null; }
 		    if (targetFCPathList.unEncryptableFiles > 0)    { unencryptableList = filter(targetFCPathList,(FCPath fcPath) -> (fcPath.isUnEncryptable) && (fcPath.isDecrypted)  && (fcPath.size > 0)); } else { unencryptableList = null; }
 
@@ -1385,13 +1410,13 @@ public class GUIFX extends Application implements UI, Initializable
 		    // Encrypted Files
 
 		    // Decryptables
-		    if (targetFCPathList.encryptedFiles > 0)	{ encryptedList = filter(targetFCPathList,(FCPath fcPath) -> fcPath.isEncrypted); } else { encryptedList = null; }
+		    if (targetFCPathList.encryptedFiles > 0)	{ encryptedList = targetFCPathList.getView(FCPathList.ENCRYPTED_VIEW); } else { encryptedList = null; }
 		    if ((targetFCPathList.decryptableFiles > 0) && ( ! finalCrypt.disableMAC) ) // Prevents destruction! Non-MAC Mode encrypting MAC encrypted files (in stead of default decryption)
 		    {
-			decryptableList = filter(targetFCPathList,(FCPath fcPath) -> fcPath.isDecryptable);
+			decryptableList = targetFCPathList.getView(FCPathList.DECRYPTABLE_VIEW);
 			decryptButton.setDisable(false); pauseToggleButton.setDisable(true); stopButton.setDisable(true);
 		    } else { decryptButton.setDisable(true); decryptableList = null; }
-		    if (targetFCPathList.newDecryptedFiles > 0)	    { newDecryptedList = filter(targetFCPathList,(FCPath fcPath) -> fcPath.isNewDecrypted); } else { newDecryptedList = null; }
+		    if (targetFCPathList.newDecryptedFiles > 0)	    { newDecryptedList = targetFCPathList.getView(FCPathList.NEW_DECRYPTED_VIEW); } else { newDecryptedList = null; }
 //		    if (targetFCPathList.decryptRemainingFiles > 0) { decryptRemainingList = filter(targetFCPathList,(FCPath fcPath) -> fcPath.); } else { decryptRemainingList = null; }
 		    if (targetFCPathList.unDecryptableFiles > 0)    { undecryptableList = filter(targetFCPathList,(FCPath fcPath) -> (fcPath.isUnDecryptable) && (fcPath.isEncrypted) && (fcPath.size > 0)); } else { undecryptableList = null; }
 
@@ -1399,12 +1424,12 @@ public class GUIFX extends Application implements UI, Initializable
 		    // Others empty sym read write hidden
 
 		    if (targetFCPathList.emptyFiles > 0)	{ emptyList = filter(targetFCPathList,(FCPath fcPath) -> fcPath.size == 0 && fcPath.type == FCPath.FILE); } else { emptyList = null; }
-		    if (targetFCPathList.symlinkFiles > 0)	{ symlinkList = filter(targetFCPathList,(FCPath fcPath) -> fcPath.type == FCPath.SYMLINK); } else { symlinkList = null; }
-		    if (targetFCPathList.unreadableFiles > 0)	{ unreadableList = filter(targetFCPathList,(FCPath fcPath) -> (! fcPath.isReadable) && (fcPath.type == FCPath.FILE)); } else { unreadableList = null; }
-		    if (targetFCPathList.unwritableFiles > 0)	{ unwritableList = filter(targetFCPathList,(FCPath fcPath) -> (! fcPath.isWritable) && (fcPath.type == FCPath.FILE)); } else { unwritableList = null; }
-		    if (targetFCPathList.hiddenFiles > 0)	{ hiddenList = filter(targetFCPathList,(FCPath fcPath) -> fcPath.isHidden); } else { hiddenList = null; }
+		    if (targetFCPathList.symlinkFiles > 0)	{ symlinkList = targetFCPathList.getView(FCPathList.SYMLINK_VIEW); } else { symlinkList = null; }
+		    if (targetFCPathList.unreadableFiles > 0)	{ unreadableList = targetFCPathList.getView(FCPathList.UNREADABLE_VIEW); } else { unreadableList = null; }
+		    if (targetFCPathList.unwritableFiles > 0)	{ unwritableList = targetFCPathList.getView(FCPathList.UNWRITABLE_VIEW); } else { unwritableList = null; }
+		    if (targetFCPathList.hiddenFiles > 0)	{ hiddenList = targetFCPathList.getView(FCPathList.HIDDEN_VIEW); } else { hiddenList = null; }
 		    
-		    if ((targetFCPathList.files - targetFCPathList.validFiles) > 0) { invalidFilesList = filter(targetFCPathList,(FCPath fcPath) -> fcPath.type == FCPath.INVALID); } else { invalidFilesList = null; }
+		    if ((targetFCPathList.files - targetFCPathList.validFiles) > 0) { invalidFilesList = targetFCPathList.getView(FCPathList.INVALID_VIEW); } else { invalidFilesList = null; }
 
 
 //    private FCPathList newEncryptedList;
@@ -1421,7 +1446,7 @@ public class GUIFX extends Application implements UI, Initializable
 			if (targetFCPathList.validDevices > 0)
 			{
 //			    log("1 " + keyFCPath.getString());
-			    createKeyList = filter(targetFCPathList,(FCPath fcPath) -> fcPath.type == FCPath.DEVICE); // log("Create Key List:\r\n" + createKeyList.getStats());
+			    createKeyList = targetFCPathList.getView(FCPathList.DEVICE_VIEW); // log("Create Key List:\r\n" + createKeyList.getStats());
 			    pauseToggleButton.setDisable(true); stopButton.setDisable(true);
 			    keyDeviceButton.setDisable(false); keyDeviceButton.setText("Create Key Device");
 			} else { keyDeviceButton.setDisable(false); keyDeviceButton.setText("Create OTP Key File"); }
@@ -1431,7 +1456,7 @@ public class GUIFX extends Application implements UI, Initializable
 			// Clone Key Device
 			if ((targetFCPathList.validDevices > 0) && (targetFCPathList.matchingKey == 0))
 			{
-			    cloneKeyList = filter(targetFCPathList,(FCPath fcPath) -> fcPath.type == FCPath.DEVICE && fcPath.path.compareTo(keyFCPath.path) != 0); // log("Clone Key List:\r\n" + cloneKeyList.getStats());
+			    cloneKeyList = filter(targetFCPathList.getView(FCPathList.DEVICE_VIEW),(FCPath fcPath) -> fcPath.path.compareTo(keyFCPath.path) != 0); // log("Clone Key List:\r\n" + cloneKeyList.getStats());
 			    keyDeviceButton.setDisable(false); keyDeviceButton.setText("Clone Key Device"); pauseToggleButton.setDisable(true); stopButton.setDisable(true);
 			} else { keyDeviceButton.setDisable(false); keyDeviceButton.setText("Create OTP Key File"); }
 		    } else { keyDeviceButton.setDisable(false); keyDeviceButton.setText("Create OTP Key File"); }
@@ -1445,7 +1470,7 @@ public class GUIFX extends Application implements UI, Initializable
 	}});
     }
 
-    synchronized public  FCPathList filter(ArrayList<FCPath> fcPathList, Predicate<FCPath> fcPath)
+    synchronized public  FCPathList filter(List<FCPath> fcPathList, Predicate<FCPath> fcPath)
     {
 	FCPathList result = new FCPathList();
 	for (FCPath fcPathItem : fcPathList) { if (fcPath.test(fcPathItem)) { result.add(fcPathItem); } }
@@ -1454,7 +1479,7 @@ public class GUIFX extends Application implements UI, Initializable
     
     synchronized public static Predicate<FCPath> isHidden() { return (FCPath fcPath) -> fcPath.isHidden; }
     
-    synchronized public List<FCPath> filter(Predicate<FCPath> criteria, ArrayList<FCPath> list)
+    synchronized public List<FCPath> filter(Predicate<FCPath> criteria, List<FCPath> list)
     {
 	return list.stream().filter(criteria).collect(Collectors.<FCPath>toList());
     }
@@ -1721,6 +1746,7 @@ public class GUIFX extends Application implements UI, Initializable
 
     @Override public void processStarted()
     {
+	scannedFCPathList = null; // Targets change
         Platform.runLater(new Runnable()
         {
             @Override public void run()
@@ -0,0 +1,206 @@
+/*
+ * Copyright © 2017 Ron de Jong (ronuitzaandam@gmail.com).
+ *
+ * This is free software; you can redistribute it
+ * under the terms of the Creative Commons License
+ * Creative Commons License: (CC BY-NC-ND 4.0) as published by
+ * https://creativecommons.org/licenses/by-nc-nd/4.0/ ; either
+ * version 4.0 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Creative Commons Attribution-NonCommercial-NoDerivatives 4.0
+ * International Public License for more details.
+ *
+ * You should have received a copy of the Creative Commons
+ * Public License License along with this software;
+ */
+
+package rdj;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.zip.CRC32;
+
+/*
+    Crash recovery journal of the in-place mode (FinalCrypt.encryptFileInPlace(..)).
+
+    In-place encryption XORs the blocks of a file where they are, shifted over the token size (encrypt +140, decrypt -140 bytes).
+    A block overwrites its own source bytes, so a torn write can't be repaired from the file itself. Before a block is written,
+    its source bytes are recorded here and forced to disk. The target is forced after every block, so the last complete record
+    is the highest completed offset: all blocks before it (in processing order) are done, the block in it can be redone.
+
+    The journal lives in journal/ of the data directory (Configuration.getDataDirPath()), one file per target named by the MD5 of its
+    absolute path:
+
+    header	    size, magic, target / destin / key path, source & destin offset, data length, key size, block size, token flag, CRC32
+    2 slots	    sequence, block (BLOCK_FINISHING when only token, truncation & rename are left), bytes, source bytes, CRC32
+
+    The header is written once, the slots are used alternately, so a torn record always leaves the previous record intact.
+*/
+
+public class InPlaceJournal
+{
+    public static final    long	    BLOCK_FINISHING =	-2L;
+    public static final    String   JOURNAL_EXTENSION =	".fcjournal";
+    public static final    String   JOURNAL_DIR_NAME =	"journal";
+    private static final   long	    MAGIC =		0x4643494E504C4143L; // "FCINPLAC"
+    private static final   int	    SLOT_FIELDS_SIZE =	Long.BYTES + Long.BYTES + Integer.BYTES + Long.BYTES; // sequence, block, bytes, CRC32
+
+    public final Path targetSourcePath;
+    public final Path targetDestinPath;
+    public final Path keySourcePath;
+    public final long sourceOffset;		// Data start in the target (140 when decrypting)
+    public final long destinOffset;		// Data start after the conversion (140 when encrypting)
+    public final long dataLength;
+    public final long keySize;
+    public final int blockSize;
+    public final boolean writeToken;
+
+    public long block = -1L;			// Block of the last record (-1 nothing recorded yet)
+    public int bytes = 0;
+    public ByteBuffer sourceBuffer = null;	// Source bytes of the last record when read by read(..)
+
+    private static Path journalDirPath = Paths.get(System.getProperty("user.home"), ".finalcrypt", JOURNAL_DIR_NAME); // Under Configuration.getDataDirPath() (setJournalDirPath(..))
+
+    private final Path journalPath;
+    private final byte[] header;
+    private long sequence = 0L;
+
+    public InPlaceJournal(Path targetSourcePath, Path targetDestinPath, Path keySourcePath, long sourceOffset, long destinOffset, long dataLength, long keySize, int blockSize, boolean writeToken)
+    {
+	this.targetSourcePath =	targetSourcePath.toAbsolutePath().normalize();
+	this.targetDestinPath =	targetDestinPath.toAbsolutePath().normalize();
+	this.keySourcePath =	keySourcePath.toAbsolutePath().normalize();
+	this.sourceOffset =	sourceOffset;
+	this.destinOffset =	destinOffset;
+	this.dataLength =	dataLength;
+	this.keySize =		keySize;
+	this.blockSize =	blockSize;
+	this.writeToken =	writeToken;
+	this.journalPath =	getJournalPath(this.targetSourcePath);
+	this.header =		getHeader();
+    }
+
+    public static void setJournalDirPath(Path path)		{ journalDirPath = path; }
+    public static Path getJournalDirPath()			{ return journalDirPath; }
+    public static Path getJournalPath(Path targetSourcePath)	{ return getJournalDirPath().resolve(MD5Converter.getMD5SumFromString(targetSourcePath.toAbsolutePath().normalize().toString()) + JOURNAL_EXTENSION); }
+    public Path getJournalPath()				{ return journalPath; }
+    public long getBlocks()					{ return (dataLength + blockSize - 1) / blockSize; }
+    public boolean isForward()					{ return ( destinOffset <= sourceOffset ); } // Shifting towards the start of the file (or not at all)
+
+//  Creates the journal file with its header (forced before the first block is touched)
+    public FileChannel create() throws IOException
+    {
+	Files.createDirectories(getJournalDirPath());
+	FileChannel journalChannel = FileChannel.open(journalPath, EnumSet.of(StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+	write(journalChannel, ByteBuffer.wrap(header), 0L); journalChannel.force(true);
+	return journalChannel;
+    }
+
+//  Opens the journal file of a read(..) journal to continue recording
+    public FileChannel open() throws IOException { return FileChannel.open(journalPath, EnumSet.of(StandardOpenOption.WRITE)); }
+
+    public void delete() throws IOException { Files.deleteIfExists(journalPath); }
+
+//  Records the source bytes (position 0 .. bytes) of block before it gets overwritten and forces the record to disk
+    public void record(FileChannel journalChannel, long block, ByteBuffer sourceBuffer, int bytes) throws IOException
+    {
+	this.block = block; this.bytes = bytes; sequence++;
+	ByteBuffer fieldsBuffer = ByteBuffer.allocate(Long.BYTES + Long.BYTES + Integer.BYTES); fieldsBuffer.putLong(sequence).putLong(block).putInt(bytes); fieldsBuffer.flip();
+	ByteBuffer dataBuffer = sourceBuffer.duplicate(); dataBuffer.clear(); dataBuffer.limit(bytes);
+	CRC32 crc = new CRC32(); crc.update(fieldsBuffer.array()); crc.update(dataBuffer); dataBuffer.rewind();
+	ByteBuffer crcBuffer = ByteBuffer.allocate(Long.BYTES); crcBuffer.putLong(crc.getValue()); crcBuffer.flip();
+
+	long position = header.length + (sequence % 2) * ((long)blockSize + SLOT_FIELDS_SIZE);
+	position += write(journalChannel, fieldsBuffer, position);
+	position += write(journalChannel, dataBuffer, position);
+	write(journalChannel, crcBuffer, position);
+	journalChannel.force(false);
+    }
+
+    public void recordFinishing(FileChannel journalChannel) throws IOException { record(journalChannel, BLOCK_FINISHING, ByteBuffer.allocate(0), 0); }
+
+//  Reads the journal with its last complete record (null when the header is incomplete, block -1 when no record is complete)
+    public static InPlaceJournal read(Path journalPath) throws IOException
+    {
+	ByteBuffer journalBuffer = ByteBuffer.wrap(Files.readAllBytes(journalPath));
+	try
+	{
+	    int headerSize = journalBuffer.getInt(0);
+	    CRC32 crc = new CRC32(); crc.update(journalBuffer.array(), 0, headerSize - Long.BYTES);
+	    if ( crc.getValue() != journalBuffer.getLong(headerSize - Long.BYTES) ) { return null; }
+
+	    DataInputStream dataInputStream = new DataInputStream(new ByteArrayInputStream(journalBuffer.array(), Integer.BYTES, headerSize - Integer.BYTES));
+	    if ( dataInputStream.readLong() != MAGIC ) { return null; }
+	    Path targetSourcePath = Paths.get(dataInputStream.readUTF()); Path targetDestinPath = Paths.get(dataInputStream.readUTF()); Path keySourcePath = Paths.get(dataInputStream.readUTF());
+	    long sourceOffset = dataInputStream.readLong(); long destinOffset = dataInputStream.readLong(); long dataLength = dataInputStream.readLong(); long keySize = dataInputStream.readLong();
+	    int blockSize = dataInputStream.readInt(); boolean writeToken = dataInputStream.readBoolean();
+	    InPlaceJournal journal = new InPlaceJournal(targetSourcePath, targetDestinPath, keySourcePath, sourceOffset, destinOffset, dataLength, keySize, blockSize, writeToken);
+
+	    for (int slot = 0; slot < 2; slot++) // Keep the complete record with the highest sequence
+	    {
+		int position = headerSize + slot * (blockSize + SLOT_FIELDS_SIZE);
+		if ( position + SLOT_FIELDS_SIZE > journalBuffer.capacity() ) { continue; }
+		long sequence = journalBuffer.getLong(position); long block = journalBuffer.getLong(position + Long.BYTES); int bytes = journalBuffer.getInt(position + Long.BYTES * 2);
+		int dataPosition = position + Long.BYTES * 2 + Integer.BYTES;
+		if (( bytes < 0 ) || ( bytes > blockSize ) || ( dataPosition + bytes + Long.BYTES > journalBuffer.capacity() ) || ( sequence <= journal.sequence )) { continue; }
+
+		crc.reset(); crc.update(journalBuffer.array(), position, dataPosition - position + bytes);
+		if ( crc.getValue() != journalBuffer.getLong(dataPosition + bytes) ) { continue; }
+		journal.sequence = sequence; journal.block = block; journal.bytes = bytes;
+		journal.sourceBuffer = ByteBuffer.wrap(Arrays.copyOfRange(journalBuffer.array(), dataPosition, dataPosition + bytes));
+	    }
+	    return journal;
+	} catch (IOException | RuntimeException ex) { return null; } // Torn or foreign header
+    }
+
+    public static ArrayList<Path> getJournalPathList()
+    {
+	ArrayList<Path> journalPathList = new ArrayList<>();
+	if ( ! Files.isDirectory(getJournalDirPath()) ) { return journalPathList; }
+	try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(getJournalDirPath(), "*" + JOURNAL_EXTENSION)) { for (Path journalPath : directoryStream) { journalPathList.add(journalPath); } }
+	catch (IOException ex) { }
+	return journalPathList;
+    }
+
+    private byte[] getHeader()
+    {
+	ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+	try (DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream))
+	{
+	    dataOutputStream.writeInt(0); // Header size, filled in below
+	    dataOutputStream.writeLong(MAGIC);
+	    dataOutputStream.writeUTF(targetSourcePath.toString()); dataOutputStream.writeUTF(targetDestinPath.toString()); dataOutputStream.writeUTF(keySourcePath.toString());
+	    dataOutputStream.writeLong(sourceOffset); dataOutputStream.writeLong(destinOffset); dataOutputStream.writeLong(dataLength); dataOutputStream.writeLong(keySize);
+	    dataOutputStream.writeInt(blockSize); dataOutputStream.writeBoolean(writeToken);
+	    dataOutputStream.writeLong(0L); // CRC32, filled in below
+	} catch (IOException ex) { } // Not thrown by a ByteArrayOutputStream
+	ByteBuffer headerBuffer = ByteBuffer.wrap(byteArrayOutputStream.toByteArray());
+	headerBuffer.putInt(0, headerBuffer.capacity());
+	CRC32 crc = new CRC32(); crc.update(headerBuffer.array(), 0, headerBuffer.capacity() - Long.BYTES);
+	headerBuffer.putLong(headerBuffer.capacity() - Long.BYTES, crc.getValue());
+	return headerBuffer.array();
+    }
+
+    private static long write(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+    {
+	long transfered = 0;
+	while ( buffer.hasRemaining() ) { transfered += channel.write(buffer, position + transfered); }
+	return transfered;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright © 2017 Ron de Jong (ronuitzaandam@gmail.com).
+ *
+ * This is free software; you can redistribute it
+ * under the terms of the Creative Commons License
+ * Creative Commons License: (CC BY-NC-ND 4.0) as published by
+ * https://creativecommons.org/licenses/by-nc-nd/4.0/ ; either
+ * version 4.0 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Creative Commons Attribution-NonCommercial-NoDerivatives 4.0
+ * International Public License for more details.
+ *
+ * You should have received a copy of the Creative Commons
+ * Public License License along with this software;
+ */
+
+package rdj;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+    Shared in-memory key cache: every key is read once and served from memory to all files & workers (through KeyStream).
+
+    get(path, size)	Returns the whole key as a read-only direct buffer (cached when it fits in the capacity).
+    setCapacity(size)	Maximum bytes of all cached keys together (0 = disabled, at most Integer.MAX_VALUE per key).
+
+    Keys are identified by absolute path, size & modification time (a rewritten key is read again). When the cached keys don't
+    fit, the least recently used keys are evicted (their memory is released at garbage collection, after the last file using it).
+*/
+
+public class KeyCache
+{
+    public static final    long	    CAPACITY_DEFAULT =	(256L * 1024L * 1024L); // 256 MiB
+    public static final    long	    CAPACITY_MAX =	Integer.MAX_VALUE; // One ByteBuffer per key
+
+    private static long capacity = CAPACITY_DEFAULT;
+    private static long cachedBytes = 0;
+    private static final LinkedHashMap<String, ByteBuffer> keyBufferMap = new LinkedHashMap<>(16, 0.75f, true); // Access order (LRU first)
+
+    public static synchronized long getCapacity()		{ return capacity; }
+    public static synchronized void setCapacity(long capacity)	{ if ( capacity >= 0 ) { KeyCache.capacity = Math.min(capacity, CAPACITY_MAX); evict(0); } }
+    public static synchronized long getCachedBytes()		{ return cachedBytes; }
+    public static boolean fits(long keySize)			{ return ( keySize <= getCapacity() ); }
+
+    public static ByteBuffer get(Path path, long keySize) throws IOException
+    {
+	String id = getId(path, keySize);
+	synchronized (KeyCache.class) { ByteBuffer keyBuffer = keyBufferMap.get(id); if ( keyBuffer != null ) { return keyBuffer.duplicate(); } }
+
+//	Loaded outside the lock (other keys stay available), a concurrent load of the same key is harmless
+	ByteBuffer keyBuffer = load(path, keySize);
+	synchronized (KeyCache.class)
+	{
+	    if (( keySize <= capacity ) && ( ! keyBufferMap.containsKey(id) )) { evict(keySize); keyBufferMap.put(id, keyBuffer); cachedBytes += keySize; }
+	}
+	return keyBuffer.duplicate();
+    }
+
+    public static synchronized void clear() { keyBufferMap.clear(); cachedBytes = 0; }
+
+    private static ByteBuffer load(Path path, long keySize) throws IOException
+    {
+	if ( keySize > CAPACITY_MAX ) { throw new IOException("Key too large to cache: " + keySize + " bytes"); }
+	ByteBuffer keyBuffer;
+	try { keyBuffer = ByteBuffer.allocateDirect((int)keySize); } catch (OutOfMemoryError ex) { throw new IOException("No memory to cache key: " + ex.getMessage()); }
+	try (final FileChannel readKeySourceChannel = FileChannel.open(path, EnumSet.of(StandardOpenOption.READ)))
+	{
+	    while ( keyBuffer.hasRemaining() ) { if ( readKeySourceChannel.read(keyBuffer, keyBuffer.position()) == -1 ) { throw new IOException("Key shorter than " + keySize + " bytes: " + path.toString()); } }
+	}
+	keyBuffer.flip();
+	return keyBuffer.asReadOnlyBuffer();
+    }
+
+//  Removes least recently used keys until size more bytes fit
+    private static void evict(long size)
+    {
+	for (Iterator<Map.Entry<String, ByteBuffer>> iterator = keyBufferMap.entrySet().iterator(); ( iterator.hasNext() ) && ( cachedBytes + size > capacity );)
+	{
+	    cachedBytes -= iterator.next().getValue().capacity(); iterator.remove();
+	}
+    }
+
+    private static String getId(Path path, long keySize)
+    {
+	long modified = 0; try { modified = Files.getLastModifiedTime(path).toMillis(); } catch (IOException ex) { } // Devices
+	return path.toAbsolutePath().normalize().toString() + ":" + keySize + ":" + modified;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2017 Ron de Jong (ronuitzaandam@gmail.com).
+ *
+ * This is free software; you can redistribute it
+ * under the terms of the Creative Commons License
+ * Creative Commons License: (CC BY-NC-ND 4.0) as published by
+ * https://creativecommons.org/licenses/by-nc-nd/4.0/ ; either
+ * version 4.0 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Creative Commons Attribution-NonCommercial-NoDerivatives 4.0
+ * International Public License for more details.
+ *
+ * You should have received a copy of the Creative Commons
+ * Public License License along with this software;
+ */
+
+package rdj;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+    Read-ahead key reader for keys that don't fit in the key cache (multi TB key files, key partitions on USB devices).
+
+    A background thread reads the key stream of one target (KeyStream positions: wraps at the end of the key like the legacy
+    engine) in large sequential reads up to window bytes ahead of the consumer. The consumer fills its key buffers in data
+    offset order with fill(..) and only waits when the key device is slower than the XOR.
+*/
+
+public class KeyPrefetcher implements Closeable
+{
+    public static final    int	    CHUNK_SIZE =	(8 * 1024 * 1024); // 8 MiB per read
+    public static final    long	    WINDOW_DEFAULT =	(64L * 1024L * 1024L); // 64 MiB
+
+    private final long keySize;
+    private final int keyBlockSize;
+    private final FileChannel readKeySourceChannel;
+    private final ArrayList<ByteBuffer> chunkList = new ArrayList<>();
+    private final ArrayBlockingQueue<ByteBuffer> freeQueue;
+    private final ArrayBlockingQueue<ByteBuffer> fullQueue;
+    private final ByteBuffer endChunk = ByteBuffer.allocate(0); // Read error or closed
+    private final AtomicReference<IOException> readError = new AtomicReference<>();
+    private final Thread readThread;
+    private volatile boolean closed = false;
+
+    private ByteBuffer chunk = null;	// Consumer's current chunk
+    private long dataOffset = 0;	// Next data offset of the consumer
+
+    public KeyPrefetcher(Path path, long keySize, int keyBlockSize, long window, long dataOffset) throws IOException
+    {
+	this.keySize = keySize;
+	this.keyBlockSize = keyBlockSize;
+	this.dataOffset = dataOffset; // Resumed target
+	int chunkSize = (int)Math.max(1, Math.min(CHUNK_SIZE, window / 2));
+	int chunks = (int)Math.max(2, window / chunkSize);
+	freeQueue = new ArrayBlockingQueue<>(chunks);
+	fullQueue = new ArrayBlockingQueue<>(chunks + 1); // + end chunk
+	for (int count = 0; count < chunks; count++) { chunkList.add(BufferPool.lease(chunkSize)); }
+	freeQueue.addAll(chunkList);
+
+	readKeySourceChannel = FileChannel.open(path, EnumSet.of(StandardOpenOption.READ));
+	final long readDataOffset = dataOffset;
+	readThread = new Thread(() -> read(readDataOffset), "KeyPrefetcher"); readThread.setDaemon(true); readThread.start();
+    }
+
+//  Copies the key bytes of data offset .. dataOffset + length to keySourceBuffer[index ..] (data offsets in order, positions & limits unchanged)
+    public void fill(ByteBuffer keySourceBuffer, int index, long dataOffset, int length) throws IOException
+    {
+	if ( dataOffset != this.dataOffset ) { throw new IOException("Key prefetch out of order: " + dataOffset + " expected: " + this.dataOffset); }
+	ByteBuffer destin = keySourceBuffer.duplicate(); destin.clear(); destin.position(index);
+	while ( length > 0 )
+	{
+	    if (( chunk == null ) || ( ! chunk.hasRemaining() )) { if ( chunk != null ) { freeQueue.offer(chunk); } chunk = takeChunk(); }
+	    int run = Math.min(length, chunk.remaining());
+	    ByteBuffer source = chunk.duplicate(); source.limit(source.position() + run); destin.put(source);
+	    chunk.position(chunk.position() + run); this.dataOffset += run; length -= run;
+	}
+    }
+
+    @Override public void close()
+    {
+	closed = true; readThread.interrupt();
+	try { readThread.join(); } catch (InterruptedException ex) { Thread.currentThread().interrupt(); }
+	try { readKeySourceChannel.close(); } catch (IOException ex) { }
+	for (ByteBuffer buffer : chunkList) { BufferPool.release(buffer); } chunkList.clear();
+    }
+
+    private ByteBuffer takeChunk() throws IOException
+    {
+	ByteBuffer nextChunk;
+	try { nextChunk = fullQueue.take(); } catch (InterruptedException ex) { throw new InterruptedIOException("Key prefetch interrupted"); }
+	if ( nextChunk == endChunk ) { fullQueue.offer(endChunk); if ( readError.get() != null ) { throw readError.get(); } else { throw new IOException("Key prefetch closed"); } }
+	return nextChunk;
+    }
+
+//  Background thread: fills free chunks with the key stream from readDataOffset
+    private void read(long readDataOffset)
+    {
+	try
+	{
+	    while ( ! closed )
+	    {
+		ByteBuffer readChunk = freeQueue.take(); readChunk.clear();
+		readChunk(readChunk, readDataOffset); readChunk.flip(); readDataOffset += readChunk.limit();
+		fullQueue.put(readChunk);
+	    }
+	}
+	catch (IOException ex)		{ if ( ! closed ) { readError.set(ex); } }
+	catch (InterruptedException ex) { }
+	fullQueue.offer(endChunk);
+    }
+
+//  Fills chunk with the key bytes of readDataOffset .., consecutive key positions are read at once
+    private void readChunk(ByteBuffer readChunk, long readDataOffset) throws IOException
+    {
+	long readKeyIndex = -1; int readLength = 0;
+	for (int filled = 0; filled < readChunk.capacity();)
+	{
+	    long keyIndex = KeyStream.getKeyIndex(readDataOffset + filled, keySize, keyBlockSize);
+	    int run = (int)Math.min(Math.min(readChunk.capacity() - filled, keyBlockSize - ((readDataOffset + filled) % keyBlockSize)), keySize - keyIndex);
+	    if (( readLength > 0 ) && ( keyIndex == readKeyIndex + readLength )) { readLength += run; }
+	    else { readKey(readChunk, readKeyIndex, readLength); readKeyIndex = keyIndex; readLength = run; }
+	    filled += run;
+	}
+	readKey(readChunk, readKeyIndex, readLength);
+    }
+
+    private void readKey(ByteBuffer readChunk, long keyIndex, int length) throws IOException
+    {
+	if ( length == 0 ) { return; }
+	ByteBuffer destin = readChunk.duplicate(); destin.limit(readChunk.position() + length);
+	while ( destin.hasRemaining() ) { if ( readKeySourceChannel.read(destin, keyIndex + (destin.position() - readChunk.position())) == -1 ) { throw new IOException("Unexpected end of key at: " + keyIndex); } }
+	readChunk.position(destin.position());
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright © 2017 Ron de Jong (ronuitzaandam@gmail.com).
+ *
+ * This is free software; you can redistribute it
+ * under the terms of the Creative Commons License
+ * Creative Commons License: (CC BY-NC-ND 4.0) as published by
+ * https://creativecommons.org/licenses/by-nc-nd/4.0/ ; either
+ * version 4.0 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Creative Commons Attribution-NonCommercial-NoDerivatives 4.0
+ * International Public License for more details.
+ *
+ * You should have received a copy of the Creative Commons
+ * Public License License along with this software;
+ */
+
+package rdj;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/*
+    Key stream of FinalCrypt: the key byte used for every target data offset.
+
+    The legacy engine reads key blocks of keyBlockSize = min(bufferSize, keySize) bytes. A short key read continues at the start
+    of the key, so block N starts at getKeyPosition(N, ..) and not at (N * keyBlockSize) % keySize.
+
+    The key is held in memory (KeyCache), so all files & workers are served without key reads. Keys smaller than the I/O buffer
+    are repeated by the key stream, so the engines keep their optimal I/O buffer size instead of shrinking it to the key size.
+*/
+
+public class KeyStream
+{
+    private final Path path;
+    private final long keySize;
+    private final int keyBlockSize;
+    private final ByteBuffer keyBuffer; // Whole key (read-only, shared by workers)
+
+    public KeyStream(Path path, long keySize, int keyBlockSize) throws IOException
+    {
+	this.path = path;
+	this.keySize = keySize;
+	this.keyBlockSize = keyBlockSize;
+	this.keyBuffer = KeyCache.get(path, keySize);
+    }
+
+    public Path getPath()				    { return path; }
+    public long getKeySize()				    { return keySize; }
+    public int getKeyBlockSize()			    { return keyBlockSize; }
+    public boolean matches(Path keyPath, long keySize, int keyBlockSize)    { return ( path.toAbsolutePath().normalize().equals(keyPath.toAbsolutePath().normalize()) ) && ( this.keySize == keySize ) && ( this.keyBlockSize == keyBlockSize ); }
+
+//  Key index of the key byte used for data offset (data offset 0 = first byte after the token)
+    public long getKeyIndex(long dataOffset) { return getKeyIndex(dataOffset, keySize, keyBlockSize); }
+
+    public static long getKeyIndex(long dataOffset, long keySize, int keyBlockSize)
+    {
+	long keyPosition = getKeyPosition(dataOffset / keyBlockSize, keySize, keyBlockSize); if ( keyPosition >= keySize ) { keyPosition = 0; }
+	return (keyPosition + (dataOffset % keyBlockSize)) % keySize;
+    }
+
+//  Copies the key bytes of data offset .. dataOffset + length to keySourceBuffer[index ..] (positions & limits unchanged)
+    public void fill(ByteBuffer keySourceBuffer, int index, long dataOffset, int length)
+    {
+	ByteBuffer destin = keySourceBuffer.duplicate(); destin.clear(); destin.position(index);
+	ByteBuffer source = keyBuffer.duplicate();
+	while ( length > 0 )
+	{
+	    int keyIndex = (int)getKeyIndex(dataOffset);
+	    int run = getRun(dataOffset, keyIndex, length);
+	    source.limit(keyIndex + run); source.position(keyIndex); destin.put(source);
+	    dataOffset += run; length -= run;
+	}
+    }
+
+//  targetDestin[dstIndex + x] = targetSource[srcIndex + x] ^ key byte of dataOffset + x, straight from the key (no key buffer)
+    public void xor(ByteBuffer srcBuffer, int srcIndex, ByteBuffer dstBuffer, int dstIndex, long dataOffset, int length)
+    {
+	int done = 0;
+	while ( done < length )
+	{
+	    int keyIndex = (int)getKeyIndex(dataOffset);
+	    int run = getRun(dataOffset, keyIndex, length - done);
+	    XORKernel.xor(srcBuffer, srcIndex + done, keyBuffer, keyIndex, dstBuffer, dstIndex + done, run);
+	    dataOffset += run; done += run;
+	}
+    }
+
+//  Contiguous key bytes from keyIndex: up to the end of the key block and the end of the key (continues at the start of the key)
+    private int getRun(long dataOffset, int keyIndex, int length) { return (int)Math.min(Math.min(length, keyBlockSize - (dataOffset % keyBlockSize)), keySize - keyIndex); }
+
+//  Key read position of block number block (closed form of getNextKeyPosition(..) starting at 0, blockSize <= keySize)
+//  Not keyPosition = (block * blockSize) % keySize: after a short read the legacy engine continues at blockSize (or blockSize - 1)
+    public static long getKeyPosition(long block, long keySize, int blockSize)
+    {
+	if ( block == 0 ) { return 0; }
+	long blocks = keySize / blockSize;
+	if	( keySize % blockSize != 0 )	{ return ((block - 1) % blocks + 1) * blockSize; }				    // blockSize, 2 * blockSize .. blocks * blockSize
+	else if ( blockSize == 1 )		{ return block % (keySize + 1); }						    // 0 .. keySize
+	else
+	{
+	    long cycle = (block - 1) % (2 * blocks);
+	    if ( cycle < blocks )		{ return (cycle + 1) * blockSize; }						    // blockSize .. keySize
+	    else				{ return (cycle - blocks + 1) * blockSize - 1; }				    // blockSize - 1 .. keySize - 1
+	}
+    }
+
+//  Key read position after a block of blockSize key bytes is read at keyPosition (blockSize <= keySize)
+//  Same as the legacy engine: a short read continues at the start of the key and the position becomes the sum of both read results
+    public static long getNextKeyPosition(long keyPosition, long keySize, int blockSize)
+    {
+	long transfered = ( keyPosition < keySize ) ? Math.min(blockSize, keySize - keyPosition) : -1;
+	if ( transfered < blockSize )	{ return transfered + (blockSize - Math.max(transfered, 0)); }
+	else				{ return keyPosition + transfered; }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2017 Ron de Jong (ronuitzaandam@gmail.com).
+ *
+ * This is free software; you can redistribute it
+ * under the terms of the Creative Commons License
+ * Creative Commons License: (CC BY-NC-ND 4.0) as published by
+ * https://creativecommons.org/licenses/by-nc-nd/4.0/ ; either
+ * version 4.0 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Creative Commons Attribution-NonCommercial-NoDerivatives 4.0
+ * International Public License for more details.
+ *
+ * You should have received a copy of the Creative Commons
+ * Public License License along with this software;
+ */
+
+package rdj;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+    Token cache: the FinalCrypt token of every key, so classifying & encrypting files costs no key reads.
+
+    token	plain text token (70 bytes) + plain text token encrypted with the key header (the first 70 key bytes)
+
+    A target is authenticated by comparing its encrypted token with the cached one (same as decrypting it and comparing it with
+    the plain text token: encryptByte is one to one). The token of a key is created again when the key's size or modification
+    time changes.
+
+    A token hash (64 bit FNV-1a of the encrypted token) is kept of scanned targets (FCPath.tokenHash, ScanCache): comparing it with
+    the hash of a key token authenticates the target against another key without reading it again (Validate.reclassify(..)).
+*/
+
+public class KeyTokenCache
+{
+    public static final    int	    HEADER_SIZE =	FinalCrypt.FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN.length(); // Key bytes used by the token
+    private static final   int	    CAPACITY =		16; // Keys
+    private static final   long	    FNV_OFFSET =	0xCBF29CE484222325L;
+    private static final   long	    FNV_PRIME =		0x100000001B3L;
+
+    private static final LinkedHashMap<String, KeyToken> keyTokenMap = new LinkedHashMap<String, KeyToken>(16, 0.75f, true) // Access order (LRU first)
+    {
+	private static final long serialVersionUID = 1L;
+	@Override protected boolean removeEldestEntry(Map.Entry<String, KeyToken> eldest) { return ( size() > CAPACITY ); }
+    };
+
+//  Target destin token of the key (a new buffer, ready to write)
+    public static ByteBuffer getToken(Path keyPath) throws IOException { return ByteBuffer.wrap(get(keyPath).clone()); }
+
+//  True when encryptedTokenBuffer (the second half of a target's token, position 0 .. limit) was encrypted with this key
+    public static boolean authenticates(Path keyPath, ByteBuffer encryptedTokenBuffer) throws IOException { return authenticates(get(keyPath), encryptedTokenBuffer); }
+
+//  Same with a token of get(..) (no key stat per target: FCPathWalker)
+    public static boolean authenticates(byte[] token, ByteBuffer encryptedTokenBuffer)
+    {
+	if ( encryptedTokenBuffer.limit() != HEADER_SIZE ) { return false; }
+	for (int index = 0; index < HEADER_SIZE; index++) { if ( encryptedTokenBuffer.get(index) != token[HEADER_SIZE + index] ) { return false; } }
+	return true;
+    }
+
+//  Token hash of a target's encrypted token (position 0 .. limit), never 0 (no token) or -1 (ScanCache.MISS)
+    public static long getTokenHash(ByteBuffer encryptedTokenBuffer)
+    {
+	long hash = FNV_OFFSET;
+	for (int index = 0; index < encryptedTokenBuffer.limit(); index++) { hash = (hash ^ (encryptedTokenBuffer.get(index) & 0xFF)) * FNV_PRIME; }
+	if (( hash == 0 ) || ( hash == -1 )) { return 1; } else { return hash; }
+    }
+
+//  Token hash a target encrypted with the key of this token (get(..)) has
+    public static long getTokenHash(byte[] token) { return getTokenHash(ByteBuffer.wrap(token, HEADER_SIZE, HEADER_SIZE).slice()); }
+
+//  Token of a key header (missing header bytes are 0 like an unread key buffer)
+    public static byte[] createToken(byte[] keyHeader)
+    {
+	ByteBuffer plainTextTokenBuffer = ByteBuffer.wrap(FinalCrypt.FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN.getBytes());
+	ByteBuffer keyHeaderBuffer = ByteBuffer.wrap(new byte[HEADER_SIZE]); keyHeaderBuffer.put(keyHeader, 0, Math.min(keyHeader.length, HEADER_SIZE)); keyHeaderBuffer.clear();
+	ByteBuffer encryptedTokenBuffer = FinalCrypt.encryptBuffer(plainTextTokenBuffer, keyHeaderBuffer, false);
+
+	byte[] token = new byte[HEADER_SIZE * 2];
+	System.arraycopy(plainTextTokenBuffer.array(), 0, token, 0, HEADER_SIZE);
+	encryptedTokenBuffer.get(token, HEADER_SIZE, HEADER_SIZE);
+	return token;
+    }
+
+    public static synchronized void clear() { keyTokenMap.clear(); }
+
+//  Token of the key (shared array, not to be modified)
+    public static byte[] get(Path keyPath) throws IOException
+    {
+	String path = keyPath.toAbsolutePath().normalize().toString();
+	BasicFileAttributes attributes = Files.readAttributes(keyPath, BasicFileAttributes.class);
+	String version = attributes.size() + ":" + attributes.lastModifiedTime().toMillis();
+	synchronized (KeyTokenCache.class) { KeyToken keyToken = keyTokenMap.get(path); if (( keyToken != null ) && ( keyToken.version.equals(version) )) { return keyToken.token; } }
+
+//	Read outside the lock, a concurrent read of the same key is harmless
+	byte[] token = createToken(readHeader(keyPath));
+	synchronized (KeyTokenCache.class) { keyTokenMap.put(path, new KeyToken(version, token)); }
+	return token;
+    }
+
+    private static byte[] readHeader(Path keyPath) throws IOException
+    {
+	ByteBuffer keyHeaderBuffer = ByteBuffer.allocate(HEADER_SIZE);
+	try (final FileChannel readKeySourceChannel = FileChannel.open(keyPath, EnumSet.of(StandardOpenOption.READ)))
+	{
+	    while ( keyHeaderBuffer.hasRemaining() ) { if ( readKeySourceChannel.read(keyHeaderBuffer, keyHeaderBuffer.position()) == -1 ) { break; } }
+	}
+	keyHeaderBuffer.flip();
+	byte[] keyHeader = new byte[keyHeaderBuffer.limit()]; keyHeaderBuffer.get(keyHeader);
+	return keyHeader;
+    }
+
+    private static class KeyToken
+    {
+	final String version; // Key size & modification time
+	final byte[] token;
+
+	KeyToken(String version, byte[] token) { this.version = version; this.token = token; }
+    }
+}
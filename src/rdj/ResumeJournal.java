@@ -0,0 +1,183 @@
+/*
+ * Copyright © 2017 Ron de Jong (ronuitzaandam@gmail.com).
+ *
+ * This is free software; you can redistribute it
+ * under the terms of the Creative Commons License
+ * Creative Commons License: (CC BY-NC-ND 4.0) as published by
+ * https://creativecommons.org/licenses/by-nc-nd/4.0/ ; either
+ * version 4.0 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Creative Commons Attribution-NonCommercial-NoDerivatives 4.0
+ * International Public License for more details.
+ *
+ * You should have received a copy of the Creative Commons
+ * Public License License along with this software;
+ */
+
+package rdj;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/*
+    Progress journal of an encrypt / decrypt run, so a stopped or crashed run can be continued with --resume.
+
+    header	magic, key path, key size, mode, buffer size (the key positions depend on it)
+    records	RECORD_DONE	    target finished (original shredded & deleted)
+		RECORD_OFFSET	    data bytes of the target that are on disk in its destin (forced before the record is written)
+		RECORD_COMMITTED    destin of the target committed, original (size) not shredded & deleted yet: a resumed run
+				    finishes it before anything else (the original may be half shredded already)
+
+    Records are appended, a torn last record (crash) ends the journal. The journal is deleted when a run completes.
+
+    One journal per key & mode (getJournalPath(..)), so a run with another key or mode leaves a stopped run alone. A running run
+    locks its journal: a concurrent run with the same key & mode (GUI & CLI) isn't journaled instead of corrupting it.
+*/
+
+public class ResumeJournal
+{
+    public static final    String   JOURNAL_PREFIX =	"resume-";
+    public static final    String   JOURNAL_EXTENSION =	".fcjournal";
+    public static final    long	    CHECKPOINT_SIZE =	(64L * 1024L * 1024L); // Data bytes between offset records
+    private static final   long	    MAGIC =		0x4643524553554D45L; // "FCRESUME"
+    private static final   byte	    RECORD_DONE =	1;
+    private static final   byte	    RECORD_OFFSET =	2;
+    private static final   byte	    RECORD_COMMITTED =	3;
+
+    private final Path journalPath;
+    private final HashSet<Path> donePathSet = new HashSet<>();
+    private final HashMap<Path, Long> offsetMap = new HashMap<>();
+    private final HashMap<Path, Path> committedDestinMap = new HashMap<>();
+    private final HashMap<Path, Long> committedSizeMap = new HashMap<>();
+    private FileChannel journalChannel;
+    private FileLock journalLock;
+    private long validLength = 0; // Journal bytes up to the last complete record (load)
+
+    public ResumeJournal(Path journalPath) { this.journalPath = journalPath; }
+
+    public Path getJournalPath()				    { return journalPath; }
+    public static Path getJournalPath(Path journalDirPath, Path keyPath, boolean encryptmode) { return journalDirPath.resolve(JOURNAL_PREFIX + MD5Converter.getMD5SumFromString(normalize(keyPath).toString() + "\n" + encryptmode) + JOURNAL_EXTENSION); }
+    public synchronized boolean isDone(Path targetSourcePath)	    { return donePathSet.contains(normalize(targetSourcePath)); }
+    public synchronized long getOffset(Path targetSourcePath)	    { Long offset = offsetMap.get(normalize(targetSourcePath)); if ( offset == null ) { return 0; } else { return offset; } }
+    public synchronized HashMap<Path, Path> getCommittedMap()	    { return new HashMap<>(committedDestinMap); } // Target source path, destin path
+    public synchronized long getCommittedSize(Path targetSourcePath) { Long size = committedSizeMap.get(normalize(targetSourcePath)); if ( size == null ) { return 0; } else { return size; } }
+
+//  Reads the journal of a stopped run (false when there is none or when it was written with another key, mode or buffer size)
+    public synchronized boolean load(Path keyPath, long keySize, boolean encryptmode, int bufferSize) throws IOException
+    {
+	donePathSet.clear(); offsetMap.clear(); committedDestinMap.clear(); committedSizeMap.clear();
+	if ( ! Files.isRegularFile(journalPath) ) { return false; }
+	byte[] journalBytes = Files.readAllBytes(journalPath);
+	byte[] header = getHeader(keyPath, keySize, encryptmode, bufferSize);
+	if (( journalBytes.length < header.length ) || ( ! Arrays.equals(Arrays.copyOf(journalBytes, header.length), header) )) { return false; }
+	ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(journalBytes, header.length, journalBytes.length - header.length);
+	DataInputStream dataInputStream = new DataInputStream(byteArrayInputStream);
+	validLength = header.length;
+	try
+	{
+	    while ( true )
+	    {
+		byte type = dataInputStream.readByte(); long offset = dataInputStream.readLong(); Path path = Paths.get(dataInputStream.readUTF());
+		if	( type == RECORD_DONE )	    { donePathSet.add(path); offsetMap.remove(path); committedDestinMap.remove(path); committedSizeMap.remove(path); }
+		else if ( type == RECORD_OFFSET )   { offsetMap.put(path, offset); }
+		else if ( type == RECORD_COMMITTED ) { Path destinPath = Paths.get(dataInputStream.readUTF()); offsetMap.remove(path); committedDestinMap.put(path, destinPath); committedSizeMap.put(path, offset); }
+		else				    { break; } // Torn record
+		validLength = journalBytes.length - byteArrayInputStream.available();
+	    }
+	} catch (IOException | RuntimeException ex) { } // End of journal (or torn record)
+	return true;
+    }
+
+//  Starts journaling a run: a new journal, or appending to the loaded one when resuming (locked first, IOException when in use)
+//  Returns true when a new journal replaced the one of a stopped run
+    public synchronized boolean open(Path keyPath, long keySize, boolean encryptmode, int bufferSize, boolean resume) throws IOException
+    {
+	Files.createDirectories(journalPath.toAbsolutePath().getParent());
+	journalChannel = FileChannel.open(journalPath, EnumSet.of(StandardOpenOption.CREATE, StandardOpenOption.WRITE));
+	try { journalLock = journalChannel.tryLock(); } catch (OverlappingFileLockException ex) { journalLock = null; }
+	if ( journalLock == null ) { journalChannel.close(); journalChannel = null; throw new IOException(journalPath.toString() + " is in use by another run"); }
+	if ( resume ) { journalChannel.truncate(validLength); journalChannel.position(validLength); return false; } // Torn record dropped
+	boolean replaced = ( journalChannel.size() > 0 ); // Journals of completed runs are deleted
+	donePathSet.clear(); offsetMap.clear(); committedDestinMap.clear(); committedSizeMap.clear();
+	journalChannel.truncate(0);
+	write(ByteBuffer.wrap(getHeader(keyPath, keySize, encryptmode, bufferSize))); journalChannel.force(true);
+	return replaced;
+    }
+
+//  Target finished (not forced: a lost record only means the target is checked again, its original is gone)
+    public synchronized void done(Path targetSourcePath) throws IOException
+    {
+	if ( journalChannel == null ) { return; }
+	donePathSet.add(normalize(targetSourcePath)); offsetMap.remove(normalize(targetSourcePath)); committedDestinMap.remove(normalize(targetSourcePath)); committedSizeMap.remove(normalize(targetSourcePath));
+	write(getRecord(RECORD_DONE, 0, targetSourcePath, null));
+    }
+
+//  Destin of the target committed, its original (targetSourceSize) is shredded & deleted next (forced: the original is changed after it)
+    public synchronized void committed(Path targetSourcePath, long targetSourceSize, Path targetDestinPath) throws IOException
+    {
+	if ( journalChannel == null ) { return; }
+	offsetMap.remove(normalize(targetSourcePath)); committedDestinMap.put(normalize(targetSourcePath), normalize(targetDestinPath)); committedSizeMap.put(normalize(targetSourcePath), targetSourceSize);
+	write(getRecord(RECORD_COMMITTED, targetSourceSize, targetSourcePath, targetDestinPath)); journalChannel.force(false);
+    }
+
+//  Data bytes of the target on disk in its destin (the destin must be forced before)
+    public synchronized void offset(Path targetSourcePath, long offset) throws IOException
+    {
+	if ( journalChannel == null ) { return; }
+	offsetMap.put(normalize(targetSourcePath), offset);
+	write(getRecord(RECORD_OFFSET, offset, targetSourcePath, null)); journalChannel.force(false);
+    }
+
+//  Ends journaling, the journal is kept for --resume unless the run is completed
+    public synchronized void close(boolean completed)
+    {
+	if ( journalChannel == null ) { return; }
+	try { journalChannel.close(); } catch (IOException ex) { } journalChannel = null; journalLock = null; // Releases the lock (an open file can't be deleted on Windows)
+	if ( completed ) { try { Files.deleteIfExists(journalPath); } catch (IOException ex) { } }
+    }
+
+    private void write(ByteBuffer buffer) throws IOException { while ( buffer.hasRemaining() ) { journalChannel.write(buffer); } }
+
+    private static Path normalize(Path path) { return path.toAbsolutePath().normalize(); }
+
+    private static byte[] getHeader(Path keyPath, long keySize, boolean encryptmode, int bufferSize)
+    {
+	ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+	try (DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream))
+	{
+	    dataOutputStream.writeLong(MAGIC); dataOutputStream.writeUTF(normalize(keyPath).toString()); dataOutputStream.writeLong(keySize);
+	    dataOutputStream.writeBoolean(encryptmode); dataOutputStream.writeInt(bufferSize);
+	} catch (IOException ex) { } // Not thrown by a ByteArrayOutputStream
+	return byteArrayOutputStream.toByteArray();
+    }
+
+//  targetDestinPath: RECORD_COMMITTED only (null = none)
+    private static ByteBuffer getRecord(byte type, long offset, Path targetSourcePath, Path targetDestinPath)
+    {
+	ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+	try (DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream))
+	{
+	    dataOutputStream.writeByte(type); dataOutputStream.writeLong(offset); dataOutputStream.writeUTF(normalize(targetSourcePath).toString());
+	    if ( targetDestinPath != null ) { dataOutputStream.writeUTF(normalize(targetDestinPath).toString()); }
+	} catch (IOException ex) { }
+	return ByteBuffer.wrap(byteArrayOutputStream.toByteArray());
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright © 2017 Ron de Jong (ronuitzaandam@gmail.com).
+ *
+ * This is free software; you can redistribute it
+ * under the terms of the Creative Commons License
+ * Creative Commons License: (CC BY-NC-ND 4.0) as published by
+ * https://creativecommons.org/licenses/by-nc-nd/4.0/ ; either
+ * version 4.0 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Creative Commons Attribution-NonCommercial-NoDerivatives 4.0
+ * International Public License for more details.
+ *
+ * You should have received a copy of the Creative Commons
+ * Public License License along with this software;
+ */
+
+package rdj;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Persistent classification cache (~/.finalcrypt/scan.fccache): the token probe of every readable scanned file, so an unchanged
+    selection is classified again without opening its files.
+
+    entry	path hash, file key hash (inode), size, modification time, token hash (0 = no token, see KeyTokenCache.getTokenHash)
+
+    An entry is used when the file key, size and modification time of the file are unchanged. It doesn't depend on the key: a
+    target is authenticated by comparing its token hash with the one of the key (FinalCrypt authenticates the token it reads again
+    before decrypting). FinalCrypt removes the entries of the files it writes (it keeps their modification time) and saves the
+    removals at the end of a run. Hashes are 64 bit FNV-1a, entries live in primitive arrays (open addressing) and are written in
+    one pass when a scan or run changed them.
+*/
+
+public class ScanCache
+{
+    public static final    String   CACHE_NAME =	"scan.fccache";
+    public static final    long	    MISS =		-1; // get(..): not cached
+    private static final   long	    MAGIC =		0x46435343414E3032L; // "FCSCAN02"
+    private static final   int	    CAPACITY_MIN =	1024;
+    private static final   int	    ENTRIES_MAX =	(8 * 1024 * 1024); // Cache is started over beyond this
+    private static final   long	    FNV_OFFSET =	0xCBF29CE484222325L;
+    private static final   long	    FNV_PRIME =		0x100000001B3L;
+
+    private static Path cachePath = null; // null = disabled
+    private static boolean loaded = false;
+    private static boolean changed = false;
+    private static int entries = 0;
+    private static long[] pathHashes = new long[CAPACITY_MIN]; // 0 = free slot
+    private static long[] fileKeyHashes = new long[CAPACITY_MIN];
+    private static long[] sizes = new long[CAPACITY_MIN]; // -1 = removed
+    private static long[] modifiedTimes = new long[CAPACITY_MIN];
+    private static long[] tokenHashes = new long[CAPACITY_MIN];
+
+    public static synchronized void setCachePath(Path path) { cachePath = path; loaded = false; clear(); }
+
+//  Token hash of the file (0 = no token) or MISS when it has to be probed (no entry, file changed)
+    public static long get(Path path, BasicFileAttributes attributes)
+    {
+	if ( cachePath == null ) { return MISS; }
+	long pathHash = getPathHash(path); long fileKeyHash = getFileKeyHash(attributes); long modifiedTime = getModifiedTime(attributes);
+	synchronized (ScanCache.class)
+	{
+	    load();
+	    int slot = find(pathHash);
+	    if (( pathHashes[slot] == 0 ) || ( fileKeyHashes[slot] != fileKeyHash ) || ( sizes[slot] != attributes.size() ) || ( modifiedTimes[slot] != modifiedTime )) { return MISS; }
+	    return tokenHashes[slot];
+	}
+    }
+
+//  Result of the token probe of a readable file
+    public static void put(Path path, BasicFileAttributes attributes, long tokenHash)
+    {
+	if ( cachePath == null ) { return; }
+	long pathHash = getPathHash(path); long fileKeyHash = getFileKeyHash(attributes); long modifiedTime = getModifiedTime(attributes);
+	synchronized (ScanCache.class)
+	{
+	    load();
+	    if ( entries >= ENTRIES_MAX ) { clear(); } // Started over (removed files are never dropped otherwise)
+	    int slot = find(pathHash);
+	    if ( pathHashes[slot] == 0 ) { pathHashes[slot] = pathHash; entries++; }
+	    fileKeyHashes[slot] = fileKeyHash; sizes[slot] = attributes.size(); modifiedTimes[slot] = modifiedTime; tokenHashes[slot] = tokenHash;
+	    changed = true;
+	    if ( entries * 2 > pathHashes.length ) { resize(pathHashes.length * 2); }
+	}
+    }
+
+//  The file was written (FinalCrypt)
+    public static void remove(Path path)
+    {
+	if ( cachePath == null ) { return; }
+	long pathHash = getPathHash(path);
+	synchronized (ScanCache.class) { load(); int slot = find(pathHash); if (( pathHashes[slot] != 0 ) && ( sizes[slot] != -1 )) { sizes[slot] = -1; changed = true; } }
+    }
+
+//  Writes the cache when it was changed (end of a scan & of a run)
+    public static synchronized void save(UI ui)
+    {
+	if (( cachePath == null ) || ( ! changed )) { return; }
+	Path writePath = cachePath.resolveSibling(cachePath.getFileName().toString() + ".tmp");
+	try
+	{
+	    Files.createDirectories(cachePath.toAbsolutePath().getParent());
+	    try (DataOutputStream dataOutputStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(writePath), 1024 * 1024)))
+	    {
+		dataOutputStream.writeLong(MAGIC); dataOutputStream.writeInt(entries);
+		for (int slot = 0; slot < pathHashes.length; slot++)
+		{
+		    if ( pathHashes[slot] == 0 ) { continue; }
+		    dataOutputStream.writeLong(pathHashes[slot]); dataOutputStream.writeLong(fileKeyHashes[slot]); dataOutputStream.writeLong(sizes[slot]);
+		    dataOutputStream.writeLong(modifiedTimes[slot]); dataOutputStream.writeLong(tokenHashes[slot]);
+		}
+	    }
+	    Files.move(writePath, cachePath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	    changed = false;
+	}
+	catch (IOException ex) { ui.log("Warning: ScanCache.save(..) " + ex.getMessage() + " (next scan probes all files)\r\n", true, true, true, false, false); try { Files.deleteIfExists(writePath); } catch (IOException ex2) { } }
+    }
+
+//  Reads the cache once (a missing, older or damaged cache is started over)
+    private static void load()
+    {
+	if ( loaded ) { return; }
+	loaded = true; clear();
+	if ( ! Files.isRegularFile(cachePath) ) { return; }
+	try (DataInputStream dataInputStream = new DataInputStream(new BufferedInputStream(Files.newInputStream(cachePath), 1024 * 1024)))
+	{
+	    if ( dataInputStream.readLong() != MAGIC ) { return; }
+	    int count = dataInputStream.readInt(); int capacity = CAPACITY_MIN; while ( capacity < count * 2 ) { capacity *= 2; } resize(capacity);
+	    for (int index = 0; index < count; index++)
+	    {
+		long pathHash = dataInputStream.readLong(); int slot = find(pathHash); if ( pathHashes[slot] == 0 ) { pathHashes[slot] = pathHash; entries++; }
+		fileKeyHashes[slot] = dataInputStream.readLong(); sizes[slot] = dataInputStream.readLong(); modifiedTimes[slot] = dataInputStream.readLong(); tokenHashes[slot] = dataInputStream.readLong();
+	    }
+	} catch (IOException | RuntimeException ex) { clear(); }
+	changed = false;
+    }
+
+    private static void clear() { entries = 0; pathHashes = new long[CAPACITY_MIN]; fileKeyHashes = new long[CAPACITY_MIN]; sizes = new long[CAPACITY_MIN]; modifiedTimes = new long[CAPACITY_MIN]; tokenHashes = new long[CAPACITY_MIN]; }
+
+//  Slot of the path hash or the free slot where it goes (linear probing, the table is never more than half full)
+    private static int find(long pathHash)
+    {
+	int mask = pathHashes.length - 1; int slot = (int)(pathHash ^ (pathHash >>> 32)) & mask;
+	while (( pathHashes[slot] != 0 ) && ( pathHashes[slot] != pathHash )) { slot = (slot + 1) & mask; }
+	return slot;
+    }
+
+    private static void resize(int capacity)
+    {
+	long[] oldPathHashes = pathHashes; long[] oldFileKeyHashes = fileKeyHashes; long[] oldSizes = sizes; long[] oldModifiedTimes = modifiedTimes; long[] oldTokenHashes = tokenHashes;
+	pathHashes = new long[capacity]; fileKeyHashes = new long[capacity]; sizes = new long[capacity]; modifiedTimes = new long[capacity]; tokenHashes = new long[capacity];
+	for (int oldSlot = 0; oldSlot < oldPathHashes.length; oldSlot++)
+	{
+	    if ( oldPathHashes[oldSlot] == 0 ) { continue; }
+	    int slot = find(oldPathHashes[oldSlot]);
+	    pathHashes[slot] = oldPathHashes[oldSlot]; fileKeyHashes[slot] = oldFileKeyHashes[oldSlot]; sizes[slot] = oldSizes[oldSlot]; modifiedTimes[slot] = oldModifiedTimes[oldSlot]; tokenHashes[slot] = oldTokenHashes[oldSlot];
+	}
+    }
+
+    private static long getPathHash(Path path)			    { long hash = getHash(path.toAbsolutePath().toString()); if ( hash == 0 ) { return 1; } else { return hash; } }
+    private static long getFileKeyHash(BasicFileAttributes attributes) { if ( attributes.fileKey() == null ) { return 0; } else { return getHash(attributes.fileKey().toString()); } }
+    private static long getModifiedTime(BasicFileAttributes attributes) { return attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS); }
+
+    private static long getHash(String string)
+    {
+	long hash = FNV_OFFSET;
+	for (int index = 0; index < string.length(); index++) { char character = string.charAt(index); hash = (hash ^ (character & 0xFF)) * FNV_PRIME; hash = (hash ^ (character >>> 8)) * FNV_PRIME; }
+	return hash;
+    }
+}
@@ -63,14 +63,14 @@ public class Stat
     public void setFileEndEpoch()                                   { this.fileEndEpoch = System.nanoTime(); }
     public void clock()                                             { this.nanoSeconds += (fileEndEpoch - fileStartEpoch); }
     public void setMSecCounted(long param)                          { this.nanoSeconds = param; }
-    public void addMSecCounted(long param)                          { this.nanoSeconds += param; }
+    synchronized public void addMSecCounted(long param)             { this.nanoSeconds += param; }
             
 //  Adders
     
 //  File Encrypting Bytes
-    public void addFileBytesProcessed(long fileBytesProcessed)      { this.fileBytesProcessed += fileBytesProcessed; }
-    public void subFileBytesProcessed(long fileBytesProcessed)      { this.fileBytesProcessed -= fileBytesProcessed; }
-    public void addFileBytesTotal(long fileBytesTotal)              { this.fileBytesTotal += fileBytesTotal; }
+    synchronized public void addFileBytesProcessed(long fileBytesProcessed) { this.fileBytesProcessed += fileBytesProcessed; }
+    synchronized public void subFileBytesProcessed(long fileBytesProcessed) { this.fileBytesProcessed -= fileBytesProcessed; }
+    synchronized public void addFileBytesTotal(long fileBytesTotal) { this.fileBytesTotal += fileBytesTotal; }
 
 //  Stats
     
@@ -97,17 +97,17 @@ public class Stats
 //  Adders
     
 //  Files
-    public void addFilesProcessed(long filesProcessed)				{ this.filesProcessed += filesProcessed; }
-    public void addFilesTotal(long filesTotal)					{ this.filesTotal += filesTotal; }
+    synchronized public void addFilesProcessed(long filesProcessed)				{ this.filesProcessed += filesProcessed; }
+    synchronized public void addFilesTotal(long filesTotal)					{ this.filesTotal += filesTotal; }
 
 //  File Encrypting Bytes
-    public void addFileBytesProcessed(long fileBytesProcessed)			{ this.fileBytesProcessed += fileBytesProcessed; }
-    public void subFileBytesProcessed(long fileBytesProcessed)			{ this.fileBytesProcessed -= fileBytesProcessed; }
-    public void addFileBytesTotal(long fileBytesTotal)				{ this.fileBytesTotal += fileBytesTotal; }
+    synchronized public void addFileBytesProcessed(long fileBytesProcessed)			{ this.fileBytesProcessed += fileBytesProcessed; }
+    synchronized public void subFileBytesProcessed(long fileBytesProcessed)			{ this.fileBytesProcessed -= fileBytesProcessed; }
+    synchronized public void addFileBytesTotal(long fileBytesTotal)				{ this.fileBytesTotal += fileBytesTotal; }
         
 //  Files Encrypting Bytes
-    public void addAllDataBytesProcessed(String s, long filesBytesProcessed)    { this.filesBytesProcessed += filesBytesProcessed; /*System.out.println(s + " Added: " + filesBytesProcessed);*/ }
-    public void addAllDataBytesTotal(long filesBytesTotal)			{ this.filesBytesTotal += filesBytesTotal; }
+    synchronized public void addAllDataBytesProcessed(String s, long filesBytesProcessed)	{ this.filesBytesProcessed += filesBytesProcessed; /*System.out.println(s + " Added: " + filesBytesProcessed);*/ }
+    synchronized public void addAllDataBytesTotal(long filesBytesTotal)				{ this.filesBytesTotal += filesBytesTotal; }
 
 //  Stats
     
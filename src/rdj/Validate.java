@@ -20,15 +20,14 @@ package rdj;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.FileSystems;
-import java.nio.file.FileVisitOption;
+import java.nio.file.AccessDeniedException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.LinkOption;
 import java.nio.file.Path;
-import java.nio.file.PathMatcher;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
@@ -40,14 +39,13 @@ public class Validate
 {
     private static Path selectedKeyPath;
     public static long bytesCount;
-    private static MySimpleFCFileVisitor mySimpleFCFileVisitor;
     
 
     public static void validateBuild(UI ui, FCPathList targetFCPathList, FCPath keyFCPath, boolean printgpt, boolean deletegpt)
     {
     }
 
-    synchronized public static boolean isValidDir(UI ui, Path targetDirPath, boolean symlink, boolean report)
+    public static boolean isValidDir(UI ui, Path targetDirPath, boolean symlink, boolean report)
     {
         boolean validdir = true; String conditions = "";				    String exist = ""; String read = ""; String write = ""; String symbolic = "";
         if ( ! Files.exists(targetDirPath))						    { validdir = false; exist = "[not found] "; conditions += exist; }
@@ -59,7 +57,7 @@ public class Validate
         return validdir;
     }
 
-    synchronized public static boolean isValidFile(UI ui, String caller, Path path, Path keyPath, boolean device, long minSize, boolean symlink, boolean writable, boolean report) // fileValidation Wrapper (including target==keySource comparison)
+    public static boolean isValidFile(UI ui, String caller, Path path, Path keyPath, boolean device, long minSize, boolean symlink, boolean writable, boolean report) // fileValidation Wrapper (including target==keySource comparison)
     {
 	
         boolean validfile = true; String conditions = "";				    String key = "";
@@ -69,7 +67,7 @@ public class Validate
         return validfile;
     }
 
-    synchronized public static boolean isValidFile(UI ui, String caller, Path path, boolean isKey, boolean device, long minSize, boolean symlink, boolean writable, boolean report)
+    public static boolean isValidFile(UI ui, String caller, Path path, boolean isKey, boolean device, long minSize, boolean symlink, boolean writable, boolean report)
     {
         boolean validfile = true; String conditions = "";				    String size = ""; String exist = ""; String dir = ""; String read = ""; String write = ""; String symbolic = ""; String key = "";
 
@@ -103,7 +101,7 @@ public class Validate
 //			🔓!  Decrypt Legacy  (Key can't be checked! No Token present in old format)
 //			⛔   Decrypt Abort   (Key Failed)
 
-    synchronized public static boolean targetSourceHasFCToken(UI ui, Path targetSourcePath) // Tested
+    public static boolean targetSourceHasFCToken(UI ui, Path targetSourcePath) // Tested
     {
 	
 	boolean targetSourceHasToken = false;
@@ -131,17 +129,14 @@ public class Validate
 	return targetSourceHasToken;
     }
     
-    synchronized public static boolean targetHasAuthenticatedFCToken(UI ui, Path targetSourcePath, Path keySourcePath) // Tested
+    public static boolean targetHasAuthenticatedFCToken(UI ui, Path targetSourcePath, Path keySourcePath) // Tested
     {
 	boolean readTargetSourceChannelError = false;
 	boolean keyAuthenticatedTargetSource =   false;
         ByteBuffer targetSrcTokenBuffer =	    ByteBuffer.allocate(FinalCrypt.FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN.length() * 2); targetSrcTokenBuffer.clear();
         ByteBuffer targetEncryptedTokenBuffer =	    ByteBuffer.allocate(FinalCrypt.FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN.length()); targetEncryptedTokenBuffer.clear();
-        ByteBuffer keySourceBuffer =		    ByteBuffer.allocate(FinalCrypt.FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN.length()); keySourceBuffer.clear();
-        ByteBuffer keyDecryptedTokenBuffer =	    ByteBuffer.allocate(FinalCrypt.FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN.length()); keyDecryptedTokenBuffer.clear();
 	
 	long readTargetSourceChannelPosition = 0;	long readTargetSourceChannelTransfered = 0;
-	long readKeySourceChannelPosition = 0;	long readKeySourceChannelTransfered = 0;                
 	
 	// Create Target Source Token Buffer
 	try (final SeekableByteChannel readTargetSourceChannel = Files.newByteChannel(targetSourcePath, EnumSet.of(StandardOpenOption.READ)))
@@ -158,41 +153,42 @@ public class Validate
 	
 	if (( ! readTargetSourceChannelError ) && ( ! Files.isDirectory(keySourcePath)) )
 	{
-	    try (final SeekableByteChannel readKeySourceChannel = Files.newByteChannel(keySourcePath, EnumSet.of(StandardOpenOption.READ)))
-	    {
-		// Fill up keyFileBuffer
-//		readKeySourceChannel.position(readKeySourceChannelPosition);
-//		readKeySourceChannelTransfered = readKeySourceChannel.read(keySourceBuffer);
-		readKeySourceChannel.read(keySourceBuffer);
-		keySourceBuffer.flip(); readKeySourceChannel.close();
-	    } catch (IOException ex) { ui.log("Error: keyAuthenticatedTargetSource readKeySourceChannel " + ex.getMessage() + "\r\n", true, true, true, true, false); }
-	    
-	    // Create Encrypted Token Buffer
-	    keyDecryptedTokenBuffer = FinalCrypt.encryptBuffer(targetEncryptedTokenBuffer, keySourceBuffer, false);
-	    String keyDecryptedTokenBufferString = new String(keyDecryptedTokenBuffer.array(), StandardCharsets.UTF_8);
-//	    ui.status("targetHasAuthenticatedToken.keyDecryptedTokenBufferString: " + keyDecryptedTokenBufferString + "\r\n", true);
-	    
-	    // Authenticate Key Token against Target Token
-	    if ( keyDecryptedTokenBufferString.equals(FinalCrypt.FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN)) { keyAuthenticatedTargetSource = true; } else { keyAuthenticatedTargetSource = false; }
-	    
+	    // Authenticate Key Token against Target Token (cached key token, no key read per target)
+	    try { keyAuthenticatedTargetSource = KeyTokenCache.authenticates(keySourcePath, targetEncryptedTokenBuffer); }
+	    catch (IOException ex) { ui.log("Error: keyAuthenticatedTargetSource readKeySourceChannel " + ex.getMessage() + "\r\n", true, true, true, true, false); keyAuthenticatedTargetSource = false; }
 	} else { keyAuthenticatedTargetSource = false; }
 	
 	return keyAuthenticatedTargetSource;
     }
 
 
-    // Synchronized removes multifile target inconsistency, but also smooth busy animation
-    public static void buildSelection(UI ui, ArrayList<Path> pathList, FCPath keyFCPath, FCPathList targetFCPathList, boolean symlink, String pattern, boolean negatePattern, boolean status)
+    // Parallel scan (FCPathWalker), classification is not synchronized (stateless, concurrently called by the scan tasks)
+    public static void buildSelection(UI ui, ArrayList<Path> pathList, FCPath keyFCPath, FCPathList<FCPath> targetFCPathList, boolean symlink, String pattern, boolean negatePattern, boolean status)
+    {
+	buildSelection(ui, pathList, keyFCPath, targetFCPathList, symlink, pattern, negatePattern, status, null);
+    }
+
+    // Streaming scan: the targets of fcPathQueue are encrypted while scanning (targetFCPathList only gets the stats)
+    public static void buildSelection(UI ui, ArrayList<Path> pathList, FCPath keyFCPath, FCPathList<FCPath> targetFCPathList, boolean symlink, String pattern, boolean negatePattern, boolean status, FCPathQueue fcPathQueue)
+    {
+	buildSelection(ui, pathList, keyFCPath, targetFCPathList, symlink, pattern, negatePattern, status, fcPathQueue, false);
+    }
+
+    // Lazy scan: the stats of all targets first (pending), then the token probes (targetFCPathList.pendingFiles counts down)
+    public static void buildSelection(UI ui, ArrayList<Path> pathList, FCPath keyFCPath, FCPathList<FCPath> targetFCPathList, boolean symlink, String pattern, boolean negatePattern, boolean status, FCPathQueue fcPathQueue, boolean lazy)
+    {
+	buildSelection(ui, pathList, keyFCPath, targetFCPathList, symlink, new FCPathFilter(pattern, negatePattern), status, fcPathQueue, lazy);
+    }
+
+    // Filtered scan: include & exclude patterns, pruned directories and size & modification time bounds (see FCPathFilter)
+    public static void buildSelection(UI ui, ArrayList<Path> pathList, FCPath keyFCPath, FCPathList<FCPath> targetFCPathList, boolean symlink, FCPathFilter fcPathFilter, boolean status, FCPathQueue fcPathQueue, boolean lazy)
     {
 //	if (mySimpleFCFileVisitor != null) {mySimpleFCFileVisitor.running = false;} else {mySimpleFCFileVisitor.running = false;} // Being set within MySimpleFCFileVisitor instantiation
-//				    MySimpleFCFileVisitor(UI ui, boolean verbose, boolean delete, boolean symlink, boolean setFCPathlist, Path keyPath, ArrayList<FCPath> targetFCPathList, String pattern, boolean negatePattern)
-	mySimpleFCFileVisitor = new MySimpleFCFileVisitor(   ui,	     false,         false,          symlink,                  true,    keyFCPath,                   targetFCPathList,	pattern,         negatePattern);
-	for (Path path:pathList)
-	{
-	    try{ Files.walkFileTree(path, EnumSet.of(FileVisitOption.FOLLOW_LINKS,FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, mySimpleFCFileVisitor);} catch(IOException e) { ui.log("Error: Validate.buildSelection: Files.walkFileTree(path, EnumSet.of(..) " + e.getMessage() + "\r\n", true, true, true, true, false); }
-	}
-	mySimpleFCFileVisitor.running = false;
-	ui.buildReady(targetFCPathList);
+	FCPathWalker fcPathWalker = new FCPathWalker(ui, keyFCPath, targetFCPathList, symlink, fcPathFilter); // Supersedes (cancels) a running scan
+	fcPathWalker.setFCPathQueue(fcPathQueue);
+	fcPathWalker.setLazy(lazy);
+	fcPathWalker.walk(pathList, FCPathWalker.THREADS_DEFAULT);
+	if ( fcPathWalker.end() ) { ui.buildReady(targetFCPathList); } // A superseded scan leaves the dashboard to the newer one
 	
 //	if ( (targetFCPathList.size() > 0) && (mySimpleFCFileVisitor.running) )
 //	if ( (targetFCPathList.size() > 0) )
@@ -205,7 +201,15 @@ public class Validate
 //	}	
     }
 
-    synchronized public static String getHumanSize(double value,int decimals)
+    // Key switch on a scanned selection: the targets of scannedFCPathList classified against keyFCPath without walking & reading them
+    public static void reclassifySelection(UI ui, FCPathList<FCPath> scannedFCPathList, FCPath keyFCPath, FCPathList<FCPath> targetFCPathList, boolean symlink, String pattern, boolean negatePattern)
+    {
+	FCPathWalker fcPathWalker = new FCPathWalker(ui, keyFCPath, targetFCPathList, symlink, new FCPathFilter(pattern, negatePattern)); // Supersedes (cancels) a running scan
+	fcPathWalker.reclassify(scannedFCPathList, FCPathWalker.THREADS_DEFAULT);
+	if ( fcPathWalker.end() ) { ui.buildReady(targetFCPathList); }
+    }
+
+    public static String getHumanSize(double value,int decimals)
     {
         int x = 0;
         long factor;
@@ -274,7 +278,7 @@ public class Validate
 	return returnFCPathType;
     }
     
-    synchronized public static FCPath getFCPath(UI ui, String caller, Path path, boolean isKey, Path keyPath, boolean report)
+    public static FCPath getFCPath(UI ui, String caller, Path path, boolean isKey, Path keyPath, boolean report)
     {
 	boolean exist =			    false;
 	int	type =			    FCPath.INVALID;
@@ -282,27 +286,8 @@ public class Validate
 	boolean readable =		    false;
 	boolean writable =		    false;
 	boolean isHidden =		    false;
-	boolean matchKey =		    false;
-	
-	boolean isValid =		    false;
-	boolean isValidFile =		    false;
-	boolean isValidDevice =		    false;
-	boolean isValidDeviceProtected =    false;
-	boolean isValidPartition =	    false;
-
-	boolean isDecrypted =		    false;
-	boolean isEncryptable =		    false;
-	boolean isNewEncrypted =	    false;
-	boolean isUnEncryptable =	    false;
-	
-//	boolean hasFCToken =		    false;
 	boolean isEncrypted =		    false;
-//	boolean isAuthenticated =	    false;
 	boolean isDecryptable =		    false;
-	boolean isNewDecrypted =	    false;	
-	boolean isUnDecryptable =	    false;	
-	
-	boolean isValidKey =		    false;	
 
         if ( Files.exists(path, LinkOption.NOFOLLOW_LINKS) ) // Does not check if symbolic link target file exist
 //        if ( Files.exists(path) )
@@ -323,6 +308,124 @@ public class Validate
 		try { isHidden = Files.isHidden(path); } catch (IOException ex)					    { ui.log("Error: IOException: Validate.getFCPath: Files.isHidden(path) "+ ex.getMessage() + "\r\n", true, true, true, true, false); } // SoftDown.eu error
 	    }
 	    
+	    // Encrypted File State (valid files only)
+	    
+	    if (( type == FCPath.FILE ) && ( size > 0 ) && ( readable ) && (( isKey ) || ( writable )))
+	    {
+		isEncrypted = targetSourceHasFCToken(ui, path);
+		if ((isEncrypted) && (keyPath != null)  && (size > (FinalCrypt.FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN.length() * 2))) { if (keyPath != null) isDecryptable = targetHasAuthenticatedFCToken(ui, path, keyPath); }
+	    }
+	}
+	return getFCPath(path, isKey, keyPath, exist, type, size, readable, writable, isHidden, isEncrypted, isDecryptable);
+    }
+
+//  Classification of a walked target with the attributes of the walk (of the path itself, links are not followed) and one read of
+//  the token: the same FCPath as getFCPath(..), without the exists, type, size & readable probes and the second open & key read
+//  (keyToken = KeyTokenCache.get(keyPath), null = not authenticated). Links, devices & failed paths use getFCPath(..)
+    public static FCPath getFCPath(UI ui, Path path, BasicFileAttributes attributes, Path keyPath, byte[] keyToken) { return getFCPath(ui, path, attributes, keyPath, keyToken, false); }
+
+//  lazy: a target that needs a token read is returned pending (stat facts only) and classified later (lazy = false)
+    public static FCPath getFCPath(UI ui, Path path, BasicFileAttributes attributes, Path keyPath, byte[] keyToken, boolean lazy)
+    {
+	if (( attributes == null ) || ( ! attributes.isRegularFile() ) || ( path.toAbsolutePath().toString().startsWith("/dev/") )) { return getFCPath(ui, "", path, false, keyPath, true); }
+
+	long    size =			    attributes.size();
+	boolean readable =		    false;
+	boolean writable =		    Files.isWritable(path);
+	boolean isHidden =		    false;
+	boolean isEncrypted =		    false;
+	boolean isDecryptable =		    false;
+	long	tokenHash =		    0;
+	
+//	Unchanged file (size, modification time & file key) that was readable: the probe of an earlier scan (permissions stay live)
+	long cachedTokenHash = ScanCache.MISS; if (( size > 0 ) && ( writable )) { cachedTokenHash = ScanCache.get(path, attributes); }
+	if (( cachedTokenHash != ScanCache.MISS ) && ( Files.isReadable(path) ))
+	{
+	    readable = true; tokenHash = cachedTokenHash; isEncrypted = ( tokenHash != 0 );
+	    isDecryptable = ( isEncrypted ) && ( keyPath != null ) && ( keyToken != null ) && ( size > (FinalCrypt.FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN.length() * 2) ) && ( tokenHash == KeyTokenCache.getTokenHash(keyToken) );
+	}
+	else if (( size > 0 ) && ( writable ) && ( lazy )) { return getPendingFCPath(ui, path, size, keyPath); }
+	else if (( size > 0 ) && ( writable )) // Valid file when readable: the token read tells
+	{
+	    boolean probed = true;
+	    ByteBuffer targetSrcTokenBuffer = ByteBuffer.allocate(FinalCrypt.FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN.length() * 2);
+	    readable = true;
+	    try (final FileChannel readTargetSourceChannel = FileChannel.open(path, EnumSet.of(StandardOpenOption.READ)))
+	    {
+		while (( targetSrcTokenBuffer.hasRemaining() ) && ( readTargetSourceChannel.read(targetSrcTokenBuffer) != -1 )) { }
+	    }
+	    catch (AccessDeniedException ex)	{ readable = false; }
+	    catch (IOException ex)		{ ui.log("Error: targetSourceHasToken: readTargetSourceChannel " + ex.getMessage() + "\r\n", true, true, true, true, false); probed = false; }
+	    targetSrcTokenBuffer.flip();
+
+	    int tokenLength = FinalCrypt.FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN.length();
+	    if ( targetSrcTokenBuffer.limit() >= tokenLength )
+	    {
+		byte[] plainTextTokenBytes = new byte[tokenLength]; targetSrcTokenBuffer.get(plainTextTokenBytes);
+		isEncrypted = new String(plainTextTokenBytes, StandardCharsets.UTF_8).equals(FinalCrypt.FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN);
+	    }
+	    if ( isEncrypted ) { targetSrcTokenBuffer.position(tokenLength); tokenHash = KeyTokenCache.getTokenHash(targetSrcTokenBuffer.slice()); }
+	    if (( isEncrypted ) && ( keyPath != null ) && ( keyToken != null ) && ( size > (tokenLength * 2) ))
+	    {
+		targetSrcTokenBuffer.position(tokenLength); isDecryptable = KeyTokenCache.authenticates(keyToken, targetSrcTokenBuffer.slice());
+	    }
+	    if (( probed ) && ( readable )) { ScanCache.put(path, attributes, tokenHash); }
+	}
+	else { readable = Files.isReadable(path); }
+	try { isHidden = Files.isHidden(path); } catch (IOException ex)						    { ui.log("Error: IOException: Validate.getFCPath: Files.isHidden(path) "+ ex.getMessage() + "\r\n", true, true, true, true, false); }
+
+	FCPath fcPath = getFCPath(path, false, keyPath, true, FCPath.FILE, size, readable, writable, isHidden, isEncrypted, isDecryptable);
+	if ( fcPath.isEncrypted ) { fcPath.tokenHash = tokenHash; }
+	return fcPath;
+    }
+
+//  Pending target: a writable file with data, the stat facts only (not valid, decrypted or encrypted until classified)
+    private static FCPath getPendingFCPath(UI ui, Path path, long size, Path keyPath)
+    {
+	FCPath fcPath = new FCPath(path);
+	fcPath.exist = true; fcPath.type = FCPath.FILE; fcPath.size = size; fcPath.isReadable = Files.isReadable(path); fcPath.isWritable = true; fcPath.isPending = true;
+	try { fcPath.isHidden = Files.isHidden(path); } catch (IOException ex)					    { ui.log("Error: IOException: Validate.getFCPath: Files.isHidden(path) "+ ex.getMessage() + "\r\n", true, true, true, true, false); }
+	if (( keyPath != null ) && ( path.compareTo(keyPath) == 0 )) { fcPath.matchKey = true; }
+	return fcPath;
+    }
+
+//  Classification of a scanned target against another key: from its token hash without reading it (pending targets stay pending,
+//  encrypted targets without a token hash are read again)
+    public static FCPath reclassify(UI ui, FCPath fcPath, Path keyPath, byte[] keyToken)
+    {
+	if (( ! fcPath.exist ) || ( fcPath.type != FCPath.FILE ) || ( fcPath.isPending )) { return fcPath; }
+	if (( fcPath.isEncrypted ) && ( fcPath.tokenHash == 0 )) { return getFCPath(ui, "", fcPath.path, false, keyPath, false); }
+	boolean isAuthenticated = ( fcPath.tokenHash != 0 ) && ( keyToken != null ) && ( fcPath.size > (FinalCrypt.FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN.length() * 2) ) && ( fcPath.tokenHash == KeyTokenCache.getTokenHash(keyToken) ); // Same as the probe (a token only is not decryptable)
+	FCPath newFCPath = getFCPath(fcPath.path, false, keyPath, true, FCPath.FILE, fcPath.size, fcPath.isReadable, fcPath.isWritable, fcPath.isHidden, ( fcPath.tokenHash != 0 ), isAuthenticated);
+	newFCPath.tokenHash = fcPath.tokenHash;
+	return newFCPath;
+    }
+
+//  FCPath states of the probed path (isEncrypted & isDecryptable: token & key authentication of valid files)
+    private static FCPath getFCPath(Path path, boolean isKey, Path keyPath, boolean exist, int type, long size, boolean readable, boolean writable, boolean isHidden, boolean hasFCToken, boolean isAuthenticated)
+    {
+	boolean matchKey =		    false;
+	
+	boolean isValid =		    false;
+	boolean isValidFile =		    false;
+	boolean isValidDevice =		    false;
+	boolean isValidDeviceProtected =    false;
+	boolean isValidPartition =	    false;
+
+	boolean isDecrypted =		    false;
+	boolean isEncryptable =		    false;
+	boolean isNewEncrypted =	    false;
+	boolean isUnEncryptable =	    false;
+	
+	boolean isEncrypted =		    false;
+	boolean isDecryptable =		    false;
+	boolean isNewDecrypted =	    false;	
+	boolean isUnDecryptable =	    false;	
+	
+	boolean isValidKey =		    false;	
+
+	if ( exist )
+	{
 	    // Target =============================================================================================================================================================================================
 	    
 	    // isValid in general
@@ -349,8 +452,8 @@ public class Validate
 	    
 	    if (( isValidFile ))
 	    {
-		isEncrypted = targetSourceHasFCToken(ui, path);
-		if ((isEncrypted) && (keyPath != null)  && (size > (FinalCrypt.FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN.length() * 2))) { if (keyPath != null) isDecryptable = targetHasAuthenticatedFCToken(ui, path, keyPath); }
+		isEncrypted = hasFCToken;
+		if ((isEncrypted) && (keyPath != null)  && (size > (FinalCrypt.FINALCRYPT_PLAIN_IEXT_AUTHENTICATION_TOKEN.length() * 2))) { if (keyPath != null) isDecryptable = isAuthenticated; }
 	    }
 	    if (( isValidFile ) && ( isEncrypted ) && ( ! isDecryptable ))								{ isEncrypted = true; isDecryptable = false; isDecrypted = false; isEncryptable = false; isUnEncryptable = true; isUnDecryptable = true; }
 	    if (( isValidFile )	&& ( isEncrypted ) && (   isDecryptable ))								{ isEncrypted = true; isDecryptable = true;  isDecrypted = false; isEncryptable = false; isUnEncryptable = true; isUnDecryptable = false; }
@@ -368,7 +471,6 @@ public class Validate
 			)
 			    && ( size >=  1024 ) && ( readable  ) && ( isKey ) )	{ isValidKey = true; }
 	}
-	else { }
 
 // Return FCPath =============================================================================================================================================================================================
 
@@ -414,7 +516,7 @@ public class Validate
 	return returnString;
     }
     
-    synchronized public static String getFCPathStatus(FCPath fcPath)
+    public static String getFCPathStatus(FCPath fcPath)
     {
 	String returnString = "";
 
@@ -441,40 +543,44 @@ public class Validate
 class MySimpleFCFileVisitor extends SimpleFileVisitor<Path>
 {
     private final UI ui;
-    private final PathMatcher pathMatcher;
+    private final FCPathFilter fcPathFilter;
     private final boolean verbose; 
     private final boolean delete; 
     private final boolean symlink; 
     private final boolean setFCPathlist; 
     public FCPath keyFCPath;
-    private FCPathList targetFCPathList;
-    private boolean negatePattern;
+    public Path rootPath = null; // Path being walked (never pruned by a directory exclude)
+    private FCPathList<FCPath> targetFCPathList;
     public long bytesCount = 0;
-    public static boolean running = false; 
 
 //  regex pattern
 //  all *.bit   =   'regex:^.*\.bit$'
 //  all but *.bit   'regex:(?!.*\.bit$)^.*$'
     
-    public MySimpleFCFileVisitor(UI ui, boolean verbose, boolean delete, boolean symlink, boolean setFCPathlist, FCPath keyFCPath, FCPathList targetFCPathList, String pattern, boolean negatePattern)
+    public MySimpleFCFileVisitor(UI ui, boolean verbose, boolean delete, boolean symlink, boolean setFCPathlist, FCPath keyFCPath, FCPathList<FCPath> targetFCPathList, String pattern, boolean negatePattern)
+    {
+	this(ui, verbose, delete, symlink, setFCPathlist, keyFCPath, targetFCPathList, new FCPathFilter(pattern, negatePattern)); // "glob:" or "regex:" included in pattern
+    }
+
+    public MySimpleFCFileVisitor(UI ui, boolean verbose, boolean delete, boolean symlink, boolean setFCPathlist, FCPath keyFCPath, FCPathList<FCPath> targetFCPathList, FCPathFilter fcPathFilter)
     {
         this.ui = ui;
-        pathMatcher = FileSystems.getDefault().getPathMatcher(pattern); // "glob:" or "regex:" included in pattern
+	this.fcPathFilter = fcPathFilter;
         this.verbose = verbose;
         this.delete = delete;
         this.symlink = symlink;
         this.setFCPathlist = setFCPathlist;
 	this.keyFCPath = keyFCPath;
 	this.targetFCPathList = targetFCPathList;
-        this.negatePattern = negatePattern;
 	bytesCount = 0;
-	running = true;
+	FCPathWalker.running = true;
     }
    
     @Override public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes attrs)
     {
-	if (running)
+	if (FCPathWalker.running)
 	{
+	    if (( attrs != null ) && ( ! path.equals(rootPath) ) && ( fcPathFilter.isExcludedDir(path) )) { return FileVisitResult.SKIP_SUBTREE; } // Excluded directory (not a walked root)
 	    if	(delete)	{ return FileVisitResult.CONTINUE; }
 	    else if (setFCPathlist)	{ if ( Validate.isValidDir(ui, path, symlink, true) ) { return FileVisitResult.CONTINUE; } else { return FileVisitResult.SKIP_SUBTREE; } }
 	    else			{ ui.log("Huh? this shouldn't have happened. Neither booleans: delete & returnpathlist are present?\r\n", true, true, false, false, false); return FileVisitResult.CONTINUE; }
@@ -484,9 +590,9 @@ class MySimpleFCFileVisitor extends SimpleFileVisitor<Path>
     
     @Override public FileVisitResult visitFile(Path path, BasicFileAttributes attrs)
     {
-	if (running)
+	if (FCPathWalker.running)
 	{
-	    if ( (path.getFileName() != null ) && ( negatePattern ^ pathMatcher.matches(path.getFileName())) ) // ^ = XOR just reverses the match when -W instead of -w if given in CLUI
+	    if ( fcPathFilter.matches(path, attrs) )
 	    {            
 		if	(delete)                 { try { Files.delete(path); } catch (IOException ex) { ui.log("Error: visitFile(.. ) Failed file: " + path.toString() + " due to: " + ex.getMessage() + "\r\n", true, true, true, true, false); } }
 		else if (setFCPathlist)    
@@ -503,7 +609,7 @@ class MySimpleFCFileVisitor extends SimpleFileVisitor<Path>
     
     @Override public FileVisitResult visitFileFailed(Path path, IOException exc)
     {
-	if (running)
+	if (FCPathWalker.running)
 	{
 //					     getFCPath(UI ui, String caller, Path path, boolean isKey,	     Path keyPath, boolean report)
 	    FCPath fcPath = Validate.getFCPath(   ui,            "",      path,            false, this.keyFCPath.path,           true); targetFCPathList.add(fcPath);
@@ -514,7 +620,7 @@ class MySimpleFCFileVisitor extends SimpleFileVisitor<Path>
     
     @Override public FileVisitResult postVisitDirectory(Path path, IOException exc)
     {
-	if (running)
+	if (FCPathWalker.running)
 	{
 	    if      (delete)        { try { Files.delete(path); } catch (IOException ex) { ui.log("Error: postVisitDirectory: " + path.toString() + " due to: " + ex.getMessage() + "\r\n", true, true, true, true, false); } }
 	    else if (setFCPathlist) {     }
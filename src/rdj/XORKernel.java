@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2017 Ron de Jong (ronuitzaandam@gmail.com).
+ *
+ * This is free software; you can redistribute it
+ * under the terms of the Creative Commons License
+ * Creative Commons License: (CC BY-NC-ND 4.0) as published by
+ * https://creativecommons.org/licenses/by-nc-nd/4.0/ ; either
+ * version 4.0 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Creative Commons Attribution-NonCommercial-NoDerivatives 4.0
+ * International Public License for more details.
+ *
+ * You should have received a copy of the Creative Commons
+ * Public License License along with this software;
+ */
+
+package rdj;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/*
+    Bulk XOR kernels used by FinalCrypt.encryptBuffer(..) and the I/O engines.
+
+    KERNEL_LONG	    8 bytes per step (SWAR). Key 0 bytes are found and inverted within the 64 bit word without branching.
+    KERNEL_BYTE	    Byte by byte reference implementation (same result as FinalCrypt.encryptByte(..)).
+
+    The kernel is selected once at class initialisation: -Dfinalcrypt.kernel=byte forces the reference kernel.
+    All indexes are absolute, buffer positions and limits are never changed.
+*/
+
+public class XORKernel
+{
+    public static final    int	    KERNEL_BYTE =	0;
+    public static final    int	    KERNEL_LONG =	1;
+    public static final String[]   KERNEL_DESCRIPTION_ARRAY = new String[] { "Byte (reference)","Long (SWAR)" };
+
+    public static final    int	    KERNEL =		getKernelSelection();
+
+    private static final   long	    LOW7_BITS =		0x7F7F7F7F7F7F7F7FL;
+    private static final   long	    HIGH_BITS =		0x8080808080808080L;
+
+    private static int getKernelSelection()
+    {
+	String kernel = System.getProperty("finalcrypt.kernel", "long");
+	if ( kernel.toLowerCase().equals("byte") ) { return KERNEL_BYTE; } else { return KERNEL_LONG; }
+    }
+
+    public static String getKernelString() { return KERNEL_DESCRIPTION_ARRAY[KERNEL]; }
+
+//  targetDestin[dstIndex + x] = targetSource[srcIndex + x] ^ key[keyIndex + x] (key 0 bytes inverted) for x = 0 .. length - 1
+    public static void xor(ByteBuffer srcBuffer, int srcIndex, ByteBuffer keyBuffer, int keyIndex, ByteBuffer dstBuffer, int dstIndex, int length)
+    {
+	if ( KERNEL == KERNEL_LONG )	{ xorLong(srcBuffer, srcIndex, keyBuffer, keyIndex, dstBuffer, dstIndex, length); }
+	else				{ xorByte(srcBuffer, srcIndex, keyBuffer, keyIndex, dstBuffer, dstIndex, length); }
+    }
+
+    public static void xorByte(ByteBuffer srcBuffer, int srcIndex, ByteBuffer keyBuffer, int keyIndex, ByteBuffer dstBuffer, int dstIndex, int length)
+    {
+	for (int x = 0; x < length; x++) { dstBuffer.put(dstIndex + x, xorByte(srcBuffer.get(srcIndex + x), keyBuffer.get(keyIndex + x))); }
+    }
+
+    public static void xorLong(ByteBuffer srcBuffer, int srcIndex, ByteBuffer keyBuffer, int keyIndex, ByteBuffer dstBuffer, int dstIndex, int length)
+    {
+//	XOR is byte order independent as long as get and put use the same order, so native order avoids byte swapping
+	ByteBuffer src = srcBuffer.duplicate().order(ByteOrder.nativeOrder());
+	ByteBuffer key = keyBuffer.duplicate().order(ByteOrder.nativeOrder());
+	ByteBuffer dst = dstBuffer.duplicate().order(ByteOrder.nativeOrder());
+
+	int x = 0;
+	int longs = length - (length % 8);
+	for (; x < longs; x += 8) { dst.putLong(dstIndex + x, src.getLong(srcIndex + x) ^ invertZeroBytes(key.getLong(keyIndex + x))); }
+	for (; x < length; x++) { dst.put(dstIndex + x, xorByte(src.get(srcIndex + x), key.get(keyIndex + x))); }
+    }
+
+    public static byte xorByte(byte srcByte, byte keyByte)
+    {
+	if (keyByte == 0) { keyByte = (byte)(~keyByte & 0xFF); } // Inverting / negate key 0 bytes (none encryption not allowed)
+	return (byte)(srcByte ^ keyByte);
+    }
+
+//  Sets every 0 byte in the word to 0xFF (same as the key 0 byte inversion in FinalCrypt.encryptByte(..))
+    public static long invertZeroBytes(long keyWord)
+    {
+	long nonZeroBytes = ((keyWord & LOW7_BITS) + LOW7_BITS) | keyWord;	// High bit set in every non 0 byte (no carry between bytes)
+	long zeroBytes = ~nonZeroBytes & HIGH_BITS;				// High bit set in every 0 byte
+	return keyWord | ((zeroBytes >>> 7) * 0xFF);				// 0x01 -> 0xFF in every 0 byte
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright © 2017 Ron de Jong (ronuitzaandam@gmail.com).
+ *
+ * This is free software; you can redistribute it
+ * under the terms of the Creative Commons License
+ * Creative Commons License: (CC BY-NC-ND 4.0) as published by
+ * https://creativecommons.org/licenses/by-nc-nd/4.0/ ; either
+ * version 4.0 of the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Creative Commons Attribution-NonCommercial-NoDerivatives 4.0
+ * International Public License for more details.
+ *
+ * You should have received a copy of the Creative Commons
+ * Public License License along with this software;
+ */
+
+package rdj;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Concurrency stress benchmark of the classification (Validate.getFCPath) and the device size probe (DeviceController.getDeviceSize)
+    that no longer serialize on class locks.
+
+    java -cp build/classes:build/test/classes rdj.ClassifyBenchmark [threads] [seconds] [dir]
+
+    Runs every thread count from 1 up to threads (doubling) for seconds each: every thread classifies the files of dir (a generated
+    tree of FILES files when omitted) against a generated key and probes their sizes, round robin from its own offset. Reports the
+    calls per second, the speedup over one thread and every probed size that differs from Files.size (none expected).
+*/
+
+public class ClassifyBenchmark
+{
+    public static final    int	    FILES =		512;
+    public static final    int	    THREADS_DEFAULT =	Math.max(8, Runtime.getRuntime().availableProcessors() * 2);
+    public static final    int	    SECONDS_DEFAULT =	3;
+
+    private static final AtomicLong errors = new AtomicLong();
+
+    private static final UI ui = new UI()
+    {
+	@Override public void log(String message, boolean status, boolean log, boolean logfile, boolean errfile, boolean print) { if ( errfile ) { errors.incrementAndGet(); System.err.print(message); } }
+	@Override public void processGraph(int value) { }
+	@Override public void processProgress(int filesProgressPercent, int fileProgressPercent, long bytesTotalParam, long bytesProcessedParam, long bytesPerMiliSecondParam) { }
+	@Override public void fileProgress() { }
+	@Override public void processFinished() { }
+	@Override public void processStarted() { }
+	@Override @SuppressWarnings("rawtypes") public void buildReady(FCPathList fcPathListParam) { }
+    };
+
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+	int threadsMax = THREADS_DEFAULT; if ( args.length > 0 ) { threadsMax = Integer.parseInt(args[0]); }
+	int seconds = SECONDS_DEFAULT;	  if ( args.length > 1 ) { seconds = Integer.parseInt(args[1]); }
+	Path tempDirPath = Files.createTempDirectory("fcbench");
+	Path keyPath = tempDirPath.resolve("key"); Files.write(keyPath, getBytes(new Random(1), 4096));
+	Path dirPath; if ( args.length > 2 ) { dirPath = Paths.get(args[2]); } else { dirPath = createTree(tempDirPath.resolve("t")); }
+
+	ArrayList<Path> pathList = new ArrayList<>();
+	try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(dirPath)) { for (Path path : directoryStream) { if ( Files.isRegularFile(path) ) { pathList.add(path); } } }
+	long[] sizes = new long[pathList.size()]; for (int index = 0; index < sizes.length; index++) { sizes[index] = Files.size(pathList.get(index)); }
+	System.out.println("Files: " + pathList.size() + " in " + dirPath + " threads: 1.." + threadsMax + " " + seconds + " s each");
+
+	double baseRate = 0;
+	for (int threads = 1; threads <= threadsMax; threads *= 2)
+	{
+	    long[] result = run(pathList, sizes, keyPath, threads, seconds * 1000L);
+	    double classifyRate = result[0] * 1000.0 / result[2]; double sizeRate = result[1] * 1000.0 / result[2];
+	    if ( threads == 1 ) { baseRate = classifyRate + sizeRate; }
+	    System.out.println(String.format("threads %3d   getFCPath %9.0f /s   getDeviceSize %9.0f /s   speedup %5.2f   size mismatches %d", threads, classifyRate, sizeRate, (classifyRate + sizeRate) / baseRate, result[3]));
+	}
+	if ( errors.get() > 0 ) { System.out.println("Errors logged: " + errors.get()); }
+	if ( args.length <= 2 ) { deleteTree(tempDirPath); }
+    }
+
+//  { getFCPath calls, getDeviceSize calls, elapsed ms, size mismatches } of threads running for duration ms
+    private static long[] run(ArrayList<Path> pathList, long[] sizes, Path keyPath, int threads, long duration) throws InterruptedException
+    {
+	AtomicLong classifyCount = new AtomicLong(); AtomicLong sizeCount = new AtomicLong(); AtomicLong mismatchCount = new AtomicLong();
+	CountDownLatch startLatch = new CountDownLatch(1); CountDownLatch endLatch = new CountDownLatch(threads);
+	long[] endTime = new long[1];
+	for (int thread = 0; thread < threads; thread++)
+	{
+	    final int offset = thread * pathList.size() / threads;
+	    new Thread(() ->
+	    {
+		try
+		{
+		    startLatch.await(); long classified = 0; long probed = 0; long mismatches = 0;
+		    for (int call = 0; System.currentTimeMillis() < endTime[0]; call++)
+		    {
+			int index = (offset + call) % pathList.size();
+			Validate.getFCPath(ui, "", pathList.get(index), false, keyPath, false); classified++;
+			if ( DeviceController.getDeviceSize(ui, pathList.get(index), false) != sizes[index] ) { mismatches++; } probed++;
+		    }
+		    classifyCount.addAndGet(classified); sizeCount.addAndGet(probed); mismatchCount.addAndGet(mismatches);
+		}
+		catch (InterruptedException ex) { Thread.currentThread().interrupt(); }
+		finally { endLatch.countDown(); }
+	    }, "ClassifyBenchmark-" + thread).start();
+	}
+	long startTime = System.currentTimeMillis(); endTime[0] = startTime + duration;
+	startLatch.countDown(); endLatch.await();
+	return new long[] { classifyCount.get(), sizeCount.get(), Math.max(1, System.currentTimeMillis() - startTime), mismatchCount.get() };
+    }
+
+//  Random files from 1 byte to 4 MiB
+    private static Path createTree(Path dirPath) throws IOException
+    {
+	Files.createDirectories(dirPath); Random random = new Random(FILES);
+	for (int index = 0; index < FILES; index++) { Files.write(dirPath.resolve("f" + index), getBytes(random, 1 + (int)Math.pow(2, random.nextDouble() * 22))); }
+	return dirPath;
+    }
+
+    private static byte[] getBytes(Random random, int size) { byte[] bytes = new byte[size]; random.nextBytes(bytes); return bytes; }
+
+    private static void deleteTree(Path dirPath) throws IOException
+    {
+	try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(dirPath)) { for (Path path : directoryStream) { if ( Files.isDirectory(path) ) { deleteTree(path); } else { Files.delete(path); } } }
+	Files.delete(dirPath);
+    }
+}